@@ -10,6 +10,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 import movieMentor.models.MovieImage;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -43,7 +45,10 @@ public class Movie implements Serializable {
 
     private Integer voteCount;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // LAZY + SUBSELECT: רשימות סרטים (מועדפים, getAllMovies) לא טוענות תמונות וז'אנרים בכלל,
+    // ומי שכן צריך אותם טוען את כולם בשאילתה אחת לכל הרשימה
+    @Fetch(FetchMode.SUBSELECT)
+    @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "movie_images", joinColumns = @JoinColumn(name = "movie_id"))
     @Column(name = "image_url")
     private List<MovieImage> imageUrls;
@@ -59,7 +64,8 @@ public class Movie implements Serializable {
             inverseJoinColumns = @JoinColumn(name = "actor_id"))
     private Set<Actor> actors = new HashSet<>();
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.MERGE, CascadeType.PERSIST})
+    @Fetch(FetchMode.SUBSELECT)
+    @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.MERGE, CascadeType.PERSIST})
     @JoinTable(
             name = "movie_genres",
             joinColumns = @JoinColumn(name = "movie_id"),
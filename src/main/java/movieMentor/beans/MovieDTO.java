@@ -43,6 +43,14 @@ public class MovieDTO implements Serializable {
         setPosterUrl(movie.getPosterUrl());
     }
 
+    // הטלה ישירה משאילתות JPQL (מועדפים, המלצות) – posterUrl בשורה כבר מלא
+    public MovieDTO(Long id, String title, String posterUrl, Double voteAverage) {
+        this.id = id;
+        this.title = title;
+        this.posterUrl = posterUrl;
+        this.voteAverage = voteAverage;
+    }
+
     public static MovieDTO toDTO(Movie movie) {
         return new MovieDTO(movie.getId(), movie.getTitle(), movie.getPosterUrl(), movie.getVoteAverage(), movie.getOverview());
     }
@@ -53,6 +61,7 @@ public class MovieDTO implements Serializable {
             MovieDTO movieDTO=MovieDTO.builder().id(movie.getId())
                     .overview(movie.getOverview())
                     .title(movie.getTitle())
+                    .voteAverage(movie.getVoteAverage())
                     .build();
             movieDTO.setPosterUrl(movie.getPosterUrl());
             movieDTOS.add(movieDTO);
@@ -66,6 +75,7 @@ public class MovieDTO implements Serializable {
             MovieDTO movieDTO=MovieDTO.builder().id(movie.getId())
                     .overview(movie.getOverview())
                     .title(movie.getTitle())
+                    .voteAverage(movie.getVoteAverage())
                     .build();
             movieDTO.setPosterUrl(movie.getPosterPath());
             movieDTOS.add(movieDTO);
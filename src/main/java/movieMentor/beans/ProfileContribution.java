@@ -0,0 +1,28 @@
+package movieMentor.beans;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * סרט אחד שתורם לוקטור הפרופיל של המשתמש.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileContribution {
+
+    @Column(name = "movie_id")
+    private Long movieId;
+
+    // false כשלסרט עוד לא היה embedding – הוא יתווסף לסכום כשה-embedding יגיע
+    private boolean counted;
+
+    // טביעת האצבע של הווקטור שנוסף לסכום – אם ה-embedding של הסרט הוחלף מאז, החיסור לא מדויק
+    @Column(name = "embedding_hash")
+    private Long embeddingHash;
+}
@@ -48,7 +48,7 @@ public class User {
     )
     private List<Movie> favoriteMovies = new ArrayList<>();
 
-    // היסטוריית צפייה בפורמט JSON
+    // היסטוריית צפייה בפורמט JSON – ישן: מועבר ל-watch_events בעלייה (WatchHistoryMigration) ונשאר ריק
     @ElementCollection
     @CollectionTable(name = "user_watch_history", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "history_entry", columnDefinition = "LONGTEXT")
@@ -0,0 +1,56 @@
+package movieMentor.beans;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * הסכום המצטבר שממנו נגזר וקטור הפרופיל של המשתמש.
+ *
+ * The profile vector is {@code weightedSum / totalWeight}, where every favourite counts
+ * twice and each of the last 30 watch-history entries counts once. Keeping the sum and the
+ * contributing ids lets a single favourite or history change be applied in O(dimension)
+ * instead of re-reading the whole profile.
+ */
+@Entity
+@Table(name = "user_profile_aggregates")
+@Data
+@NoArgsConstructor
+public class UserProfileAggregate {
+
+    @Id
+    private Long userId;
+
+    // float32 little-endian, dimension * 4 bytes
+    @Column(name = "weighted_sum")
+    private byte[] weightedSum;
+
+    private double totalWeight;
+
+    // עם עמודת סדר, כדי ש-Hibernate יעדכן שורה בודדת ולא ימחק ויכניס מחדש את כל הרשימה;
+    // הסדר עצמו לא משמעותי – הסרה מעבירה את האחרון למקום שהתפנה (UPDATE + DELETE אחד)
+    @ElementCollection
+    @CollectionTable(name = "user_profile_favorite_list", joinColumns = @JoinColumn(name = "user_id"))
+    @OrderColumn(name = "position")
+    private List<ProfileContribution> favorites = new ArrayList<>();
+
+    // 30 הפריטים האחרונים בהיסטוריה כטבעת: עד שהחלון מתמלא מוסיפים בסוף, ואז דורסים את
+    // התא של הישן ביותר (historyHead) – UPDATE של שורה אחת לכל צפייה, בלי להזיז אינדקסים
+    @ElementCollection
+    @CollectionTable(name = "user_profile_history_window", joinColumns = @JoinColumn(name = "user_id"))
+    @OrderColumn(name = "position")
+    private List<ProfileContribution> historyWindow = new ArrayList<>();
+
+    // התא הבא לדריסה כשהחלון מלא; null ב-aggregates ישנים, ששם הישן ביותר תמיד בתא 0
+    @Column(name = "history_head")
+    private Integer historyHead;
+
+    // שגיאות עיגול מצטברות – בונים מחדש מאפס אחרי מספר עדכונים
+    private int mutationsSinceRebuild;
+
+    // null ב-aggregates מלפני טבלת המועדפים הממוספרת וטביעות האצבע – כאלה נבנים מחדש
+    private Integer formatVersion;
+}
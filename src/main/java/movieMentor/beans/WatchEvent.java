@@ -0,0 +1,67 @@
+package movieMentor.beans;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * צפייה אחת בהיסטוריה של משתמש – שורה לכל צפייה, נכתבת פעם אחת ולא משתנה.
+ *
+ * {@code ordinal} grows by one per user and is the keyset for paging through the history;
+ * the title, poster and rating are copied from the TMDB snapshot at watch time so history
+ * pages can be served without another lookup.
+ */
+@Entity
+@Table(name = "watch_events",
+        indexes = @Index(name = "idx_watch_events_user_watched_at", columnList = "user_id, watched_at"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_watch_events_user_ordinal", columnNames = {"user_id", "ordinal"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WatchEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "movie_id", nullable = false)
+    private Long movieId;
+
+    @Column(name = "watched_at", nullable = false)
+    private Instant watchedAt;
+
+    @Column(nullable = false)
+    private long ordinal;
+
+    private String title;
+
+    @Column(name = "poster_url", columnDefinition = "TEXT")
+    private String posterUrl;
+
+    private Double voteAverage;
+
+    public static WatchEvent of(Long userId, MovieDTO movie, long ordinal, Instant watchedAt) {
+        return WatchEvent.builder()
+                .userId(userId)
+                .movieId(movie.getId())
+                .ordinal(ordinal)
+                .watchedAt(watchedAt)
+                .title(movie.getTitle())
+                .posterUrl(movie.getPosterUrl())
+                .voteAverage(movie.getVoteAverage())
+                .build();
+    }
+
+    // posterUrl כבר מלא – לא עוברים דרך setPosterUrl שמוסיף את ה-base URL
+    public MovieDTO toMovieDTO() {
+        return new MovieDTO(movieId, title, posterUrl, voteAverage, null);
+    }
+}
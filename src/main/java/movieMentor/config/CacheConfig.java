@@ -5,6 +5,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.SimpleKeyGenerator;
@@ -14,14 +17,22 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.*;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(TwoLevelCacheProperties.class)
 public class CacheConfig {
 
     @Bean
@@ -43,15 +54,18 @@ public class CacheConfig {
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
     }
 
-    @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(cacheConfiguration())
-                .build();
+    // caches שמחזיקים MovieDTO / Movie / רשימות שלהם – פורמט בינארי במקום JSON עם @class לכל איבר
+    private static final List<String> COMPACT_CACHES = List.of(
+            "search", "movies", "allMovies",
+            "nowPlaying", "nowPlayingMoviesDTO", "topRatedMoviesDTO", "upcomingMoviesDTO",
+            "moviesByGenreDTO", "candidateMovies");
+
+    private RedisCacheConfiguration compactCacheConfiguration() {
+        return cacheConfiguration().serializeValuesWith(
+                RedisSerializationContext.SerializationPair.fromSerializer(new CompactRedisSerializer(jsonSerializer())));
     }
 
-    @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    private static GenericJackson2JsonRedisSerializer jsonSerializer() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -60,8 +74,47 @@ public class CacheConfig {
                 ObjectMapper.DefaultTyping.NON_FINAL,
                 JsonTypeInfo.As.PROPERTY
         );
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
 
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(mapper);
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     TwoLevelCacheProperties l1Properties,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheConfiguration compact = compactCacheConfiguration();
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        COMPACT_CACHES.forEach(name -> perCache.put(name, compact));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(cacheConfiguration())
+                .withInitialCacheConfigurations(perCache)
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        if (!l1Properties.isEnabled()) {
+            return redisCacheManager;
+        }
+        // L1 מקומי (Caffeine) מול Redis – פגיעה ב-L1 חוסכת round trip ודה-סיריאליזציה
+        return new TwoLevelCacheManager(redisCacheManager, l1Properties,
+                new StringRedisTemplate(connectionFactory), meterRegistry);
+    }
+
+    // הודעות invalidation מהשרתים האחרים מנקות את ה-L1 המקומי
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            CacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (cacheManager instanceof TwoLevelCacheManager) {
+            container.addMessageListener((TwoLevelCacheManager) cacheManager,
+                    new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        }
+        return container;
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+        // movieDTO:title:* וכו' – בינארי ל-MovieDTO, JSON לכל השאר (וקריאה של ערכי JSON ישנים)
+        CompactRedisSerializer serializer = new CompactRedisSerializer(jsonSerializer());
 
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
@@ -77,11 +130,13 @@ public class CacheConfig {
         return new SimpleKeyGenerator();
     }
 
+    // FLUSHALL מוחק את כל ה-Redis המשותף (גם של שרתים אחרים בפריסה) – רק כשמבקשים במפורש
     @Bean
+    @ConditionalOnProperty(name = "cache.flush-on-startup", havingValue = "true")
     public ApplicationListener<ContextRefreshedEvent> flushRedisOnStartup(RedisConnectionFactory connectionFactory) {
         return event -> {
-            try {
-                connectionFactory.getConnection().flushAll();
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                connection.flushAll();
                 System.out.println("✅ Redis cache cleared AFTER Spring context initialized.");
             } catch (Exception e) {
                 System.err.println("❌ Redis flush failed: " + e.getMessage());
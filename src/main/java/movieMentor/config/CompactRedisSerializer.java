@@ -0,0 +1,491 @@
+package movieMentor.config;
+
+import movieMentor.beans.Actor;
+import movieMentor.beans.Genre;
+import movieMentor.beans.Movie;
+import movieMentor.beans.MovieDTO;
+import movieMentor.models.MovieImage;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * סיריאלייזר בינארי קומפקטי ל-MovieDTO, Movie ולרשימות שלהם.
+ *
+ * Layout: {@code [magic][version][type][flags][body]}. Ids and counts are varints, strings
+ * are length-prefixed UTF-8, doubles are raw IEEE-754, and each record starts with a
+ * varint bitmask of which nullable fields are present. Bodies above
+ * {@code compressThreshold} bytes are deflated (flag bit 0).
+ *
+ * Anything else is written by the {@code fallback} serializer behind a {@link #TYPE_FALLBACK}
+ * header. Values with no magic byte, such as JSON written before this serializer was
+ * registered, are also handed to the fallback, so existing Redis entries stay readable.
+ * A new layout needs a new {@link #VERSION}; older versions must stay decodable until
+ * their TTLs have passed.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xB7;
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_FALLBACK = 0;
+    private static final byte TYPE_MOVIE_DTO = 1;
+    private static final byte TYPE_MOVIE_DTO_LIST = 2;
+    private static final byte TYPE_MOVIE = 3;
+    private static final byte TYPE_MOVIE_LIST = 4;
+
+    private static final int FLAG_DEFLATE = 1;
+    private static final int HEADER_BYTES = 4;
+
+    private final RedisSerializer<Object> fallback;
+    private final int compressThreshold;
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback) {
+        this(fallback, 512);
+    }
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback, int compressThreshold) {
+        this.fallback = fallback;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte type = typeOf(value);
+        Writer body = new Writer();
+        switch (type) {
+            case TYPE_MOVIE_DTO:
+                writeMovieDTO(body, (MovieDTO) value);
+                break;
+            case TYPE_MOVIE_DTO_LIST:
+                List<?> dtos = (List<?>) value;
+                body.varint(dtos.size());
+                for (Object dto : dtos) {
+                    writeMovieDTO(body, (MovieDTO) dto);
+                }
+                break;
+            case TYPE_MOVIE:
+                writeMovie(body, (Movie) value);
+                break;
+            case TYPE_MOVIE_LIST:
+                List<?> movies = (List<?>) value;
+                body.varint(movies.size());
+                for (Object movie : movies) {
+                    writeMovie(body, (Movie) movie);
+                }
+                break;
+            default:
+                byte[] json = fallback.serialize(value);
+                return header(TYPE_FALLBACK, 0, json == null ? new byte[0] : json, json == null ? 0 : json.length);
+        }
+
+        if (body.size() > compressThreshold) {
+            byte[] deflated = deflate(body.buffer(), body.size());
+            if (deflated.length < body.size()) {
+                return header(type, FLAG_DEFLATE, deflated, deflated.length);
+            }
+        }
+        return header(type, 0, body.buffer(), body.size());
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            // ערך ישן (JSON) מלפני המעבר לפורמט הבינארי
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_BYTES) {
+            throw new SerializationException("Truncated compact value (" + bytes.length + " bytes)");
+        }
+        if (bytes[1] != VERSION) {
+            throw new SerializationException("Unsupported compact format version " + bytes[1]);
+        }
+        byte type = bytes[2];
+        int flags = bytes[3];
+        byte[] body = Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length);
+        if ((flags & FLAG_DEFLATE) != 0) {
+            body = inflate(body);
+        }
+        if (type == TYPE_FALLBACK) {
+            return fallback.deserialize(body);
+        }
+
+        Reader in = new Reader(body);
+        switch (type) {
+            case TYPE_MOVIE_DTO:
+                return readMovieDTO(in);
+            case TYPE_MOVIE_DTO_LIST: {
+                int size = in.varintInt();
+                List<MovieDTO> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readMovieDTO(in));
+                }
+                return list;
+            }
+            case TYPE_MOVIE:
+                return readMovie(in);
+            case TYPE_MOVIE_LIST: {
+                int size = in.varintInt();
+                List<Movie> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readMovie(in));
+                }
+                return list;
+            }
+            default:
+                throw new SerializationException("Unknown compact type tag " + type);
+        }
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof MovieDTO) {
+            return TYPE_MOVIE_DTO;
+        }
+        if (value instanceof Movie) {
+            return TYPE_MOVIE;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (list.isEmpty() || allInstances(list, MovieDTO.class)) {
+                return TYPE_MOVIE_DTO_LIST;
+            }
+            if (allInstances(list, Movie.class)) {
+                return TYPE_MOVIE_LIST;
+            }
+        }
+        return TYPE_FALLBACK;
+    }
+
+    private static boolean allInstances(List<?> list, Class<?> type) {
+        for (Object item : list) {
+            if (!type.isInstance(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ------- MovieDTO -------
+
+    private static void writeMovieDTO(Writer out, MovieDTO dto) {
+        out.presence(dto.getId(), dto.getTitle(), dto.getPosterUrl(), dto.getVoteAverage(), dto.getOverview());
+        if (dto.getId() != null) out.varint(dto.getId());
+        if (dto.getTitle() != null) out.string(dto.getTitle());
+        if (dto.getPosterUrl() != null) out.string(dto.getPosterUrl());
+        if (dto.getVoteAverage() != null) out.float64(dto.getVoteAverage());
+        if (dto.getOverview() != null) out.string(dto.getOverview());
+    }
+
+    private static MovieDTO readMovieDTO(Reader in) {
+        long present = in.varint();
+        // דרך ה-builder: setPosterUrl מוסיף את ה-base URL של TMDB
+        return MovieDTO.builder()
+                .id(bit(present, 0) ? in.varint() : null)
+                .title(bit(present, 1) ? in.string() : null)
+                .posterUrl(bit(present, 2) ? in.string() : null)
+                .voteAverage(bit(present, 3) ? in.float64() : null)
+                .overview(bit(present, 4) ? in.string() : null)
+                .build();
+    }
+
+    // ------- Movie -------
+
+    private static void writeMovie(Writer out, Movie movie) {
+        out.presence(movie.getId(), movie.getTitle(), movie.getOriginalTitle(), movie.getOverview(),
+                movie.getPosterUrl(), movie.getReleaseDate(), movie.getPopularity(), movie.getVoteAverage(),
+                movie.getVoteCount(), movie.getImageUrls(), movie.getTrailerUrl(), movie.getActors(),
+                movie.getGenres());
+        if (movie.getId() != null) out.varint(movie.getId());
+        if (movie.getTitle() != null) out.string(movie.getTitle());
+        if (movie.getOriginalTitle() != null) out.string(movie.getOriginalTitle());
+        if (movie.getOverview() != null) out.string(movie.getOverview());
+        if (movie.getPosterUrl() != null) out.string(movie.getPosterUrl());
+        if (movie.getReleaseDate() != null) out.zigzag(movie.getReleaseDate().toEpochDay());
+        if (movie.getPopularity() != null) out.float64(movie.getPopularity());
+        if (movie.getVoteAverage() != null) out.float64(movie.getVoteAverage());
+        if (movie.getVoteCount() != null) out.zigzag(movie.getVoteCount());
+        if (movie.getImageUrls() != null) {
+            out.varint(movie.getImageUrls().size());
+            for (MovieImage image : movie.getImageUrls()) {
+                out.nullableString(image.getType());
+                out.nullableString(image.getUrl());
+            }
+        }
+        if (movie.getTrailerUrl() != null) out.string(movie.getTrailerUrl());
+        if (movie.getActors() != null) {
+            out.varint(movie.getActors().size());
+            for (Actor actor : movie.getActors()) {
+                out.presence(actor.getId(), actor.getName(), actor.getImageUrl(), actor.getTmdbId());
+                if (actor.getId() != null) out.varint(actor.getId());
+                if (actor.getName() != null) out.string(actor.getName());
+                if (actor.getImageUrl() != null) out.string(actor.getImageUrl());
+                if (actor.getTmdbId() != null) out.varint(actor.getTmdbId());
+            }
+        }
+        if (movie.getGenres() != null) {
+            out.varint(movie.getGenres().size());
+            for (Genre genre : movie.getGenres()) {
+                out.presence(genre.getId(), genre.getName());
+                if (genre.getId() != null) out.varint(genre.getId());
+                if (genre.getName() != null) out.string(genre.getName());
+            }
+        }
+    }
+
+    private static Movie readMovie(Reader in) {
+        long present = in.varint();
+        Movie movie = new Movie();
+        if (bit(present, 0)) movie.setId(in.varint());
+        if (bit(present, 1)) movie.setTitle(in.string());
+        if (bit(present, 2)) movie.setOriginalTitle(in.string());
+        if (bit(present, 3)) movie.setOverview(in.string());
+        if (bit(present, 4)) movie.setPosterUrl(in.string());
+        if (bit(present, 5)) movie.setReleaseDate(LocalDate.ofEpochDay(in.zigzag()));
+        if (bit(present, 6)) movie.setPopularity(in.float64());
+        if (bit(present, 7)) movie.setVoteAverage(in.float64());
+        if (bit(present, 8)) movie.setVoteCount((int) in.zigzag());
+        if (bit(present, 9)) {
+            int size = in.varintInt();
+            List<MovieImage> images = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                images.add(new MovieImage(in.nullableString(), in.nullableString()));
+            }
+            movie.setImageUrls(images);
+        } else {
+            movie.setImageUrls(null);
+        }
+        if (bit(present, 10)) movie.setTrailerUrl(in.string());
+        Set<Actor> actors = new HashSet<>();
+        if (bit(present, 11)) {
+            int size = in.varintInt();
+            for (int i = 0; i < size; i++) {
+                long actorPresent = in.varint();
+                Actor actor = new Actor();
+                if (bit(actorPresent, 0)) actor.setId(in.varint());
+                if (bit(actorPresent, 1)) actor.setName(in.string());
+                if (bit(actorPresent, 2)) actor.setImageUrl(in.string());
+                if (bit(actorPresent, 3)) actor.setTmdbId(in.varint());
+                actors.add(actor);
+            }
+        }
+        movie.setActors(actors);
+        Set<Genre> genres = new HashSet<>();
+        if (bit(present, 12)) {
+            int size = in.varintInt();
+            for (int i = 0; i < size; i++) {
+                long genrePresent = in.varint();
+                Genre genre = new Genre();
+                if (bit(genrePresent, 0)) genre.setId(in.varint());
+                if (bit(genrePresent, 1)) genre.setName(in.string());
+                genres.add(genre);
+            }
+        }
+        movie.setGenres(genres);
+        return movie;
+    }
+
+    // ------- framing -------
+
+    private static byte[] header(byte type, int flags, byte[] body, int length) {
+        byte[] out = new byte[HEADER_BYTES + length];
+        out[0] = MAGIC;
+        out[1] = VERSION;
+        out[2] = type;
+        out[3] = (byte) flags;
+        System.arraycopy(body, 0, out, HEADER_BYTES, length);
+        return out;
+    }
+
+    private static byte[] deflate(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Truncated deflate stream");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupt deflate stream", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean bit(long mask, int index) {
+        return (mask & (1L << index)) != 0;
+    }
+
+    private static final class Writer {
+        private byte[] buf = new byte[256];
+        private int pos;
+
+        void presence(Object... fields) {
+            long mask = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] != null) {
+                    mask |= 1L << i;
+                }
+            }
+            varint(mask);
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void zigzag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+
+        void float64(double value) {
+            ensure(8);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                buf[pos++] = (byte) (bits >>> (8 * i));
+            }
+        }
+
+        void string(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buf, pos, utf8.length);
+            pos += utf8.length;
+        }
+
+        // 0 = null, אחרת אורך + 1
+        void nullableString(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1L);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buf, pos, utf8.length);
+            pos += utf8.length;
+        }
+
+        int size() {
+            return pos;
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new SerializationException("Malformed varint");
+        }
+
+        int varintInt() {
+            long value = varint();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new SerializationException("Length out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        long zigzag() {
+            long raw = varint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        double float64() {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits |= (long) (next() & 0xFF) << (8 * i);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        String string() {
+            return utf8(varintInt());
+        }
+
+        String nullableString() {
+            int length = varintInt();
+            return length == 0 ? null : utf8(length - 1);
+        }
+
+        private String utf8(int length) {
+            if (pos + length > buf.length) {
+                throw new SerializationException("Truncated string");
+            }
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        private byte next() {
+            if (pos >= buf.length) {
+                throw new SerializationException("Truncated compact value");
+            }
+            return buf[pos++];
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package movieMentor.config;
+
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * שכבת HTTP משותפת לכל הקריאות החיצוניות (TMDB, OpenAI, Qdrant).
+ *
+ * One pooled, non-blocking client replaces the per-service RestTemplates: connections are
+ * kept alive and reused per host, responses are gzip-compressed, and HTTP/2 is negotiated
+ * over TLS where the server supports it (falling back to HTTP/1.1).
+ */
+@Configuration
+public class HttpClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientConfig.class);
+
+    @Value("${http.client.max-connections-per-host:50}")
+    private int maxConnectionsPerHost;
+
+    @Value("${http.client.pending-acquire-timeout-ms:10000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${http.client.max-idle-ms:30000}")
+    private long maxIdleMs;
+
+    @Value("${http.client.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    @Value("${http.client.http2-enabled:true}")
+    private boolean http2Enabled;
+
+    // תשובות embeddings של batch שלם יכולות להגיע לכמה MB
+    @Value("${http.client.max-in-memory-size-bytes:16777216}")
+    private int maxInMemorySize;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider outboundConnectionProvider() {
+        return ConnectionProvider.builder("outbound")
+                .maxConnections(maxConnectionsPerHost)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .evictInBackground(Duration.ofMillis(maxIdleMs))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient webClient(WebClient.Builder builder, ConnectionProvider outboundConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(outboundConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs))
+                .compress(true)
+                .keepAlive(true);
+        if (http2Enabled) {
+            // HTTP/2 נבחר ב-ALPN רק מול שרתי https; שאר החיבורים נשארים HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        logger.info("🌐 Outbound HTTP client: {} connections/host, connect {} ms, read {} ms, http2={}",
+                maxConnectionsPerHost, connectTimeoutMs, readTimeoutMs, http2Enabled);
+
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .exchangeStrategies(ExchangeStrategies.builder()
+                        .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                        .build())
+                .build();
+    }
+}
@@ -1,11 +1,14 @@
 package movieMentor.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+// מנקה את כל ה-caches בעלייה; כבוי כברירת מחדל כדי ש-deploy לא ימחק את ה-cache של שרתים אחרים
 @Component
+@ConditionalOnProperty(name = "cache.flush-on-startup", havingValue = "true")
 public class RedisCleaner {
 
     private final CacheManager cacheManager;
@@ -17,8 +17,8 @@ public class RedisConfig {
         template.setConnectionFactory(factory);
         template.setKeySerializer(new StringRedisSerializer());
 
-        // ✅ הסיריאלייזר הכי בטוח לשימוש עם DTO
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        // ✅ בינארי קומפקטי ל-MovieDTO/Movie, JSON (Generic Jackson) לכל השאר
+        CompactRedisSerializer serializer = new CompactRedisSerializer(new GenericJackson2JsonRedisSerializer());
 
         template.setValueSerializer(serializer);
         template.setHashKeySerializer(new StringRedisSerializer());
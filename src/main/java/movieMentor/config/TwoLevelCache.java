@@ -0,0 +1,164 @@
+package movieMentor.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Spring cache with an in-process L1 (Caffeine) in front of a shared L2 (Redis).
+ *
+ * Reads go L1 → L2, and an L2 hit is copied into L1. Writes and evictions go to L2 first,
+ * then to the local L1, and are then announced to the other nodes so they drop their L1
+ * copy. L1 entries also expire on their own TTL, which bounds staleness if an
+ * invalidation message is lost.
+ *
+ * L1 holds the value serialized with the L2 codec and every hit deserializes a fresh copy,
+ * so callers never share (or mutate) one instance – the "movies" caches hold JPA entities
+ * whose lazy collections must not leak across requests and threads.
+ */
+public class TwoLevelCache implements org.springframework.cache.Cache {
+
+    private final String name;
+    private final Cache<String, byte[]> l1;
+    private final org.springframework.cache.Cache l2;
+    private final SerializationPair<Object> codec;
+    // (cacheName, key או null לכל ה-cache) → הודעת invalidation לשאר השרתים
+    private final BiConsumer<String, String> invalidationPublisher;
+
+    final AtomicLong l1Hits = new AtomicLong();
+    final AtomicLong l2Hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    public TwoLevelCache(String name, Cache<String, byte[]> l1, org.springframework.cache.Cache l2,
+                         SerializationPair<Object> codec, BiConsumer<String, String> invalidationPublisher) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.codec = codec;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        byte[] local = l1.getIfPresent(localKey);
+        if (local != null) {
+            l1Hits.incrementAndGet();
+            return new SimpleValueWrapper(codec.read(ByteBuffer.wrap(local)));
+        }
+        ValueWrapper remote = l2.get(key);
+        if (remote != null && remote.get() != null) {
+            l2Hits.incrementAndGet();
+            l1.put(localKey, serialize(remote.get()));
+            return remote;
+        }
+        misses.incrementAndGet();
+        return remote;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            return (T) wrapper.get();
+        }
+        T value = l2.get(key, valueLoader);
+        if (value != null) {
+            l1.put(localKey(key), serialize(value));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) {
+            l1.put(localKey, serialize(value));
+        } else {
+            l1.invalidate(localKey);
+        }
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = l2.putIfAbsent(key, value);
+        String localKey = localKey(key);
+        if (existing == null || existing.get() == null) {
+            if (value != null) {
+                l1.put(localKey, serialize(value));
+            }
+            invalidationPublisher.accept(name, localKey);
+        } else {
+            l1.put(localKey, serialize(existing.get()));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2.evict(key);
+        String localKey = localKey(key);
+        l1.invalidate(localKey);
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        l1.invalidateAll();
+        invalidationPublisher.accept(name, null);
+    }
+
+    /**
+     * מוחק רק מה-L1 המקומי – נקרא כשמגיעה הודעת invalidation משרת אחר.
+     */
+    void invalidateLocal(String localKey) {
+        if (localKey == null) {
+            l1.invalidateAll();
+        } else {
+            l1.invalidate(localKey);
+        }
+    }
+
+    long localSize() {
+        return l1.estimatedSize();
+    }
+
+    private byte[] serialize(Object value) {
+        return ByteUtils.getBytes(codec.write(value));
+    }
+
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,127 @@
+package movieMentor.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CacheManager שעוטף את ה-RedisCacheManager ב-L1 מקומי לכל cache.
+ *
+ * Invalidations are broadcast on {@link #INVALIDATION_CHANNEL} as
+ * {@code nodeId|cacheName|key} ({@code *} clears the whole cache); each node drops the
+ * matching L1 entries and ignores its own messages. Hits per tier are exported as
+ * {@code cache.twolevel.gets{cache, tier=l1|l2|miss}}.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "cache:l1:invalidate";
+    private static final String ALL_KEYS = "*";
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private final CacheManager redisCacheManager;
+    private final TwoLevelCacheProperties properties;
+    private final StringRedisTemplate publisher;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final AtomicLong publishFailures = new AtomicLong();
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager, TwoLevelCacheProperties properties,
+                                StringRedisTemplate publisher, MeterRegistry meterRegistry) {
+        this.redisCacheManager = redisCacheManager;
+        this.properties = properties;
+        this.publisher = publisher;
+        this.meterRegistry = meterRegistry;
+        FunctionCounter.builder("cache.twolevel.invalidation.publish.failures", publishFailures, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (redisCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, cacheName -> create(cacheName, redisCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.invalidateLocal(ALL_KEYS.equals(parts[2]) ? null : parts[2]);
+        }
+    }
+
+    private TwoLevelCache create(String name, Cache redisCache) {
+        long maxSize = properties.maxSizeFor(name);
+        com.github.benmanes.caffeine.cache.Cache<String, byte[]> l1 = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(properties.ttlFor(name))
+                .build();
+        TwoLevelCache cache = new TwoLevelCache(name, l1, redisCache, codecFor(redisCache), this::publishInvalidation);
+
+        FunctionCounter.builder("cache.twolevel.gets", cache.l1Hits, AtomicLong::get)
+                .tag("cache", name).tag("tier", "l1").register(meterRegistry);
+        FunctionCounter.builder("cache.twolevel.gets", cache.l2Hits, AtomicLong::get)
+                .tag("cache", name).tag("tier", "l2").register(meterRegistry);
+        FunctionCounter.builder("cache.twolevel.gets", cache.misses, AtomicLong::get)
+                .tag("cache", name).tag("tier", "miss").register(meterRegistry);
+        Gauge.builder("cache.twolevel.l1.size", cache, TwoLevelCache::localSize)
+                .tag("cache", name).register(meterRegistry);
+
+        logger.info("🧊 L1 cache '{}' (max {} entries, ttl {})", name, maxSize, properties.ttlFor(name));
+        return cache;
+    }
+
+    // ב-L1 נשמרים אותם bytes שנכתבים ל-Redis (בינארי ל-COMPACT_CACHES, JSON לשאר)
+    private static SerializationPair<Object> codecFor(Cache redisCache) {
+        if (redisCache instanceof RedisCache) {
+            return ((RedisCache) redisCache).getCacheConfiguration().getValueSerializationPair();
+        }
+        return SerializationPair.fromSerializer(new JdkSerializationRedisSerializer());
+    }
+
+    private void publishInvalidation(String cacheName, String key) {
+        try {
+            publisher.convertAndSend(INVALIDATION_CHANNEL,
+                    nodeId + "|" + cacheName + "|" + (key == null ? ALL_KEYS : key));
+        } catch (Exception e) {
+            // ה-TTL של ה-L1 מגביל את זמן ה"התיישנות" גם אם ההודעה לא נשלחה
+            publishFailures.incrementAndGet();
+            logger.warn("⚠️ Failed to publish L1 invalidation for '{}': {}", cacheName, e.getMessage());
+        }
+    }
+}
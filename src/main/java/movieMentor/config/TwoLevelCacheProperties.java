@@ -0,0 +1,51 @@
+package movieMentor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * הגדרות ה-L1 (בזיכרון התהליך) שמול Redis, לכל שם cache.
+ *
+ * <pre>
+ * cache.l1.enabled=true
+ * cache.l1.defaults.max-size=1000
+ * cache.l1.defaults.ttl=5m
+ * cache.l1.caches.userRecommendations.ttl=30s
+ * </pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.l1")
+public class TwoLevelCacheProperties {
+
+    private boolean enabled = true;
+
+    private Spec defaults = new Spec();
+
+    private Map<String, Spec> caches = new HashMap<>();
+
+    @Data
+    public static class Spec {
+        private Long maxSize;
+        private Duration ttl;
+    }
+
+    public long maxSizeFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        if (spec != null && spec.getMaxSize() != null) {
+            return spec.getMaxSize();
+        }
+        return defaults.getMaxSize() != null ? defaults.getMaxSize() : 1000L;
+    }
+
+    public Duration ttlFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        if (spec != null && spec.getTtl() != null) {
+            return spec.getTtl();
+        }
+        return defaults.getTtl() != null ? defaults.getTtl() : Duration.ofMinutes(5);
+    }
+}
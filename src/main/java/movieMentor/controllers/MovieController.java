@@ -48,9 +48,9 @@ public class MovieController {
     @GetMapping("/search")
     @Cacheable(value = "search", key = "#query + ':' + (#page != null ? #page : 1)")
     public List<MovieDTO> searchMovies(@RequestParam String query, @RequestParam(required = false, defaultValue = "1") int page) {
-        List<MovieDTO> movies=MovieDTO.movieListToDtoList(tmdbService.searchMovies(query));
-        // אם ה-service תומך בעמודים, תעביר page; אם לא – השאר כך
-        logger.info("found movies ({}): [{}]", movies);
+        // חיפוש "רזה" – בלי טריילר/תמונות/שחקנים לכל תוצאה; הפרטים נטענים ב-/{id}
+        List<MovieDTO> movies=tmdbService.searchMovieDTOs(query, page);
+        logger.info("found movies ({}): [{}]", movies.size(), movies);
         return movies;
     }
     @ApiOperation(value = "Search for movies via TMDB API")
@@ -91,11 +91,11 @@ public class MovieController {
     }
 
 
-//    @ApiOperation(value = "Get movie by id from TMDB")
-//    @GetMapping("/{id}")
-//    public Movie getMovieById(@PathVariable long id) {
-//        Movie movie=tmdbService.getOrCreateMovieById(id);
-//        logger.info("fetch movie ({}): [{}]", movie);
-//        return movie;
-//    }
+    @ApiOperation(value = "Get movie by id from TMDB")
+    @GetMapping("/{id}")
+    public Movie getMovieById(@PathVariable long id) {
+        Movie movie=tmdbService.getOrCreateMovieById(id);
+        logger.info("fetch movie ({}): [{}]", movie.getId(), movie.getTitle());
+        return movie;
+    }
 }
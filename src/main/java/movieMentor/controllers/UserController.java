@@ -1,16 +1,27 @@
 package movieMentor.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import movieMentor.beans.MovieDTO;
+import movieMentor.dto.CursorPage;
+import movieMentor.dto.RecommendationJobStatus;
+import movieMentor.services.CandidateQuery;
+import movieMentor.services.RecommendationJobQueue;
 import movieMentor.services.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,6 +31,8 @@ public class UserController {
 
     private static final Logger log = LoggerFactory.getLogger(UserController.class);
     private final UserService userService;
+    private final RecommendationJobQueue recommendationJobQueue;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/favorites/{title}")
     public ResponseEntity<String> addFavorite(@PathVariable String title, Authentication auth) {
@@ -68,8 +81,81 @@ public ResponseEntity<List<MovieDTO>> getRecommendations(Authentication auth) {
         return ResponseEntity.status(500).body(Collections.emptyList());
     }
 }
+    // חיפוש במאגר המועמדים לפי הטעם של המשתמש: genres = מזהי TMDB (לפחות אחד), q = מילות מפתח ב-overview
+    @GetMapping("/recommendations/search")
+    public ResponseEntity<List<MovieDTO>> searchRecommendations(@RequestParam(required = false) Set<Integer> genres,
+                                                                @RequestParam(required = false) Integer yearFrom,
+                                                                @RequestParam(required = false) Integer yearTo,
+                                                                @RequestParam(required = false) Integer minVotes,
+                                                                @RequestParam(required = false) String q,
+                                                                @RequestParam(defaultValue = "20") int limit,
+                                                                Authentication auth) {
+        CandidateQuery query = CandidateQuery.builder()
+                .genreIds(genres)
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .minVotes(minVotes)
+                .keywords(q)
+                .build();
+        return ResponseEntity.ok(userService.searchCandidates(auth.getName(), query, limit));
+    }
+
+    // מצב החישוב ברקע – הרשימה הקודמת ממשיכה להיות מוגשת עד שהוא מסתיים
+    @GetMapping("/recommendations/status")
+    public ResponseEntity<RecommendationJobStatus> getRecommendationStatus(Authentication auth) {
+        return ResponseEntity.ok(recommendationJobQueue.getStatus(auth.getName()));
+    }
+
+    // דפדוף keyset: מעבירים את nextCursor מהעמוד הקודם; limit מוגבל ל-api.pagination.max-page-size
     @GetMapping("/favorites")
-    public ResponseEntity<List<MovieDTO>> getFavorites(Authentication auth){
-        return ResponseEntity.ok(userService.getFavorites(auth.getName()));
+    public ResponseEntity<CursorPage<MovieDTO>> getFavorites(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "20") int limit,
+                                                             Authentication auth) {
+        try {
+            return ResponseEntity.ok(userService.getFavoritesPage(auth.getName(), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<CursorPage<MovieDTO>> getHistory(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "20") int limit,
+                                                           Authentication auth) {
+        try {
+            return ResponseEntity.ok(userService.getHistoryPage(auth.getName(), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // ייצוא מלא כ-NDJSON (שורת JSON לכל סרט) – נכתב לתגובה עמוד אחרי עמוד, בלי לבנות את כל הרשימה
+    @GetMapping(value = "/favorites/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFavorites(Authentication auth) {
+        String username = auth.getName();
+        return ndjson(out -> writeNdjson(out, cursor -> userService.getFavoritesPage(username, cursor, Integer.MAX_VALUE)));
+    }
+
+    @GetMapping(value = "/history/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportHistory(Authentication auth) {
+        String username = auth.getName();
+        return ndjson(out -> writeNdjson(out, cursor -> userService.getHistoryPage(username, cursor, Integer.MAX_VALUE)));
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeNdjson(OutputStream out, Function<String, CursorPage<MovieDTO>> pages) throws IOException {
+        String cursor = null;
+        do {
+            CursorPage<MovieDTO> page = pages.apply(cursor);
+            for (MovieDTO movie : page.getItems()) {
+                out.write(objectMapper.writeValueAsBytes(movie));
+                out.write('\n');
+            }
+            out.flush();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
     }
 }
@@ -0,0 +1,18 @@
+package movieMentor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * עמוד אחד של רשימה בדפדוף keyset; {@code nextCursor} הוא null בעמוד האחרון.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
@@ -0,0 +1,16 @@
+package movieMentor.dto;
+
+/**
+ * שורת הטלה: סרט מועדף אחד של משתמש, עם עמודות ה-DTO בלבד.
+ */
+public interface FavoriteMovieRow {
+    Long getUserId();
+
+    Long getMovieId();
+
+    String getTitle();
+
+    String getPosterUrl();
+
+    Double getVoteAverage();
+}
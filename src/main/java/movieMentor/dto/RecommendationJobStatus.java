@@ -0,0 +1,22 @@
+package movieMentor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecommendationJobStatus {
+    // IDLE / QUEUED / RUNNING
+    private String state;
+    // הוזנו שינויים נוספים בזמן ריצה – יהיה חישוב נוסף מיד אחרי הנוכחי
+    private boolean pendingRerun;
+    private Long lastCompletedAt;
+    private Long lastDurationMs;
+    private boolean lastSucceeded;
+    // קוד קבוע (RECOMPUTE_FAILED) – פרטי החריגה נמצאים בלוג בלבד
+    private String lastError;
+}
@@ -0,0 +1,17 @@
+package movieMentor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * מה שצריך לאימות בלבד – בלי מועדפים, היסטוריה והמלצות.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCredentials {
+    private Long id;
+    private String username;
+    private String password;
+}
@@ -0,0 +1,20 @@
+package movieMentor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserVectorPoint {
+    // מזהה המשתמש (users.id) – נשלח ל-Qdrant כמספר כשאפשר
+    private String userId;
+    private float[] vector;
+    // username, favorite_count, watch_history_count
+    private Map<String, Object> payload;
+}
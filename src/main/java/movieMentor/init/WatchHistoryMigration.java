@@ -0,0 +1,110 @@
+package movieMentor.init;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import movieMentor.beans.User;
+import movieMentor.beans.WatchEvent;
+import movieMentor.repository.UserRepository;
+import movieMentor.repository.WatchEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * העברה חד-פעמית של היסטוריית הצפייה מעמודת ה-JSON הישנה (user_watch_history) ל-watch_events.
+ *
+ * Runs before the other startup runners. Each user is moved in its own transaction and the
+ * JSON rows are cleared in the same transaction, so a restart after a failure picks up the
+ * remaining users and never duplicates events. The old entries carry no timestamp; they get
+ * one second apart, ending at migration time, to keep their order.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class WatchHistoryMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchHistoryMigration.class);
+
+    private final UserRepository userRepository;
+    private final WatchEventRepository watchEventRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    public void run(String... args) {
+        List<Long> userIds = userRepository.findIdsWithLegacyWatchHistory();
+        if (userIds.isEmpty()) {
+            return;
+        }
+        logger.info("🚚 Migrating JSON watch history of {} users to watch_events", userIds.size());
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int migrated = 0;
+        for (Long userId : userIds) {
+            try {
+                Integer events = transaction.execute(status -> migrateUser(userId));
+                migrated += events != null ? events : 0;
+            } catch (RuntimeException e) {
+                logger.error("❌ Failed to migrate watch history of user {}: {}", userId, e.getMessage());
+            }
+        }
+        logger.info("✅ Migrated {} watch history entries", migrated);
+    }
+
+    private int migrateUser(Long userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null || user.getWatchHistoryJson().isEmpty()) {
+            return 0;
+        }
+
+        List<MovieDTO> movies = new ArrayList<>();
+        for (String json : user.getWatchHistoryJson()) {
+            MovieDTO movie = parse(json);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+
+        long ordinal = watchEventRepository.findTopByUserIdOrderByOrdinalDesc(userId)
+                .map(WatchEvent::getOrdinal).orElse(0L);
+        Instant now = Instant.now();
+        List<WatchEvent> events = new ArrayList<>(movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            events.add(WatchEvent.of(userId, movies.get(i), ++ordinal, now.minusSeconds(movies.size() - 1 - i)));
+        }
+        watchEventRepository.saveAll(events);
+
+        user.getWatchHistoryJson().clear();
+        userRepository.save(user);
+        return events.size();
+    }
+
+    // קוראים את השדות ישירות: setPosterUrl של MovieDTO היה מוסיף שוב את ה-base URL
+    private MovieDTO parse(String json) {
+        if (json == null || json.isEmpty()) return null;
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            if (!node.hasNonNull("id")) return null;
+            return new MovieDTO(
+                    node.get("id").asLong(),
+                    node.path("title").asText(null),
+                    node.path("posterUrl").asText(null),
+                    node.hasNonNull("voteAverage") ? node.get("voteAverage").asDouble() : null,
+                    null);
+        } catch (Exception e) {
+            logger.warn("⚠️ Skipping malformed watch history entry: {}", e.getMessage());
+            return null;
+        }
+    }
+}
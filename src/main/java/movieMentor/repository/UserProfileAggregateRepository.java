@@ -0,0 +1,20 @@
+package movieMentor.repository;
+
+import movieMentor.beans.UserProfileAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface UserProfileAggregateRepository extends JpaRepository<UserProfileAggregate, Long> {
+
+    // נעילת שורה: שני עדכונים במקביל לאותו משתמש לא ידרסו זה את זה
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from UserProfileAggregate a where a.userId = :userId")
+    Optional<UserProfileAggregate> findForUpdate(@Param("userId") Long userId);
+}
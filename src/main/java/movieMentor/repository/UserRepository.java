@@ -1,8 +1,18 @@
 package movieMentor.repository; // החבילה שבה נשמור את כל מחלקות הגישה למסד (repositories)
+import movieMentor.beans.MovieDTO;
 import movieMentor.beans.User; // ✅ זה ה-import שצריך
+import movieMentor.dto.FavoriteMovieRow;
+import movieMentor.dto.UserCredentials;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository; // ממשק בסיסי של Spring לגישה למסד
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository; // מסמן ל-Spring שהממשק הזה הוא bean של repository
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository // הופך את הממשק ל־Component שנטען על ידי Spring – מוכן להזרקה
@@ -22,4 +32,38 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByUsernameOrEmail(String username, String email);
 
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    // נעילת שורת המשתמש: הוספות מקבילות להיסטוריה מקבלות ordinal עוקב ולא מתנגשות
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.username = :username")
+    Optional<User> findForUpdateByUsername(@Param("username") String username);
+
+    // keyset על מזהה הסרט – עמוד מועדפים בלי לטעון את כל הרשימה ואת ישויות Movie
+    @Query("select new movieMentor.beans.MovieDTO(m.id, m.title, m.posterUrl, m.voteAverage) " +
+            "from User u join u.favoriteMovies m " +
+            "where u.username = :username and m.id > :afterId order by m.id")
+    List<MovieDTO> findFavoritePage(@Param("username") String username, @Param("afterId") long afterId, Pageable pageable);
+
+    // כל המועדפים של קבוצת משתמשים בשאילתה אחת (משתמשים דומים) – בלי לטעון User או Movie
+    @Query("select u.id as userId, m.id as movieId, m.title as title, " +
+            "m.posterUrl as posterUrl, m.voteAverage as voteAverage " +
+            "from User u join u.favoriteMovies m where u.id in :userIds")
+    List<FavoriteMovieRow> findFavoriteMoviesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // רשימת ההמלצות לפי הסדר השמור, רק עמודות ה-DTO
+    @Query("select new movieMentor.beans.MovieDTO(r.id, r.title, r.posterUrl, r.voteAverage) " +
+            "from User u join u.recommendedMovies r where u.username = :username order by index(r)")
+    List<MovieDTO> findRecommendationsByUsername(@Param("username") String username);
+
+    // בדיקת JWT בכל בקשה – רק שם משתמש וסיסמה
+    @Query("select new movieMentor.dto.UserCredentials(u.id, u.username, u.password) " +
+            "from User u where u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+    // משתמשים שעדיין יש להם היסטוריה בעמודת ה-JSON הישנה (WatchHistoryMigration)
+    @Query("select u.id from User u where u.watchHistoryJson is not empty")
+    List<Long> findIdsWithLegacyWatchHistory();
+
 }
@@ -0,0 +1,39 @@
+package movieMentor.repository;
+
+import movieMentor.beans.WatchEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WatchEventRepository extends JpaRepository<WatchEvent, Long> {
+
+    // הצפייה האחרונה – לדה-דופליקציה ולמספר הסידורי הבא
+    Optional<WatchEvent> findTopByUserIdOrderByOrdinalDesc(Long userId);
+
+    // keyset: עמוד הבא לפני ordinal נתון, מהחדש לישן
+    List<WatchEvent> findByUserIdAndOrdinalLessThanOrderByOrdinalDesc(Long userId, long ordinal, Pageable pageable);
+
+    // N הצפיות האחרונות, מהחדש לישן
+    List<WatchEvent> findByUserIdOrderByOrdinalDesc(Long userId, Pageable pageable);
+
+    long countByUserId(Long userId);
+
+    @Query("select distinct e.movieId from WatchEvent e where e.userId = :userId")
+    List<Long> findWatchedMovieIds(@Param("userId") Long userId);
+
+    // N הצפיות האחרונות, מהישן לחדש
+    default List<WatchEvent> findRecent(Long userId, int limit) {
+        List<WatchEvent> events = new ArrayList<>(findByUserIdOrderByOrdinalDesc(userId, PageRequest.of(0, limit)));
+        Collections.reverse(events);
+        return events;
+    }
+}
@@ -1,17 +1,25 @@
 package movieMentor.security;
 
-import lombok.AllArgsConstructor;
 import movieMentor.beans.User;
+import movieMentor.dto.UserCredentials;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
 import java.util.Collections;
 
-@AllArgsConstructor
 public class UserDetailsImpl implements UserDetails {
 
-    private final User user;
+    // רק מה שהאימות צריך – לא מחזיקים את ישות User (ואת האוספים הלא-טעונים שלה) ב-SecurityContext
+    private final UserCredentials credentials;
+
+    public UserDetailsImpl(User user) {
+        this(new UserCredentials(user.getId(), user.getUsername(), user.getPassword()));
+    }
+
+    public UserDetailsImpl(UserCredentials credentials) {
+        this.credentials = credentials;
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -20,12 +28,12 @@ public class UserDetailsImpl implements UserDetails {
 
     @Override
     public String getPassword() {
-        return user.getPassword(); // מחזיר את הסיסמה המוצפנת
+        return credentials.getPassword(); // מחזיר את הסיסמה המוצפנת
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername(); // משמש ל-Authentication
+        return credentials.getUsername(); // משמש ל-Authentication
     }
 
     @Override
@@ -48,7 +56,7 @@ public class UserDetailsImpl implements UserDetails {
         return true; // כל המשתמשים פעילים
     }
 
-    public User getUser() {
-        return user;
+    public Long getUserId() {
+        return credentials.getId();
     }
 }
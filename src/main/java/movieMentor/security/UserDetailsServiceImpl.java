@@ -28,4 +28,15 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                         new UsernameNotFoundException("User not found with username or email: " + input)
                 );
     }
+
+    /**
+     * טעינה קלה לפי שם משתמש בלבד, עבור {@link JwtAuthFilter} שרץ בכל בקשה.
+     *
+     * @throws UsernameNotFoundException if no user has this username
+     */
+    public UserDetails loadByUsernameForToken(String username) throws UsernameNotFoundException {
+        return userRepository.findCredentialsByUsername(username)
+                .map(UserDetailsImpl::new)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    }
 }
@@ -0,0 +1,92 @@
+package movieMentor.services;
+
+import movieMentor.beans.MovieDTO;
+import movieMentor.utils.Bm25Index;
+import movieMentor.utils.CandidateColumns;
+import movieMentor.utils.CandidatePoolSnapshot;
+import movieMentor.utils.VectorIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * גרסה אחת, בלתי משתנה, של מאגר המועמדים: האינדקס הווקטורי, הסרטים שבו, עמודות
+ * המטא־דאטה לסינון ואינדקס BM25 על ה-overview.
+ *
+ * Row {@code i} of {@link #index()}, {@link #columns()} and {@link #lexical()} is
+ * {@code movies().get(i)}.
+ *
+ * Built off to the side by {@link CandidatePoolManager} and published with a single
+ * reference swap, so a reader that took a pool keeps a consistent index/DTO pair for the
+ * whole search even if a refresh publishes a newer one meanwhile. Nothing upserts into
+ * {@link #index()} after publication.
+ */
+public final class CandidatePool {
+
+    private final VectorIndex index;
+    private final Map<Long, CandidatePoolSnapshot.Entry> entries;
+    private final List<MovieDTO> movies;
+    private final CandidateColumns columns;
+    private final Bm25Index lexical;
+    private final long builtAt;
+
+    /**
+     * @param entries the movies held by {@code index}, in row order (row {@code i} was the {@code i}-th insert)
+     */
+    CandidatePool(VectorIndex index, List<CandidatePoolSnapshot.Entry> entries, long builtAt) {
+        Map<Long, CandidatePoolSnapshot.Entry> byId = new LinkedHashMap<>(entries.size() * 2);
+        List<MovieDTO> movieList = new ArrayList<>(entries.size());
+        List<String> overviews = new ArrayList<>(entries.size());
+        for (CandidatePoolSnapshot.Entry entry : entries) {
+            byId.put(entry.getMovie().getId(), entry);
+            movieList.add(entry.getMovie());
+            overviews.add(entry.getMovie().getOverview());
+        }
+        this.index = index;
+        this.entries = Collections.unmodifiableMap(byId);
+        this.movies = Collections.unmodifiableList(movieList);
+        this.columns = new CandidateColumns(entries);
+        this.lexical = new Bm25Index(overviews);
+        this.builtAt = builtAt;
+    }
+
+    public VectorIndex index() {
+        return index;
+    }
+
+    /**
+     * @return the DTO of a pooled movie, or null
+     */
+    public MovieDTO movie(long id) {
+        CandidatePoolSnapshot.Entry entry = entries.get(id);
+        return entry != null ? entry.getMovie() : null;
+    }
+
+    public List<MovieDTO> movies() {
+        return movies;
+    }
+
+    public CandidateColumns columns() {
+        return columns;
+    }
+
+    public Bm25Index lexical() {
+        return lexical;
+    }
+
+    Collection<CandidatePoolSnapshot.Entry> entries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    public long builtAt() {
+        return builtAt;
+    }
+}
@@ -0,0 +1,356 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import movieMentor.enums.TopMoviesData;
+import movieMentor.models.MovieSearchResponse;
+import movieMentor.models.TmdbMovie;
+import movieMentor.utils.CandidatePoolSnapshot;
+import movieMentor.utils.MovieVectorIndex;
+import movieMentor.utils.QuantizedVectorIndex;
+import movieMentor.utils.VectorIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * מנהל את מאגר סרטי המועמדים להמלצות הווקטוריות.
+ *
+ * Readers take {@link #current()} and search it without locking. A refresh, every
+ * {@code embedding.candidates.refresh-interval-ms} on its own thread, pages through the
+ * configured TMDB list/discover endpoints plus the {@link TopMoviesData} titles, merges them
+ * into the previous pool, evicts movies not listed for {@code max-age-days} and then the
+ * least popular beyond {@code max-size}, embeds only the movies that have no stored
+ * embedding yet (in batches), and builds a new index next to the old one before swapping
+ * the reference. The old and the new index are both in memory for the length of the build.
+ *
+ * The pool is also written to a {@link CandidatePoolSnapshot} after each refresh and read
+ * back at startup, so a restart serves the last pool without calling TMDB or OpenAI.
+ */
+@Service
+@RequiredArgsConstructor
+public class CandidatePoolManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(CandidatePoolManager.class);
+    private static final int EMBEDDING_DIMENSION = 1536; // ברירת מחדל עבור text-embedding-3-small וגם ada-002
+    // סרטי ה-enum נבחרו ידנית – לא נפלטים בגלל פופולריות
+    private static final double PINNED_POPULARITY = Double.MAX_VALUE;
+
+    private final TmdbService tmdbService;
+    private final EmbeddingService embeddingService;
+    private final EmbeddingStorageService embeddingStorageService;
+
+    private final AtomicReference<CandidatePool> current = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private ScheduledExecutorService refreshExecutor;
+
+    // int8 במקום float בסריקת המועמדים (פי 4 פחות זיכרון), עם דירוג מחדש מדויק ל-rerank-depth הראשונים
+    @Value("${embedding.quantization.enabled:false}")
+    private boolean quantizationEnabled;
+
+    @Value("${embedding.quantization.rerank-depth:200}")
+    private int rerankDepth;
+
+    @Value("${embedding.candidates.snapshot-path:data/candidate-pool.bin}")
+    private String snapshotPath;
+
+    @Value("${embedding.candidates.refresh-on-startup:true}")
+    private boolean refreshOnStartup;
+
+    @Value("${embedding.candidates.refresh-interval-ms:21600000}")
+    private long refreshIntervalMs;
+
+    @Value("${embedding.candidates.sources:/movie/popular,/movie/top_rated,/movie/now_playing,/movie/upcoming}")
+    private String[] sources;
+
+    @Value("${embedding.candidates.pages-per-source:25}")
+    private int pagesPerSource;
+
+    @Value("${embedding.candidates.max-size:20000}")
+    private int maxSize;
+
+    @Value("${embedding.candidates.max-age-days:14}")
+    private int maxAgeDays;
+
+    @Value("${embedding.candidates.embed-batch-size:256}")
+    private int embedBatchSize;
+
+    @PostConstruct
+    public void init() {
+        current.set(new CandidatePool(newIndex(0), Collections.<CandidatePoolSnapshot.Entry>emptyList(), 0L));
+        loadSnapshot();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRefreshing() {
+        logger.info("✅ Candidate pool ready with {} movies ({} index)", current().size(),
+                quantizationEnabled ? "int8" : "float");
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "candidate-pool-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(60_000L, refreshIntervalMs);
+        refreshExecutor.scheduleWithFixedDelay(this::refresh, refreshOnStartup ? 0L : interval, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * הגרסה הנוכחית של המאגר – לעולם לא null ולא נחסמת בזמן רענון.
+     */
+    public CandidatePool current() {
+        return current.get();
+    }
+
+    /**
+     * מושך את רשימות ה-TMDB, מעדכן את המאגר ומפרסם גרסה חדשה; רענון שכבר רץ גורם לדילוג.
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            logger.info("ℹ️ Candidate pool refresh already running – skipping");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            CandidatePool previous = current.get();
+            Map<Long, CandidatePoolSnapshot.Entry> merged = new LinkedHashMap<>();
+            for (CandidatePoolSnapshot.Entry entry : previous.entries()) {
+                merged.put(entry.getMovie().getId(), entry);
+            }
+
+            int listed = 0;
+            for (String source : sources) {
+                if (!source.trim().isEmpty()) {
+                    listed += fetchSource(source.trim(), start, merged);
+                }
+            }
+            listed += fetchTopMovies(start, merged);
+
+            List<CandidatePoolSnapshot.Entry> kept = evict(merged.values(), start);
+            int embedded = embedMissing(kept);
+            CandidatePool pool = build(kept);
+            current.set(pool);
+
+            logger.info("✅ Candidate pool refreshed in {} ms: {} listed, {} newly embedded, {} -> {} movies",
+                    System.currentTimeMillis() - start, listed, embedded, previous.size(), pool.size());
+            writeSnapshot(pool);
+        } catch (Exception e) {
+            logger.error("❌ Error while refreshing movie candidates", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    // עמוד אחרי עמוד עד pages-per-source או עד סוף הרשימה
+    private int fetchSource(String source, long now, Map<Long, CandidatePoolSnapshot.Entry> merged) {
+        int listed = 0;
+        for (int page = 1; page <= pagesPerSource; page++) {
+            MovieSearchResponse response = tmdbService.getMovieListPage(source, page);
+            if (response == null || response.getResults() == null || response.getResults().isEmpty()) {
+                break;
+            }
+            List<TmdbMovie> results = response.getResults();
+            List<MovieDTO> movies = MovieDTO.TMDBmovieListToDtoList(results);
+            for (int i = 0; i < results.size(); i++) {
+                TmdbMovie result = results.get(i);
+                CandidatePoolSnapshot.Entry previous = merged.get(result.getId());
+                double popularity = previous != null && previous.getPopularity() == PINNED_POPULARITY
+                        ? PINNED_POPULARITY : result.getPopularity();
+                merged.put(result.getId(), new CandidatePoolSnapshot.Entry(movies.get(i), popularity, now,
+                        genreIds(result), releaseYear(result.getReleaseDate()), result.getVoteCount()));
+            }
+            listed += results.size();
+            if (page >= response.getTotal_pages()) {
+                break;
+            }
+        }
+        logger.info("📥 Listed {} movies from {}", listed, source);
+        return listed;
+    }
+
+    private int fetchTopMovies(long now, Map<Long, CandidatePoolSnapshot.Entry> merged) {
+        List<String> titles = new ArrayList<>();
+        for (TopMoviesData movieData : TopMoviesData.values()) {
+            titles.add(movieData.getTitle());
+        }
+        List<MovieDTO> resolved = tmdbService.resolveTitles(titles);
+        int listed = 0;
+        for (int i = 0; i < resolved.size(); i++) {
+            MovieDTO movie = resolved.get(i);
+            if (movie == null || movie.getId() == null) {
+                logger.warn("❌ Could not retrieve movie from TMDB for enum entry: {}", titles.get(i));
+                continue;
+            }
+            // למטא־דאטה (ז'אנרים, שנה, הצבעות) אין מקור כאן – נשמרת זו שהגיעה מרשימת TMDB, אם הייתה
+            CandidatePoolSnapshot.Entry previous = merged.get(movie.getId());
+            merged.put(movie.getId(), previous != null
+                    ? previous.withSeen(movie, PINNED_POPULARITY, now)
+                    : new CandidatePoolSnapshot.Entry(movie, PINNED_POPULARITY, now));
+            listed++;
+        }
+        return listed;
+    }
+
+    private static int[] genreIds(TmdbMovie movie) {
+        List<Integer> ids = movie.getGenreIds();
+        if (ids == null) {
+            return new int[0];
+        }
+        return ids.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).toArray();
+    }
+
+    // "YYYY-MM-DD" -> שנה; 0 כשאין תאריך
+    private static int releaseYear(String releaseDate) {
+        if (releaseDate == null || releaseDate.length() < 4) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(releaseDate.substring(0, 4));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private List<CandidatePoolSnapshot.Entry> evict(Iterable<CandidatePoolSnapshot.Entry> entries, long now) {
+        long cutoff = now - TimeUnit.DAYS.toMillis(Math.max(1, maxAgeDays));
+        List<CandidatePoolSnapshot.Entry> kept = new ArrayList<>();
+        int stale = 0;
+        for (CandidatePoolSnapshot.Entry entry : entries) {
+            if (entry.getSeenAt() >= cutoff) {
+                kept.add(entry);
+            } else {
+                stale++;
+            }
+        }
+        int unpopular = 0;
+        if (kept.size() > maxSize) {
+            kept.sort(Comparator.comparingDouble(CandidatePoolSnapshot.Entry::getPopularity).reversed());
+            unpopular = kept.size() - maxSize;
+            kept = new ArrayList<>(kept.subList(0, maxSize));
+        }
+        if (stale > 0 || unpopular > 0) {
+            logger.info("🧹 Evicted {} stale and {} least popular candidates", stale, unpopular);
+        }
+        return kept;
+    }
+
+    // רק סרטים שאין להם embedding שמור נשלחים ל-OpenAI, במנות של embed-batch-size
+    private int embedMissing(List<CandidatePoolSnapshot.Entry> entries) {
+        List<MovieDTO> toEmbed = new ArrayList<>();
+        for (CandidatePoolSnapshot.Entry entry : entries) {
+            MovieDTO movie = entry.getMovie();
+            if (embeddingStorageService.hasEmbedding(movie.getId())) continue;
+            String overview = movie.getOverview();
+            if (overview != null && !overview.trim().isEmpty()) {
+                toEmbed.add(movie);
+            }
+        }
+
+        int embedded = 0;
+        int batchSize = Math.max(1, embedBatchSize);
+        for (int from = 0; from < toEmbed.size(); from += batchSize) {
+            List<MovieDTO> batch = toEmbed.subList(from, Math.min(toEmbed.size(), from + batchSize));
+            List<float[]> embeddings = embeddingService.getEmbeddings(
+                    batch.stream().map(MovieDTO::getOverview).collect(Collectors.toList()));
+            for (int i = 0; i < batch.size() && i < embeddings.size(); i++) {
+                float[] embedding = embeddings.get(i);
+                if (embedding != null && embedding.length == EMBEDDING_DIMENSION) {
+                    embeddingStorageService.addEmbedding(batch.get(i).getId(), batch.get(i).getOverview(), embedding);
+                    embedded++;
+                } else {
+                    logger.warn("⚠️ Invalid or empty embedding for movie '{}'. Skipped.", batch.get(i).getTitle());
+                }
+            }
+            logger.info("🧠 Embedded {}/{} new candidates", Math.min(toEmbed.size(), from + batchSize), toEmbed.size());
+        }
+        return embedded;
+    }
+
+    // סרט בלי embedding תקין לא נכנס לאינדקס ולא למאגר
+    private CandidatePool build(List<CandidatePoolSnapshot.Entry> entries) {
+        VectorIndex index = newIndex(entries.size());
+        List<CandidatePoolSnapshot.Entry> indexed = new ArrayList<>(entries.size());
+        for (CandidatePoolSnapshot.Entry entry : entries) {
+            if (index.upsert(entry.getMovie().getId(), embeddingStorageService.getEmbedding(entry.getMovie().getId()))) {
+                indexed.add(entry);
+            }
+        }
+        return new CandidatePool(index, indexed, System.currentTimeMillis());
+    }
+
+    private VectorIndex newIndex(int capacity) {
+        return quantizationEnabled
+                ? new QuantizedVectorIndex(EMBEDDING_DIMENSION, rerankDepth, embeddingStorageService::getEmbedding)
+                : new MovieVectorIndex(EMBEDDING_DIMENSION, Math.max(1, capacity));
+    }
+
+    // טעינה מהדיסק בלבד – בלי TMDB ובלי OpenAI, כך שעליית השרת לא תלויה בהם
+    private void loadSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            logger.info("ℹ️ No candidate pool snapshot at '{}' – the pool fills on the background refresh", path);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        VectorIndex index = newIndex(0);
+        List<CandidatePoolSnapshot.Entry> entries = new ArrayList<>();
+        try {
+            long writtenAt = CandidatePoolSnapshot.read(path, EMBEDDING_DIMENSION, (entry, vector) -> {
+                Long id = entry.getMovie().getId();
+                // גם ל-store, כדי שהדירוג המדויק והרענון הבא ימצאו את הווקטור
+                if (!embeddingStorageService.hasEmbedding(id)) {
+                    embeddingStorageService.addEmbedding(id, entry.getMovie().getOverview(), vector);
+                }
+                if (index.upsert(id, vector)) {
+                    entries.add(entry);
+                }
+            });
+            current.set(new CandidatePool(index, entries, writtenAt));
+            logger.info("⚡ Loaded {} movie candidates from snapshot '{}' (written {}) in {} ms",
+                    entries.size(), path, Instant.ofEpochMilli(writtenAt), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("⚠️ Ignoring candidate pool snapshot '{}': {}", path, e.getMessage());
+        }
+    }
+
+    private void writeSnapshot(CandidatePool pool) {
+        try {
+            CandidatePoolSnapshot.write(Paths.get(snapshotPath), EMBEDDING_DIMENSION,
+                    new ArrayList<>(pool.entries()), embeddingStorageService::getEmbedding);
+            logger.info("💾 Wrote candidate pool snapshot with {} movies to '{}'", pool.size(), snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            logger.error("❌ Failed to write candidate pool snapshot '{}': {}", snapshotPath, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package movieMentor.services;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * סינון וחיפוש מילות מפתח על מאגר המועמדים, לצד וקטור המשתמש.
+ *
+ * Every criterion is optional. Filters are applied as a row bitset before any vector is
+ * scored; movies whose metadata is unknown (e.g. no release date) do not pass a filter on
+ * that field.
+ */
+@Getter
+@Builder
+public class CandidateQuery {
+    // מזהי ז'אנר של TMDB (GenreEnum); סרט מתאים אם יש לו לפחות אחד מהם
+    private final Set<Integer> genreIds;
+    private final Integer yearFrom;
+    private final Integer yearTo;
+    private final Integer minVotes;
+    // מילות מפתח ל-BM25 על ה-overview; ריק = דמיון וקטורי בלבד
+    private final String keywords;
+
+    public boolean hasKeywords() {
+        return keywords != null && !keywords.trim().isEmpty();
+    }
+
+    public int[] getGenreIdArray() {
+        return genreIds == null ? null : genreIds.stream().filter(id -> id != null).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,117 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import movieMentor.dto.FavoriteMovieRow;
+import movieMentor.repository.UserRepository;
+import movieMentor.utils.LongDoubleHashMap;
+import movieMentor.utils.TopKSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * דירוג סרטים לפי המועדפים של משתמשים דומים (collaborative filtering).
+ *
+ * Every favourite of a similar user is a vote for that movie, weighted by the user's
+ * similarity score from the {@link UserVectorIndex}. Votes are summed per movie id in a
+ * primitive map, movies the user already favourited or watched are skipped, and the best
+ * {@code k} are picked with a bounded heap. The returned DTOs are built from the favourite
+ * rows themselves (one query for all similar users), so no TMDB title search is involved.
+ * They are plain, unsaved DTOs: this runs inside a pipeline source that may be cancelled,
+ * so the movie_dto_cache rows are written by the recompute's save transaction instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class CollaborativeFilteringEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CollaborativeFilteringEngine.class);
+
+    private final UserRepository userRepository;
+
+    /**
+     * @param userId           the user being recommended for; skipped if it shows up among the similar users
+     * @param similarUsers     hits from {@link UserVectorIndex#findSimilar} ({@code user_id}, {@code score})
+     * @param excludedMovieIds movies the user already has
+     * @return at most {@code k} movies, best first
+     */
+    public List<MovieDTO> recommend(Long userId, List<Map<String, Object>> similarUsers,
+                                    Set<Long> excludedMovieIds, int k) {
+        if (k <= 0 || similarUsers == null || similarUsers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 1) משקל לכל משתמש דומה = ציון הדמיון שלו
+        LongDoubleHashMap userWeights = new LongDoubleHashMap(similarUsers.size());
+        for (Map<String, Object> hit : similarUsers) {
+            Long similarId = parseUserId(hit.get("user_id"));
+            if (similarId == null || similarId.equals(userId)) continue;
+            Object score = hit.get("score");
+            double weight = score instanceof Number ? ((Number) score).doubleValue() : 1.0;
+            if (weight > 0) {
+                userWeights.put(similarId, Math.max(weight, userWeights.get(similarId, 0)));
+            }
+        }
+        if (userWeights.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> userIds = new ArrayList<>(userWeights.size());
+        for (int slot = userWeights.nextSlot(-1); slot >= 0; slot = userWeights.nextSlot(slot)) {
+            userIds.add(userWeights.keyAt(slot));
+        }
+        List<FavoriteMovieRow> rows = userRepository.findFavoriteMoviesByUserIds(userIds);
+
+        // 2) סכום הצבעות משוקלל לכל סרט
+        Set<Long> excluded = excludedMovieIds != null ? excludedMovieIds : Collections.<Long>emptySet();
+        LongDoubleHashMap votes = new LongDoubleHashMap(rows.size());
+        for (FavoriteMovieRow row : rows) {
+            Long movieId = row.getMovieId();
+            if (movieId == null || excluded.contains(movieId)) continue;
+            votes.addTo(movieId, userWeights.get(row.getUserId(), 0));
+        }
+
+        // 3) top-K בערימה חסומה
+        long[] topIds = new long[k];
+        float[] topScores = new float[k];
+        int found = 0;
+        for (int slot = votes.nextSlot(-1); slot >= 0; slot = votes.nextSlot(slot)) {
+            found = TopKSelector.offer(topIds, topScores, found, k, votes.keyAt(slot), (float) votes.valueAt(slot));
+        }
+        TopKSelector.sortDescending(topIds, topScores, found);
+
+        // 4) DTO מתוך השורות שכבר נקראו, לפי סדר הדירוג
+        Map<Long, Integer> rankById = new HashMap<>(found * 2);
+        for (int i = 0; i < found; i++) {
+            rankById.put(topIds[i], i);
+        }
+        MovieDTO[] ranked = new MovieDTO[found];
+        for (FavoriteMovieRow row : rows) {
+            Integer rank = rankById.get(row.getMovieId());
+            if (rank != null && ranked[rank] == null) {
+                ranked[rank] = new MovieDTO(row.getMovieId(), row.getTitle(), row.getPosterUrl(), row.getVoteAverage());
+            }
+        }
+
+        logger.info("🤝 Scored {} movies from {} similar users, top {}: {}", votes.size(), userWeights.size(), found,
+                Arrays.toString(Arrays.copyOf(topScores, found)));
+        return Arrays.asList(ranked);
+    }
+
+    private static Long parseUserId(Object value) {
+        if (value == null) return null;
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package movieMentor.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import movieMentor.utils.MmapEmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Two-level cache of embeddings keyed by a hash of (model, normalised text).
+ *
+ * L1 is a bounded in-memory LRU, L2 is a memory-mapped file that survives restarts.
+ * Identical overviews resolve to the same key, so they share one vector and cost one
+ * upstream call; {@link EmbeddingStorageService} keeps only movie id -> key and reads the
+ * vectors from here. Every array handed out is a copy – the cached vector is never exposed.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmbeddingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+    private static final int EMBEDDING_DIMENSION = 1536;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${embedding.cache.path:data/text-embeddings.bin}")
+    private String cachePath;
+
+    @Value("${embedding.cache.l1-max-entries:5000}")
+    private int l1MaxEntries;
+
+    private Map<Long, float[]> l1;
+    private MmapEmbeddingStore l2;
+
+    private final AtomicLong l1Hits = new AtomicLong();
+    private final AtomicLong l2Hits = new AtomicLong();
+    private final AtomicLong batchHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        final int maxEntries = Math.max(1, l1MaxEntries);
+        l1 = Collections.synchronizedMap(new LinkedHashMap<Long, float[]>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        });
+
+        try {
+            l2 = MmapEmbeddingStore.open(Paths.get(cachePath), EMBEDDING_DIMENSION);
+            logger.info("💾 Opened text embedding cache '{}' with {} entries", cachePath, l2.size());
+        } catch (IOException | RuntimeException e) {
+            logger.error("❌ Could not open text embedding cache '{}', using memory only: {}", cachePath, e.getMessage());
+            l2 = null;
+        }
+
+        FunctionCounter.builder("embedding.cache.hits", l1Hits, AtomicLong::get).tag("tier", "l1").register(meterRegistry);
+        FunctionCounter.builder("embedding.cache.hits", l2Hits, AtomicLong::get).tag("tier", "l2").register(meterRegistry);
+        FunctionCounter.builder("embedding.cache.hits", batchHits, AtomicLong::get).tag("tier", "batch").register(meterRegistry);
+        FunctionCounter.builder("embedding.cache.misses", misses, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("embedding.cache.bytes.saved", bytesSaved, AtomicLong::get)
+                .description("UTF-8 bytes of input text that were not sent to the embeddings API")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (l2 == null) {
+            return;
+        }
+        try {
+            l2.close();
+        } catch (IOException e) {
+            logger.warn("⚠️ Failed to close text embedding cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the cached vector for the text, or null on a miss. Hits are counted, misses are not
+     * (the caller is expected to go through {@link #getAll} on a miss).
+     */
+    public float[] get(String model, String text) {
+        float[] vector = lookup(key(model, text), text);
+        return vector == null ? null : vector.clone();
+    }
+
+    /**
+     * @return a copy of the vector stored under {@code key}, or null. Not counted as a hit:
+     * this is a by-id read through {@link EmbeddingStorageService}, not a saved upstream call.
+     */
+    public float[] vector(long key) {
+        float[] vector = l1.get(key);
+        if (vector == null && l2 != null) {
+            vector = l2.get(key);
+            if (vector != null) {
+                l1.put(key, vector);
+            }
+        }
+        return vector == null ? null : vector.clone();
+    }
+
+    /**
+     * Read-only view of the vector stored under {@code key} (zero-copy when it is in the file), or null.
+     */
+    public FloatBuffer view(long key) {
+        FloatBuffer view = l2 != null ? l2.view(key) : null;
+        if (view == null) {
+            float[] vector = l1.get(key);
+            view = vector == null ? null : FloatBuffer.wrap(vector).asReadOnlyBuffer();
+        }
+        return view;
+    }
+
+    public boolean contains(long key) {
+        return l1.containsKey(key) || (l2 != null && l2.contains(key));
+    }
+
+    /**
+     * Stores a vector under {@code key}.
+     *
+     * @return true if it is persisted in the file; otherwise it only sits in the bounded L1
+     * and the caller has to keep its own copy
+     */
+    public boolean put(long key, float[] vector) {
+        return store(key, vector.clone());
+    }
+
+    /**
+     * מחזיר embedding לכל טקסט – מהקאש אם אפשר, ואת השאר מביא ב-{@code loader} בקריאה אחת
+     * עם טקסטים ייחודיים בלבד. Entries the loader fails to produce (empty arrays) are not cached.
+     */
+    public List<float[]> getAll(String model, List<String> texts, Function<List<String>, List<float[]>> loader) {
+        float[][] result = new float[texts.size()][];
+        Map<Long, List<Integer>> missingPositions = new LinkedHashMap<>();
+        List<String> missingTexts = new ArrayList<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            long key = key(model, text);
+            List<Integer> positions = missingPositions.get(key);
+            if (positions != null) {
+                positions.add(i);
+                batchHits.incrementAndGet();
+                bytesSaved.addAndGet(utf8Length(text));
+                continue;
+            }
+            float[] cached = lookup(key, text);
+            if (cached != null) {
+                result[i] = cached.clone();
+                continue;
+            }
+            positions = new ArrayList<>(1);
+            positions.add(i);
+            missingPositions.put(key, positions);
+            missingTexts.add(text);
+        }
+
+        if (!missingTexts.isEmpty()) {
+            misses.addAndGet(missingTexts.size());
+            List<float[]> loaded = loader.apply(missingTexts);
+            int index = 0;
+            for (Map.Entry<Long, List<Integer>> entry : missingPositions.entrySet()) {
+                float[] vector = index < loaded.size() ? loaded.get(index) : null;
+                index++;
+                if (vector == null) {
+                    vector = new float[0];
+                } else if (vector.length > 0) {
+                    store(entry.getKey(), vector);
+                }
+                for (int position : entry.getValue()) {
+                    result[position] = vector.clone();
+                }
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * דוחס את קובץ ה-L2 ומשאיר רק מפתחות ש-{@code live} עדיין מפנה אליהם (מפתחות של overview
+     * שנערך, או טקסטים חד-פעמיים, מצטברים אחרת לנצח). Runs only when the unreferenced and
+     * overwritten rows are at least half of the file; the dropped keys leave L1 as well.
+     *
+     * @return the number of rows reclaimed, 0 when the file was left as is
+     */
+    public int retainOnly(Set<Long> live) throws IOException {
+        if (l2 == null) {
+            return 0;
+        }
+        int[] orphans = {0};
+        l2.forEach((key, data, offset) -> {
+            if (!live.contains(key)) orphans[0]++;
+        });
+        int reclaimable = orphans[0] + l2.deadRows();
+        if (reclaimable == 0 || reclaimable < (l2.size() + l2.deadRows()) / 2) {
+            return 0;
+        }
+        int reclaimed = l2.compact(live::contains);
+        l1.keySet().removeIf(key -> !live.contains(key));
+        return reclaimed;
+    }
+
+    public long getL1Hits() {
+        return l1Hits.get();
+    }
+
+    public long getL2Hits() {
+        return l2Hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    private float[] lookup(long key, String text) {
+        float[] vector = l1.get(key);
+        if (vector != null) {
+            l1Hits.incrementAndGet();
+            bytesSaved.addAndGet(utf8Length(text));
+            return vector;
+        }
+        if (l2 != null) {
+            vector = l2.get(key);
+            if (vector != null) {
+                l1.put(key, vector);
+                l2Hits.incrementAndGet();
+                bytesSaved.addAndGet(utf8Length(text));
+                return vector;
+            }
+        }
+        return null;
+    }
+
+    private boolean store(long key, float[] vector) {
+        l1.put(key, vector);
+        if (l2 != null && vector.length == EMBEDDING_DIMENSION) {
+            try {
+                l2.put(key, vector);
+                return true;
+            } catch (IOException e) {
+                logger.warn("⚠️ Failed to persist cached embedding: {}", e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 64 ביט ראשונים של SHA-256 על (מודל, טקסט מנורמל).
+     */
+    static long key(String model, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(text).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String nfc = Normalizer.normalize(text, Normalizer.Form.NFC);
+        return nfc.trim().replaceAll("\\s+", " ");
+    }
+
+    private static long utf8Length(String text) {
+        return text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
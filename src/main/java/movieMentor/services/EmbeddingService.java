@@ -3,27 +3,40 @@ package movieMentor.services;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
+import movieMentor.utils.MicroBatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import javax.annotation.PostConstruct; // לוודא שזה מיובא
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class EmbeddingService {
 
     private static final Logger log = LoggerFactory.getLogger(EmbeddingService.class);
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final WebClient webClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EmbeddingCache embeddingCache;
 
     // קבועים ספציפיים ל-OpenAI
-    private static final String OPENAI_EMBED_URL = "https://api.openai.com/v1/embeddings";
     // מודל מומלץ: text-embedding-3-small מציע איזון טוב בין ביצועים לעלות
     // חלופות: "text-embedding-ada-002" (דור קודם), "text-embedding-3-large" (ליישומים מתקדמים)
     private static final String OPENAI_EMBEDDING_MODEL = "text-embedding-3-small";
@@ -32,62 +45,182 @@ public class EmbeddingService {
     @Value("${openai.api.key.vector}") // קריאת מפתח ה-API מקובץ application.properties
     private String openAiApiKey;
 
+    @Value("${openai.embeddings.url:https://api.openai.com/v1/embeddings}")
+    private String embeddingsUrl;
+
+    // מקסימום טקסטים בבקשה אחת ל-OpenAI
+    @Value("${openai.embeddings.max-batch-size:64}")
+    private int maxBatchSize;
+
+    // כמה זמן מחכים לבקשות נוספות לפני ששולחים batch
+    @Value("${openai.embeddings.linger-ms:10}")
+    private long lingerMs;
+
+    @Value("${openai.embeddings.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${openai.embeddings.timeout-ms:30000}")
+    private long timeoutMs;
+
+    private ExecutorService batchExecutor;
+    private MicroBatcher<String, float[]> batcher;
+
+    @PostConstruct
+    public void init() {
+        batchExecutor = Executors.newFixedThreadPool(Math.max(1, maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "openai-embeddings");
+            thread.setDaemon(true);
+            return thread;
+        });
+        batcher = new MicroBatcher<>("openai-embeddings", this::getEmbeddings, maxBatchSize, lingerMs, batchExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+        }
+    }
+
+    public String getModelName() {
+        return OPENAI_EMBEDDING_MODEL;
+    }
+
     /**
-     * מחלץ וקטור הטמעה עבור טקסט נתון באמצעות OpenAI API.
+     * כמו {@link #getEmbeddings}, אבל הטקסטים מצטרפים ל-batch המשותף של ה-collector: כמה workers
+     * שמטמיעים כל אחד סרט או שניים באותו רגע יוצאים יחד בבקשה אחת ל-OpenAI.
      *
-     * @param text הטקסט עבורו יש לחלץ הטמעה.
-     * @return מערך של floats המייצג את וקטור ההטמעה, או מערך ריק במקרה של כשל.
+     * @return one vector per input, in input order; blank texts, failures and timeouts are empty arrays
      */
-    public float[] getEmbedding(String text) {
-        // רסאמצ'ק הוסר כיוון שהלוג יספיק לרוב המקרים
-        // boolean resCheck = false;
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(openAiApiKey); // OpenAI משתמש באימות Bearer token
+    public List<float[]> getEmbeddingsCoalesced(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        float[][] result = new float[texts.size()][];
+        List<CompletableFuture<float[]>> pending = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            result[i] = isBlank(text) ? new float[0] : embeddingCache.get(OPENAI_EMBEDDING_MODEL, text);
+            pending.add(result[i] == null ? batcher.submit(text) : null);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (int i = 0; i < result.length; i++) {
+            if (pending.get(i) == null) continue;
+            try {
+                result[i] = pending.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("❌ הופסקה ההמתנה להטמעה מ-OpenAI");
+                result[i] = new float[0];
+            } catch (Exception e) {
+                log.error("❌ שגיאה בקבלת הטמעה מ-OpenAI: {}", e.getMessage());
+                result[i] = new float[0];
+            }
+        }
+        return Arrays.asList(result);
+    }
 
+    /**
+     * מחלץ וקטורי הטמעה לרשימת טקסטים – בקשה אחת ל-OpenAI לכל {@code max-batch-size} טקסטים.
+     * Texts already in the embedding cache, and repeats within the list, are not sent upstream;
+     * neither are blank texts, which OpenAI rejects (one of them would fail the whole request).
+     *
+     * @return one vector per input, in input order; failed entries are empty arrays.
+     */
+    public List<float[]> getEmbeddings(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return embeddingCache.getAll(OPENAI_EMBEDDING_MODEL, texts, this::fetchEmbeddings);
+    }
+
+    private List<float[]> fetchEmbeddings(List<String> texts) {
+        float[][] result = new float[texts.size()][];
+        List<Integer> positions = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            if (isBlank(texts.get(i))) {
+                result[i] = new float[0];
+            } else {
+                positions.add(i);
+            }
+        }
+        for (int from = 0; from < positions.size(); from += maxBatchSize) {
+            List<Integer> chunk = positions.subList(from, Math.min(positions.size(), from + maxBatchSize));
+            List<String> chunkTexts = new ArrayList<>(chunk.size());
+            chunk.forEach(position -> chunkTexts.add(texts.get(position)));
+            List<float[]> embeddings = requestEmbeddings(chunkTexts);
+            for (int i = 0; i < chunk.size(); i++) {
+                result[chunk.get(i)] = embeddings.get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+
+    private List<float[]> requestEmbeddings(List<String> texts) {
+        float[][] embeddings = new float[texts.size()][];
+        try {
             // OpenAI מצפה ל"input" (מחרוזת או מערך מחרוזות) ול"model"
-            String requestBody = objectMapper.createObjectNode()
-                    .put("input", text)
-                    .put("model", OPENAI_EMBEDDING_MODEL)
-                    .toString();
-
-            HttpEntity<String> requestEntity = new HttpEntity<>(requestBody, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    OPENAI_EMBED_URL,
-                    HttpMethod.POST,
-                    requestEntity,
-                    String.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                // ההטמעות של OpenAI נמצאות תחת data[0].embedding
-                JsonNode singleEmbeddingNode = root.path("data").path(0).path("embedding");
-
-                if (singleEmbeddingNode == null || !singleEmbeddingNode.isArray() || singleEmbeddingNode.size() != OPENAI_EMBEDDING_DIMENSION) {
-                    log.error("❌ מערך הטמעת OpenAI אינו תקין או בגודל שגוי: ציפינו ל-{}, קיבלנו {}",
-                            OPENAI_EMBEDDING_DIMENSION, singleEmbeddingNode != null ? singleEmbeddingNode.size() : "null");
-                    return new float[0];
-                }
+            ObjectNode body = objectMapper.createObjectNode();
+            ArrayNode input = body.putArray("input");
+            texts.forEach(input::add);
+            body.put("model", OPENAI_EMBEDDING_MODEL);
 
-                float[] embedding = new float[OPENAI_EMBEDDING_DIMENSION];
-                for (int i = 0; i < singleEmbeddingNode.size(); i++) {
-                    embedding[i] = (float) singleEmbeddingNode.get(i).asDouble();
-                }
+            ResponseEntity<String> response = webClient.post()
+                    .uri(embeddingsUrl)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .headers(headers -> headers.setBearerAuth(openAiApiKey)) // OpenAI משתמש באימות Bearer token
+                    .bodyValue(body.toString())
+                    .retrieve()
+                    .toEntity(String.class)
+                    .block();
 
-                return embedding;
+            if (response != null && response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                JsonNode data = objectMapper.readTree(response.getBody()).path("data");
+                // כל פריט מגיע עם index שמצביע על מיקומו ב-input
+                for (int i = 0; i < data.size(); i++) {
+                    JsonNode item = data.get(i);
+                    int index = item.path("index").asInt(i);
+                    JsonNode embeddingNode = item.path("embedding");
+                    if (index < 0 || index >= embeddings.length) {
+                        continue;
+                    }
+                    if (!embeddingNode.isArray() || embeddingNode.size() != OPENAI_EMBEDDING_DIMENSION) {
+                        log.error("❌ מערך הטמעת OpenAI אינו תקין או בגודל שגוי: ציפינו ל-{}, קיבלנו {}",
+                                OPENAI_EMBEDDING_DIMENSION, embeddingNode.size());
+                        continue;
+                    }
+                    float[] embedding = new float[OPENAI_EMBEDDING_DIMENSION];
+                    for (int d = 0; d < OPENAI_EMBEDDING_DIMENSION; d++) {
+                        embedding[d] = (float) embeddingNode.get(d).asDouble();
+                    }
+                    embeddings[index] = embedding;
+                }
+                log.info("🧠 Received {} embeddings from OpenAI in one request", data.size());
             } else {
-                log.error("❌ נכשלה קבלת הטמעה מ-OpenAI: סטטוס {}, גוף תגובה: {}",
-                        response.getStatusCode(), response.getBody());
+                log.error("❌ נכשלה קבלת הטמעה מ-OpenAI: תגובה ריקה");
             }
-        } catch (ResourceAccessException e) {
+        } catch (WebClientResponseException e) {
+            log.error("❌ נכשלה קבלת הטמעה מ-OpenAI: סטטוס {}, גוף תגובה: {}",
+                    e.getRawStatusCode(), e.getResponseBodyAsString());
+        } catch (WebClientRequestException e) {
             log.error("❌ שגיאת רשת בחיבור ל-OpenAI API: {}", e.getMessage());
         } catch (Exception e) {
             log.error("❌ שגיאה בקבלת הטמעה מ-OpenAI", e);
         }
 
-        return new float[0];
+        for (int i = 0; i < embeddings.length; i++) {
+            if (embeddings[i] == null) {
+                embeddings[i] = new float[0];
+            }
+        }
+        return Arrays.asList(embeddings);
     }
-}
\ No newline at end of file
+}
@@ -1,37 +1,184 @@
 package movieMentor.services;
 
+import movieMentor.utils.IdKeyLog;
+import movieMentor.utils.MmapEmbeddingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * embedding לכל סרט, לפי movieId.
+ *
+ * The store keeps only movie id -> content key ({@link EmbeddingCache#key} of the text that
+ * was embedded); the vector itself lives once in the {@link EmbeddingCache}, so movies with
+ * the same overview share it on disk and in memory. The scheduled compaction also drops
+ * cache vectors no movie points at anymore (an edited overview leaves its old key behind).
+ */
 @Service
 public class EmbeddingStorageService {
-    private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingStorageService.class);
+    private final EmbeddingCache embeddingCache;
+    private final EmbeddingService embeddingService;
 
-    // זיכרון זמני לשמירת embedding לכל סרט לפי ה־ID שלו
+    @Value("${embedding.store.keys-path:data/movie-embedding-keys.bin}")
+    private String keysPath;
+
+    // movieId -> מפתח התוכן ב-EmbeddingCache; שורד restart
+    private IdKeyLog keys;
+    // הוספות רצות במקביל (read); הדחיסה לוקחת write כדי שמפתח חדש לא יימחק לפני שנרשם ב-keys
+    private final ReentrantReadWriteLock compactionLock = new ReentrantReadWriteLock();
+
+    // גיבוי בזיכרון: סרט בלי טקסט, וקטור בגודל אחר, או כשלא ניתן לשמור בקובץ
     private final Map<Long, float[]> embeddingMap = new ConcurrentHashMap<>();
 
+    public EmbeddingStorageService(EmbeddingCache embeddingCache, EmbeddingService embeddingService) {
+        this.embeddingCache = embeddingCache;
+        this.embeddingService = embeddingService;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            keys = IdKeyLog.open(Paths.get(keysPath));
+            logger.info("💾 Opened embedding key log '{}' with {} movies", keysPath, keys.size());
+        } catch (IOException | RuntimeException e) {
+            logger.error("❌ Could not open embedding key log '{}', falling back to in-memory embeddings: {}", keysPath, e.getMessage());
+            keys = null;
+        }
+    }
+
     /**
      * שומר embedding של סרט לפי ה־movieId שלו
+     *
+     * @param text the text the vector was computed from; movies with the same text share one stored vector
      */
-    public void addEmbedding(Long movieId, float[] vector) {
-        embeddingMap.put(movieId, vector);
+    public void addEmbedding(Long movieId, String text, float[] vector) {
+        if (movieId == null || vector == null) {
+            return;
+        }
+        if (keys != null && text != null && !text.trim().isEmpty()) {
+            long key = EmbeddingCache.key(embeddingService.getModelName(), text);
+            compactionLock.readLock().lock();
+            try {
+                if (embeddingCache.put(key, vector)) {
+                    keys.put(movieId, key);
+                    embeddingMap.remove(movieId);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.error("❌ Failed to persist embedding key for movie {}: {}", movieId, e.getMessage());
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        }
+        embeddingMap.put(movieId, vector.clone());
     }
 
     /**
      * מחזיר את ה־embedding של הסרט לפי ה־movieId
+     *
+     * @return a copy the caller may modify, or null
      */
     public float[] getEmbedding(Long movieId) {
-        return embeddingMap.get(movieId);
+        if (movieId == null) {
+            return null;
+        }
+        float[] vector = embeddingMap.get(movieId);
+        if (vector != null) {
+            return vector.clone();
+        }
+        Long key = keys != null ? keys.get(movieId) : null;
+        if (key != null) {
+            return embeddingCache.vector(key);
+        }
+        return null;
     }
 
     /**
      * בודק אם כבר שמרנו embedding לסרט הזה
      */
     public boolean hasEmbedding(Long movieId) {
-        return embeddingMap.containsKey(movieId);
+        if (movieId == null) {
+            return false;
+        }
+        if (embeddingMap.containsKey(movieId)) {
+            return true;
+        }
+        Long key = keys != null ? keys.get(movieId) : null;
+        return key != null && embeddingCache.contains(key);
+    }
+
+    /**
+     * Iterates every stored movie embedding through read-only views, without copying vectors
+     * out of the mapped files. In-memory fallback vectors are visited through a heap buffer.
+     */
+    public void forEachEmbedding(MmapEmbeddingStore.RowVisitor visitor) {
+        Map<Long, Long> keyed = keys != null ? keys.snapshot() : Collections.emptyMap();
+        keyed.forEach((id, key) -> {
+            if (embeddingMap.containsKey(id)) return;
+            FloatBuffer view = embeddingCache.view(key);
+            if (view != null) {
+                visitor.visit(id, view, 0);
+            }
+        });
+        embeddingMap.forEach((id, vector) -> visitor.visit(id, FloatBuffer.wrap(vector).asReadOnlyBuffer(), 0));
+    }
+
+    /**
+     * דחיסת קובץ המפתחות כשיותר ממחצית הרשומות "מתות" (סרטים שקיבלו embedding חדש),
+     * ואחריו דחיסת קובץ הווקטורים למפתחות שעדיין מופיעים בקובץ המפתחות
+     */
+    @Scheduled(fixedDelayString = "${embedding.store.compaction-interval-ms:3600000}")
+    public void compactIfNeeded() {
+        if (keys == null) {
+            return;
+        }
+        long dead = keys.deadRecords();
+        if (dead > 0 && dead >= keys.size() / 2) {
+            try {
+                keys.compact();
+                logger.info("🧹 Compacted embedding key log, dropped {} stale records", dead);
+            } catch (IOException e) {
+                logger.error("❌ Embedding key log compaction failed: {}", e.getMessage());
+            }
+        }
+
+        compactionLock.writeLock().lock();
+        try {
+            Set<Long> live = new HashSet<>(keys.snapshot().values());
+            int reclaimed = embeddingCache.retainOnly(live);
+            if (reclaimed > 0) {
+                logger.info("🧹 Compacted text embedding cache to {} referenced vectors, dropped {} rows", live.size(), reclaimed);
+            }
+        } catch (IOException e) {
+            logger.error("❌ Text embedding cache compaction failed: {}", e.getMessage());
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            if (keys != null) {
+                keys.close();
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Failed to close embedding store: {}", e.getMessage());
+        }
     }
 }
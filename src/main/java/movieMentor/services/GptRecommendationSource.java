@@ -0,0 +1,44 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * כותרות מ-GPT, מתורגמות ל-MovieDTO דרך TMDB – עדיפות 2.
+ */
+@Component
+@RequiredArgsConstructor
+public class GptRecommendationSource implements RecommendationSource {
+
+    private final RecommendationService recommendationService;
+    private final TmdbService tmdbService;
+
+    @Value("${recommendation.source.gpt.timeout-ms:15000}")
+    private long timeoutMs;
+
+    @Override
+    public String name() {
+        return "gpt";
+    }
+
+    @Override
+    public int priority() {
+        return 2;
+    }
+
+    @Override
+    public long timeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public List<MovieDTO> fetch(RecommendationContext context) {
+        List<String> titles = recommendationService.generateRecommendations(
+                context.getFavoriteTitles(), context.getHistoryTitles());
+        return tmdbService.updateMovieListWithDifferences(context.getCurrentRecommendations(), titles);
+    }
+}
@@ -0,0 +1,179 @@
+package movieMentor.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import movieMentor.dto.UserVectorPoint;
+import movieMentor.utils.HnswIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * אינדקס HNSW מקומי לוקטורי המשתמשים – בלי קריאת רשת לכל חיפוש.
+ *
+ * Enabled with {@code user-vector.index=hnsw}. The graph and the user payloads are written
+ * to {@code user-vector.hnsw.snapshot-path} periodically (only when something changed) and on
+ * shutdown, and loaded back on startup. An empty index fills up as users are recomputed, or
+ * all at once with {@code qdrant.backfill.on-startup=true}.
+ */
+@Service
+@ConditionalOnProperty(name = "user-vector.index", havingValue = "hnsw")
+public class HnswUserVectorIndex implements UserVectorIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(HnswUserVectorIndex.class);
+    private static final int EMBEDDING_DIMENSION = 1536;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${user-vector.hnsw.m:16}")
+    private int m;
+
+    @Value("${user-vector.hnsw.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${user-vector.hnsw.ef-search:64}")
+    private int efSearch;
+
+    @Value("${user-vector.hnsw.snapshot-path:data/user-vectors.hnsw}")
+    private String snapshotPath;
+
+    private volatile HnswIndex index;
+    private final Map<Long, Map<String, Object>> payloads = new ConcurrentHashMap<>();
+    // upsert ודחיסה לא רצים במקביל, כדי שעדכון לא ילך לאיבוד בזמן בנייה מחדש
+    private final Object mutationLock = new Object();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public HnswUserVectorIndex(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        Path path = Paths.get(snapshotPath);
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                index = HnswIndex.readFrom(in);
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    long id = in.readLong();
+                    payloads.put(id, objectMapper.readValue(in.readUTF(), new TypeReference<Map<String, Object>>() {}));
+                }
+                logger.info("🕸️ Loaded HNSW user index '{}' with {} users", snapshotPath, index.size());
+                return;
+            } catch (IOException | RuntimeException e) {
+                // snapshot פגום: מתחילים ריק ומחליפים את הקובץ ב-snapshot הבא; המשתמשים חוזרים ב-recompute או ב-backfill
+                logger.error("❌ Could not load HNSW snapshot '{}', starting empty: {}", snapshotPath, e.getMessage());
+                payloads.clear();
+                dirty.set(true);
+            }
+        }
+        index = new HnswIndex(EMBEDDING_DIMENSION, m, efConstruction);
+        logger.info("🕸️ Started empty HNSW user index (M={}, efConstruction={}, efSearch={})", m, efConstruction, efSearch);
+    }
+
+    @Override
+    public String name() {
+        return "hnsw";
+    }
+
+    @Override
+    public void upsert(UserVectorPoint point) {
+        long id = Long.parseLong(point.getUserId());
+        synchronized (mutationLock) {
+            if (!index.upsert(id, point.getVector())) {
+                throw new IllegalArgumentException("❌ Embedding must have " + EMBEDDING_DIMENSION + " values, but got: " +
+                        (point.getVector() == null ? "null" : point.getVector().length));
+            }
+            payloads.put(id, point.getPayload() != null ? new HashMap<>(point.getPayload()) : Collections.emptyMap());
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> findSimilar(float[] vector, int topK) {
+        if (topK <= 0) {
+            return Collections.emptyList();
+        }
+        long[] ids = new long[topK];
+        float[] scores = new float[topK];
+        int found = index.search(vector, topK, efSearch, ids, scores);
+
+        List<Map<String, Object>> hits = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            Map<String, Object> hit = new HashMap<>(payloads.getOrDefault(ids[i], Collections.emptyMap()));
+            hit.put("user_id", String.valueOf(ids[i]));
+            hit.put("score", (double) scores[i]);
+            hits.add(hit);
+        }
+        return hits;
+    }
+
+    /**
+     * שומר snapshot אם היו שינויים; קודם דוחס את הגרף כשיש יותר tombstones ממשתמשים חיים.
+     */
+    @Scheduled(fixedDelayString = "${user-vector.hnsw.snapshot-interval-ms:300000}")
+    public void snapshotIfDirty() {
+        if (!dirty.get()) {
+            return;
+        }
+        synchronized (mutationLock) {
+            if (index.deletedCount() > index.size()) {
+                int dropped = index.deletedCount();
+                index = index.compacted();
+                logger.info("🧹 Rebuilt HNSW user index, dropped {} stale nodes", dropped);
+            }
+            dirty.set(false);
+            try {
+                writeSnapshot();
+            } catch (IOException e) {
+                dirty.set(true);
+                logger.error("❌ Failed to write HNSW snapshot '{}': {}", snapshotPath, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshotIfDirty();
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path path = Paths.get(snapshotPath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            index.writeTo(out);
+            out.writeInt(payloads.size());
+            for (Map.Entry<Long, Map<String, Object>> entry : payloads.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeUTF(objectMapper.writeValueAsString(entry.getValue()));
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("💾 Wrote HNSW user index snapshot ({} users)", index.size());
+    }
+}
@@ -0,0 +1,66 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import movieMentor.utils.EmbeddingUtils;
+import movieMentor.utils.MmrSelector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * גיוון ההמלצות (MMR) – כדי שסרטי המשך וכמעט-כפילויות לא ימלאו את הרשימה.
+ *
+ * Relevance is the position in the merged list (source priority, then each source's own
+ * order), scaled to 1..0. Similarity is the cosine of the stored movie embeddings; a
+ * movie without an embedding is never penalised. {@code recommendation.mmr.lambda}
+ * trades one for the other (1 keeps the merged order).
+ */
+@Component
+@RequiredArgsConstructor
+public class MmrReranker implements RecommendationReranker {
+
+    private static final int EMBEDDING_DIMENSION = 1536;
+
+    private final EmbeddingStorageService embeddingStorageService;
+
+    @Value("${recommendation.mmr.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.mmr.lambda:0.7}")
+    private float lambda;
+
+    @Override
+    public String name() {
+        return "mmr";
+    }
+
+    @Override
+    public List<MovieDTO> rerank(RecommendationContext context, List<MovieDTO> candidates, int limit) {
+        int n = candidates.size();
+        if (!enabled || n <= 1 || limit <= 1) {
+            return candidates.subList(0, Math.min(n, Math.max(0, limit)));
+        }
+
+        float[] vectors = new float[n * EMBEDDING_DIMENSION];
+        float[] relevance = new float[n];
+        for (int i = 0; i < n; i++) {
+            relevance[i] = 1f - (float) i / n;
+            MovieDTO movie = candidates.get(i);
+            float[] embedding = movie.getId() != null ? embeddingStorageService.getEmbedding(movie.getId()) : null;
+            if (embedding != null && embedding.length == EMBEDDING_DIMENSION) {
+                EmbeddingUtils.normalizeInto(embedding, vectors, i * EMBEDDING_DIMENSION);
+            }
+        }
+
+        int[] selected = new int[Math.min(n, limit)];
+        int found = MmrSelector.select(vectors, n, EMBEDDING_DIMENSION, relevance, lambda, limit, selected);
+        List<MovieDTO> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(candidates.get(selected[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package movieMentor.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import movieMentor.beans.MovieDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * מילון id -> MovieDTO להצגת ההמלצות בלי Hibernate.
+ *
+ * An in-process Caffeine map in front of {@code movieDTO:id:<id>} keys in Redis (compact
+ * binary MovieDTO, shared by all nodes). Entries are written whenever recommendations are
+ * materialised; a lookup goes to Redis only for ids missing locally, all of them in one
+ * MGET. The stored DTOs are plain copies, never JPA-managed instances.
+ *
+ * Local entries expire after {@code recommendation.store.dictionary-local-ttl-seconds}, which
+ * bounds how long a node serves a DTO another node has since replaced. DTOs without an
+ * overview (the JPQL projections of the read-path fallback) only fill ids Redis has no entry
+ * for and are not cached locally, so they never shadow the full DTO of a recompute.
+ */
+@Component
+public class MovieDtoDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieDtoDictionary.class);
+    private static final String KEY_PREFIX = "movieDTO:id:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${recommendation.store.dictionary-max-size:50000}")
+    private long maxSize;
+
+    @Value("${recommendation.store.dictionary-ttl-days:30}")
+    private long ttlDays;
+
+    @Value("${recommendation.store.dictionary-local-ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    private Cache<Long, MovieDTO> local;
+
+    public MovieDtoDictionary(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+    }
+
+    public void putAll(Collection<MovieDTO> movies) {
+        Map<Long, MovieDTO> full = new HashMap<>();
+        Map<Long, MovieDTO> projections = new HashMap<>();
+        for (MovieDTO movie : movies) {
+            if (movie == null || movie.getId() == null) continue;
+            // העתק רזה – לא מחזיקים entity של JPA; posterUrl כבר מלא, לכן לא דרך setPosterUrl
+            MovieDTO copy = new MovieDTO(movie.getId(), movie.getTitle(), movie.getPosterUrl(),
+                    movie.getVoteAverage(), movie.getOverview());
+            (movie.getOverview() != null ? full : projections).put(movie.getId(), copy);
+        }
+        if (full.isEmpty() && projections.isEmpty()) {
+            return;
+        }
+        local.putAll(full);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    Duration ttl = Duration.ofDays(ttlDays);
+                    full.forEach((id, dto) -> ops.opsForValue().set(KEY_PREFIX + id, dto, ttl));
+                    // בלי overview – רק אם אין עדיין ערך, כדי לא לדרוס DTO מלא
+                    projections.forEach((id, dto) -> ops.opsForValue().setIfAbsent(KEY_PREFIX + id, dto, ttl));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            logger.error("❌ Redis error writing {} movie DTOs: {}", full.size() + projections.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the DTOs found, by id; ids missing both locally and in Redis are absent
+     */
+    public Map<Long, MovieDTO> getAll(long[] ids) {
+        Map<Long, MovieDTO> found = new HashMap<>(ids.length * 2);
+        List<Long> misses = new ArrayList<>();
+        for (long id : ids) {
+            MovieDTO movie = local.getIfPresent(id);
+            if (movie != null) {
+                found.put(id, movie);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return found;
+        }
+
+        List<String> keys = new ArrayList<>(misses.size());
+        misses.forEach(id -> keys.add(KEY_PREFIX + id));
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; values != null && i < values.size(); i++) {
+                if (values.get(i) instanceof MovieDTO) {
+                    MovieDTO movie = (MovieDTO) values.get(i);
+                    found.put(misses.get(i), movie);
+                    // הטלה בלי overview לא נשמרת מקומית – DTO מלא שייכתב אחריה יגיע מ-Redis
+                    if (movie.getOverview() != null) {
+                        local.put(misses.get(i), movie);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("❌ Redis error reading {} movie DTOs: {}", misses.size(), e.getMessage());
+        }
+        return found;
+    }
+}
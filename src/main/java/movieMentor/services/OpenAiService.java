@@ -6,7 +6,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -14,20 +16,27 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OpenAiService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final WebClient webClient;
     private static final Logger logger = LoggerFactory.getLogger(OpenAiService.class);
 
     @Value("${openai.api.key}")
     private String apiKey;
 
     public List<String> getRecommendations(List<String> favorites, List<String> history) {
+        List<String> recommendations = getRecommendationsAsync(favorites, history).block();
+        return recommendations != null ? recommendations : Collections.emptyList();
+    }
+
+    /**
+     * גרסה לא-חוסמת של {@link #getRecommendations(List, List)}.
+     *
+     * @return the recommended titles; an empty list when the call fails
+     */
+    @SuppressWarnings("unchecked")
+    public Mono<List<String>> getRecommendationsAsync(List<String> favorites, List<String> history) {
         String prompt = buildPrompt(favorites, history);
         logger.info("Generating recommendations with prompt: {}", prompt);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-
         Map<String, Object> body = new HashMap<>();
         body.put("model", "gpt-3.5-turbo");
         body.put("messages", List.of(
@@ -36,33 +45,27 @@ public class OpenAiService {
         ));
         body.put("temperature", 0.7);
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
-
-        try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    "https://api.openai.com/v1/chat/completions",
-                    request,
-                    Map.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                Map choices = ((List<Map>) response.getBody().get("choices")).get(0);
-                Map message = (Map) choices.get("message");
-                String content = (String) message.get("content");
-
-                List<String> recommendations = Arrays.stream(content.split("\\n"))
-                        .map(line -> line.replaceAll("^[0-9]+\\.\\s*", ""))
-                        .filter(title -> !title.trim().isEmpty())
-                        .collect(Collectors.toList());
-                return recommendations;
-            } else {
-                logger.error("Failed to get recommendations, status code: {}", response.getStatusCode());
-            }
-        } catch (Exception e) {
-            logger.error("Error while generating recommendations", e);
-        }
+        return webClient.post()
+                .uri("https://api.openai.com/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(headers -> headers.setBearerAuth(apiKey))
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(response -> {
+                    Map choices = ((List<Map>) response.get("choices")).get(0);
+                    Map message = (Map) choices.get("message");
+                    String content = (String) message.get("content");
 
-        return Collections.emptyList();
+                    return Arrays.stream(content.split("\\n"))
+                            .map(line -> line.replaceAll("^[0-9]+\\.\\s*", ""))
+                            .filter(title -> !title.trim().isEmpty())
+                            .collect(Collectors.toList());
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error while generating recommendations", e);
+                    return Mono.just(Collections.<String>emptyList());
+                });
     }
 
     private String buildPrompt(List<String> favorites, List<String> history) {
@@ -0,0 +1,50 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.dto.UserVectorPoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * וקטורי המשתמשים ב-Qdrant (ברירת המחדל).
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user-vector.index", havingValue = "qdrant", matchIfMissing = true)
+public class QdrantUserVectorIndex implements UserVectorIndex {
+
+    private final UserVectorClientService userVectorClient;
+
+    // בזמן backfill אין צורך לחכות שכל batch ייכתב לפני שממשיכים
+    @Value("${qdrant.backfill.wait:false}")
+    private boolean waitForBulkWrites;
+
+    @Override
+    public String name() {
+        return "qdrant";
+    }
+
+    @Override
+    public void upsert(UserVectorPoint point) {
+        userVectorClient.storeUserVector(point.getUserId(), point.getVector(), point.getPayload());
+    }
+
+    @Override
+    public int upsertAll(List<UserVectorPoint> points) {
+        return userVectorClient.storeUserVectors(points, waitForBulkWrites);
+    }
+
+    @Override
+    public List<Map<String, Object>> findSimilar(float[] vector, int topK) {
+        return userVectorClient.findSimilarUsers(vector, topK);
+    }
+
+    @Override
+    public List<List<Map<String, Object>>> findSimilarBatch(List<float[]> vectors, int topK) {
+        return userVectorClient.findSimilarUsersBatch(vectors, topK);
+    }
+}
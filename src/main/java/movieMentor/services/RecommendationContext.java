@@ -0,0 +1,34 @@
+package movieMentor.services;
+
+import lombok.Builder;
+import lombok.Getter;
+import movieMentor.beans.MovieDTO;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * צילום מצב של המשתמש עבור מקורות ההמלצות.
+ *
+ * Built once on the calling thread, inside its transaction, so the sources can run on
+ * other threads without touching the User entity or its lazy collections. The user
+ * vector is computed once here instead of once per source.
+ */
+@Getter
+@Builder
+public class RecommendationContext {
+    private final String username;
+    private final Long userId;
+    private final List<String> favoriteTitles;
+    private final List<String> historyTitles;
+    // ההמלצות הנוכחיות – כדי לא למשוך מחדש סרטים שכבר ברשימה
+    private final List<MovieDTO> currentRecommendations;
+    // מועדפים וכל מה שנצפה – לא ממליצים עליהם שוב
+    private final Set<Long> excludedMovieIds;
+    // וקטור הפרופיל; מערך ריק אם אין למשתמש embeddings
+    private final float[] userVector;
+
+    public boolean hasUserVector() {
+        return userVector != null && userVector.length > 0;
+    }
+}
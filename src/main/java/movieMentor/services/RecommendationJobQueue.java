@@ -0,0 +1,219 @@
+package movieMentor.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import movieMentor.dto.RecommendationJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * תור חישוב המלצות ברקע.
+ *
+ * Mutations mark a user as dirty; at most one job per user is queued or running at a time.
+ * A mark that arrives while the user's job is running schedules exactly one more run
+ * after it, so a burst of favourites/history additions costs at most two recomputes.
+ * The read path keeps serving the last stored list until a job replaces it. When the
+ * executor's queue is full the user stays marked (deferred) and a scheduled sweep submits
+ * the job once there is room, so a burst never loses a recompute.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecommendationJobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationJobQueue.class);
+
+    // DEFERRED: מסומן, אבל התור היה מלא – ה-sweep יגיש אותו
+    private enum State { DEFERRED, QUEUED, RUNNING, RUNNING_DIRTY }
+
+    // מוחזר ב-status במקום הודעת החריגה (שנרשמת ללוג בלבד)
+    static final String RECOMPUTE_FAILED = "RECOMPUTE_FAILED";
+
+    // דרך ה-proxy של Spring, כדי ש-@Transactional יחול (ובלי מעגל תלויות)
+    private final ObjectProvider<UserService> userServiceProvider;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendation.jobs.workers:2}")
+    private int workers;
+
+    @Value("${recommendation.jobs.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${recommendation.jobs.status-ttl-minutes:60}")
+    private long statusTtlMinutes;
+
+    private final Map<String, State> jobs = new ConcurrentHashMap<>();
+    private Cache<String, RecommendationJobStatus> lastResults;
+    private final AtomicInteger running = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+    private Timer queueWaitTimer;
+    private Counter coalesced;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        lastResults = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(statusTtlMinutes))
+                .build();
+        AtomicInteger threadIndex = new AtomicInteger();
+        int poolSize = Math.max(1, workers);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recommendation-job-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        queueWaitTimer = Timer.builder("recommendation.jobs.queue.wait")
+                .description("Time between a user being marked dirty and the recompute starting")
+                .register(meterRegistry);
+        coalesced = Counter.builder("recommendation.jobs.coalesced")
+                .description("Dirty marks absorbed by an already queued or running job")
+                .register(meterRegistry);
+        rejected = Counter.builder("recommendation.jobs.rejected").register(meterRegistry);
+        Gauge.builder("recommendation.jobs.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("recommendation.jobs.running", running, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * מסמן שהפרופיל של המשתמש השתנה. Inside a transaction the job is only queued after
+     * commit, so the worker reads the new favourites/history.
+     */
+    public void markDirty(String username) {
+        if (username == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(username);
+                }
+            });
+        } else {
+            enqueue(username);
+        }
+    }
+
+    public RecommendationJobStatus getStatus(String username) {
+        State state = jobs.get(username);
+        RecommendationJobStatus last = lastResults.getIfPresent(username);
+        RecommendationJobStatus.RecommendationJobStatusBuilder status = RecommendationJobStatus.builder()
+                .state(state == null ? "IDLE" : (state == State.QUEUED || state == State.DEFERRED ? "QUEUED" : "RUNNING"))
+                .pendingRerun(state == State.RUNNING_DIRTY);
+        if (last != null) {
+            status.lastCompletedAt(last.getLastCompletedAt())
+                    .lastDurationMs(last.getLastDurationMs())
+                    .lastSucceeded(last.isLastSucceeded())
+                    .lastError(last.getLastError());
+        }
+        return status.build();
+    }
+
+    private void enqueue(String username) {
+        boolean[] schedule = new boolean[1];
+        jobs.compute(username, (key, state) -> {
+            if (state == null) {
+                schedule[0] = true;
+                return State.QUEUED;
+            }
+            coalesced.increment();
+            return state == State.RUNNING ? State.RUNNING_DIRTY : state;
+        });
+        if (schedule[0]) {
+            submit(username);
+        }
+    }
+
+    /**
+     * מגיש מחדש משתמשים שנדחו כשהתור היה מלא; stops at the first rejection, the queue is still full.
+     */
+    @Scheduled(fixedDelayString = "${recommendation.jobs.sweep-interval-ms:30000}")
+    public void submitDeferred() {
+        for (String username : jobs.keySet()) {
+            if (jobs.replace(username, State.DEFERRED, State.QUEUED) && !submit(username)) {
+                return;
+            }
+        }
+    }
+
+    // false כשהתור מלא – המשתמש נשאר מסומן (DEFERRED) עד ה-sweep הבא
+    private boolean submit(String username) {
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(username, queuedAt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            jobs.put(username, State.DEFERRED);
+            rejected.increment();
+            logger.warn("⚠️ Recommendation queue is full – deferring recompute for '{}' to the next sweep", username);
+            return false;
+        }
+    }
+
+    private void run(String username, long queuedAt) {
+        jobs.put(username, State.RUNNING);
+        queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        running.incrementAndGet();
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            userServiceProvider.getObject().recomputeRecommendations(username);
+        } catch (Exception e) {
+            error = RECOMPUTE_FAILED;
+            logger.error("❌ Recommendation recompute failed for '{}': {}", username, e.getMessage(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            running.decrementAndGet();
+            Timer.builder("recommendation.jobs.duration")
+                    .description("Time spent recomputing a user's recommendations")
+                    .tag("outcome", error == null ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            lastResults.put(username, RecommendationJobStatus.builder()
+                    .state("IDLE")
+                    .lastCompletedAt(System.currentTimeMillis())
+                    .lastDurationMs(TimeUnit.NANOSECONDS.toMillis(elapsed))
+                    .lastSucceeded(error == null)
+                    .lastError(error)
+                    .build());
+        }
+
+        // שינוי שהגיע בזמן הריצה – ריצה אחת נוספת
+        State after = jobs.compute(username, (key, state) -> state == State.RUNNING_DIRTY ? State.QUEUED : null);
+        if (after == State.QUEUED) {
+            submit(username);
+        }
+    }
+}
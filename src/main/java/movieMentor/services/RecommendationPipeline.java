@@ -0,0 +1,168 @@
+package movieMentor.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import movieMentor.beans.MovieDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * מריץ את כל מקורות ההמלצות במקביל וממזג את התוצאות.
+ *
+ * Every source starts at the same time, so a run takes as long as the slowest source
+ * that makes its budget rather than the sum of all of them. Budgets are measured from
+ * the start of the run and capped by {@code recommendation.pipeline.deadline-ms}; a
+ * source that misses its budget is cancelled and the merge goes ahead with the rest.
+ */
+@Service
+public class RecommendationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationPipeline.class);
+
+    private final List<RecommendationSource> sources;
+    private final List<RecommendationReranker> rerankers;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendation.pipeline.deadline-ms:20000}")
+    private long deadlineMs;
+
+    @Value("${recommendation.pipeline.threads:6}")
+    private int threads;
+
+    private ExecutorService executor;
+
+    public RecommendationPipeline(List<RecommendationSource> sources, List<RecommendationReranker> rerankers,
+                                  MeterRegistry meterRegistry) {
+        this.sources = sources.stream()
+                .sorted(Comparator.comparingInt(RecommendationSource::priority))
+                .collect(Collectors.toList());
+        this.rerankers = rerankers;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-source-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("🧩 Recommendation sources: {}, rerankers: {}",
+                sources.stream().map(RecommendationSource::name).collect(Collectors.toList()),
+                rerankers.stream().map(RecommendationReranker::name).collect(Collectors.toList()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return merged results in source priority order, de-duplicated by id (then title) and
+     *         passed through the rerankers, at most {@code limit}
+     */
+    public List<MovieDTO> collect(RecommendationContext context, int limit) {
+        long start = System.nanoTime();
+
+        Map<RecommendationSource, Future<List<MovieDTO>>> running = new LinkedHashMap<>();
+        for (RecommendationSource source : sources) {
+            running.put(source, executor.submit(() -> fetch(source, context)));
+        }
+
+        LinkedHashMap<String, MovieDTO> merged = new LinkedHashMap<>();
+        for (Map.Entry<RecommendationSource, Future<List<MovieDTO>>> entry : running.entrySet()) {
+            RecommendationSource source = entry.getKey();
+            List<MovieDTO> movies = await(source, entry.getValue(), start, context.getUsername());
+            logger.info(" similar movies from '{}' for '{}': {}", source.name(), context.getUsername(),
+                    movies.stream().map(MovieDTO::getTitle).collect(Collectors.toList()));
+            for (MovieDTO movie : movies) {
+                if (movie == null) continue;
+                String key = dedupeKey(movie);
+                if (key != null && !merged.containsKey(key)) merged.put(key, movie);
+            }
+        }
+
+        List<MovieDTO> ranked = new ArrayList<>(merged.values());
+        for (RecommendationReranker reranker : rerankers) {
+            ranked = rerank(reranker, context, ranked, limit);
+        }
+        return ranked.stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private List<MovieDTO> rerank(RecommendationReranker reranker, RecommendationContext context,
+                                  List<MovieDTO> candidates, int limit) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return reranker.rerank(context, candidates, limit);
+        } catch (RuntimeException e) {
+            // סידור מחדש שנכשל לא מפיל את הריצה – ממשיכים עם הסדר הקיים
+            outcome = "failure";
+            logger.warn("⚠️ Reranker '{}' failed for '{}': {}", reranker.name(), context.getUsername(), e.getMessage());
+            return candidates;
+        } finally {
+            sample.stop(Timer.builder("recommendation.rerank.duration")
+                    .tag("reranker", reranker.name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private List<MovieDTO> fetch(RecommendationSource source, RecommendationContext context) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            List<MovieDTO> movies = source.fetch(context);
+            return movies != null ? movies : Collections.emptyList();
+        } catch (RuntimeException e) {
+            outcome = "failure";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("recommendation.source.duration")
+                    .tag("source", source.name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private List<MovieDTO> await(RecommendationSource source, Future<List<MovieDTO>> future, long start, String username) {
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(source.timeoutMs(), deadlineMs));
+        long remaining = budgetNanos - (System.nanoTime() - start);
+        try {
+            return future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            meterRegistry.counter("recommendation.source.timeouts", "source", source.name()).increment();
+            logger.warn("⏱️ Recommendation source '{}' missed its {} ms budget for '{}' – continuing without it",
+                    source.name(), Math.min(source.timeoutMs(), deadlineMs), username);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("⚠️ Recommendation source '{}' failed for '{}': {}",
+                    source.name(), username, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+        return Collections.emptyList();
+    }
+
+    // עוזר לדה-דופליקציה: קודם לפי id, אחרת לפי title מנורמל
+    private static String dedupeKey(MovieDTO m) {
+        if (m.getId() != null) return "id:" + m.getId();
+        if (m.getTitle() != null) return "t:" + m.getTitle().trim().toLowerCase(Locale.ROOT);
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package movieMentor.services;
+
+import movieMentor.beans.MovieDTO;
+
+import java.util.List;
+
+/**
+ * שלב סידור מחדש אחרי מיזוג המקורות.
+ *
+ * Run by {@link RecommendationPipeline} on the full merged list, in bean order, before it
+ * is cut to the requested length; each run is timed as {@code recommendation.rerank.duration}.
+ */
+public interface RecommendationReranker {
+
+    String name();
+
+    /**
+     * @param candidates merged results in source priority order, without duplicates
+     * @return at most {@code limit} movies, best first
+     */
+    List<MovieDTO> rerank(RecommendationContext context, List<MovieDTO> candidates, int limit);
+}
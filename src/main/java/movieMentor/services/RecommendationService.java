@@ -4,20 +4,17 @@ import lombok.RequiredArgsConstructor;
 import movieMentor.beans.Movie;
 import movieMentor.beans.User;
 import movieMentor.beans.MovieDTO;
-import movieMentor.enums.TopMoviesData;
+import movieMentor.beans.WatchEvent;
 import movieMentor.models.MovieImage;
 import movieMentor.repository.MovieRepository;
-import movieMentor.repository.UserRepository;
-import movieMentor.utils.EmbeddingUtils;
+import movieMentor.repository.WatchEventRepository;
+import movieMentor.utils.LongDoubleHashMap;
+import movieMentor.utils.TopKSelector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.cache.CacheManager;
-import org.springframework.context.event.EventListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,121 +24,60 @@ import java.util.stream.Collectors;
 public class RecommendationService {
 
     private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
-    private static final int OPENAI_EMBEDDING_DIMENSION = 1536; // ברירת מחדל עבור text-embedding-3-small וגם ada-002
+    private static final int SIMILAR_USERS_TOP_K = 10;
     private final OpenAiService openAiService;
-    private final TmdbService tmdbService;
-    private final EmbeddingService embeddingService;
-    private final EmbeddingStorageService embeddingStorageService;
     private final UserSimilarityService userSimilarityService;
-    private final UserRepository userRepository;
     private final MovieRepository movieRepository;
-    private final Map<String, float[]> candidateEmbeddings = new HashMap<>();
-    private final List<MovieDTO> candidates = new ArrayList<>();
-    private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    private final CandidatePoolManager candidatePoolManager;
+    private final WatchEventRepository watchEventRepository;
+    private final CollaborativeFilteringEngine collaborativeFilteringEngine;
 
-    @Autowired
-    private CacheManager cacheManager;
+    // משקל ציון ה-BM25 מול הקוסינוס בחיפוש עם מילות מפתח (0 = וקטורי בלבד)
+    @Value("${embedding.candidates.keyword-weight:0.3}")
+    private double keywordWeight;
 
-    public List<String> generateRecommendations(User user) {
-        // כותרות מהמועדפים
-        List<String> favoriteTitles = user.getFavoriteMovies().stream()
-                .map(Movie::getTitle)
-                .filter(Objects::nonNull)
-                .distinct()
-                .collect(Collectors.toList());
+    @Value("${embedding.candidates.hybrid-depth:200}")
+    private int hybridDepth;
 
-        // 30 אחרונים מהיסטוריה (JSON -> MovieDTO -> title)
-        List<String> historyTitles = Collections.emptyList();
-        List<String> history = user.getWatchHistoryJson();
-        if (history != null && !history.isEmpty()) {
-            int from = Math.max(0, history.size() - 30);
-            historyTitles = history.subList(from, history.size()).stream()
-                    .map(json -> {
-                        try {
-                            MovieDTO dto = objectMapper.readValue(json, MovieDTO.class);
-                            return dto.getTitle();
-                        } catch (Exception e) {
-                            return null; // מדלגים על רשומה פגומה
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .distinct()
-                    .collect(Collectors.toList());
-        }
+    public List<String> generateRecommendations(User user) {
+        return generateRecommendations(favoriteTitles(user), recentHistoryTitles(user));
+    }
 
+    public List<String> generateRecommendations(List<String> favoriteTitles, List<String> historyTitles) {
         return openAiService.getRecommendations(favoriteTitles, historyTitles);
     }
-@PostConstruct
-    public void initMovieCandidates() {
-        logger.info("🚀 Starting pre-loading of movie candidates...");
 
-        try {
-            List<MovieDTO> candidates = new ArrayList<>();
-
-            logger.info("retrieving now playing movies");
-            candidates.addAll(tmdbService.getNowPlayingMoviesDTO());
-
-            logger.info("retrieving upcoming movies");
-            candidates.addAll(tmdbService.getUpcomingMoviesDTO());
-
-            logger.info("retrieving top rated movies");
-            candidates.addAll(tmdbService.getTopRatedMoviesDTO());
-
-            for (TopMoviesData movieData : TopMoviesData.values()) {
-                MovieDTO movie = tmdbService.getOrCreateMovieDTO(movieData.getTitle());
-                if (movie != null) {
-                    logger.info("💿 movie {} was successfully downloaded", movie.getTitle());
-                    candidates.add(movie);
-
-                    if (!embeddingStorageService.hasEmbedding(movie.getId())) {
-                        logger.info("🎬 Adding embedding for movie from enum: {}", movie.getTitle());
-                        String overview = movie.getOverview();
-
-                        if (overview != null && !overview.trim().isEmpty()) {
-                            float[] embedding = embeddingService.getEmbedding(overview);
-                            if (embedding != null && embedding.length == OPENAI_EMBEDDING_DIMENSION) {
-                                embeddingStorageService.addEmbedding(movie.getId(), embedding);
-                                candidateEmbeddings.put(movie.getTitle(), embedding);
-                            } else {
-                                logger.warn("⚠️ Invalid or empty embedding for movie '{}'. Expected 768 dimensions. Skipped.", movie.getTitle());
-                            }
-                        } else {
-                            logger.warn("⚠️ Skipping embedding for movie '{}' due to missing or empty overview.", movie.getTitle());
-                        }
-                    } else {
-                        float[] existingEmbedding = embeddingStorageService.getEmbedding(movie.getId());
-                        if (existingEmbedding != null && existingEmbedding.length == OPENAI_EMBEDDING_DIMENSION) {
-                            candidateEmbeddings.put(movie.getTitle(), existingEmbedding);
-                            logger.info("ℹ️ Existing embedding for movie '{}' loaded into memory", movie.getTitle());
-                        } else {
-                            logger.warn("⚠️ Existing embedding for movie '{}' is invalid or wrong size. Skipped.", movie.getTitle());
-                        }
-                    }
-                } else {
-                    logger.warn("❌ Could not retrieve movie from TMDB for enum entry: {}", movieData.getTitle());
-                }
-            }
-
-            cacheManager.getCache("candidateMovies").put("all", new ArrayList<>(candidates));
-            logger.info("📦 candidateMovies cached in Redis");
-
-        } catch (Exception e) {
-            logger.error("❌ Error while preloading movie candidates", e);
-        }
-
-        logger.info("✅ Finished preloading {} movie candidates and their embeddings.", candidateEmbeddings.size());
+    /**
+     * צילום מצב של המשתמש למקורות ההמלצות – חייב לרוץ בתוך הטרנזקציה של הקורא.
+     */
+    public RecommendationContext buildContext(User user, float[] userVector) {
+        return RecommendationContext.builder()
+                .username(user.getUsername())
+                .userId(user.getId())
+                .favoriteTitles(Collections.unmodifiableList(favoriteTitles(user)))
+                .historyTitles(Collections.unmodifiableList(recentHistoryTitles(user)))
+                .currentRecommendations(Collections.unmodifiableList(new ArrayList<>(user.getRecommendedMovies())))
+                .excludedMovieIds(Collections.unmodifiableSet(excludedMovieIds(user)))
+                .userVector(userVector != null ? userVector : new float[0])
+                .build();
     }
 
-
-    @EventListener(ApplicationReadyEvent.class)
-    public void onApplicationFullyReady() {
-        logger.info("✅ RecommendationService and initial movies are fully ready.");
+    // כותרות מהמועדפים
+    private List<String> favoriteTitles(User user) {
+        return user.getFavoriteMovies().stream()
+                .map(Movie::getTitle)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
     }
 
-
-
-    public Map<String, float[]> getCandidateEmbeddings() {
-        return candidateEmbeddings;
+    // 30 אחרונים מהיסטוריה
+    private List<String> recentHistoryTitles(User user) {
+        return watchEventRepository.findRecent(user.getId(), 30).stream()
+                .map(WatchEvent::getTitle)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
     }
 
     @SuppressWarnings("unchecked")
@@ -176,55 +112,178 @@ public class RecommendationService {
         }
     }
 
-    public List<MovieDTO> findMostSimilarMovies(float[] userVector, List<MovieDTO> candidateMovies, int topN) {
-        if (userVector == null || userVector.length == 0) {
-            throw new IllegalArgumentException("User embedding is missing");
-        }
+    /**
+     * Ranks the whole candidate pool against the user vector.
+     */
+    public List<MovieDTO> findMostSimilarMovies(float[] userVector, int topN) {
+        return searchCandidatePool(candidatePoolManager.current(), userVector, topN, null);
+    }
 
-        List<Map.Entry<MovieDTO, Double>> scored = new ArrayList<>();
+    /**
+     * Ranks the candidates that pass {@code query}'s filters. Only the matching rows are
+     * scanned. With keywords, the BM25 score of the overview is blended into the cosine
+     * score ({@code embedding.candidates.keyword-weight}).
+     */
+    public List<MovieDTO> findMostSimilarMovies(float[] userVector, CandidateQuery query, int topN) {
+        CandidatePool pool = candidatePoolManager.current();
+        BitSet rows = pool.columns().filter(query.getGenreIdArray(),
+                query.getYearFrom() != null ? query.getYearFrom() : 0,
+                query.getYearTo() != null ? query.getYearTo() : 0,
+                query.getMinVotes() != null ? query.getMinVotes() : 0);
+        if (rows != null && rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!query.hasKeywords() || keywordWeight <= 0) {
+            return searchCandidatePool(pool, userVector, topN, rows);
+        }
+        return searchCandidatePoolHybrid(pool, userVector, query.getKeywords(), topN, rows);
+    }
 
+    /**
+     * Ranks only the given candidates. Movies that are not in the current pool are skipped;
+     * the pool itself grows on the scheduled refresh.
+     */
+    public List<MovieDTO> findMostSimilarMovies(float[] userVector, List<MovieDTO> candidateMovies, int topN) {
+        CandidatePool pool = candidatePoolManager.current();
+        BitSet rows = new BitSet(pool.size());
         for (MovieDTO movie : candidateMovies) {
-            float[] vector = embeddingStorageService.getEmbedding(movie.getId());
-            if (vector != null && vector.length == userVector.length) {
-                double similarity = EmbeddingUtils.cosineSimilarity(userVector, vector);
-                scored.add(Map.entry(movie, similarity));
+            if (movie == null || movie.getId() == null) continue;
+            int row = pool.index().rowOf(movie.getId());
+            if (row >= 0) {
+                rows.set(row);
             }
         }
+        return searchCandidatePool(pool, userVector, topN, rows);
+    }
 
-        scored.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+    // כל החיפוש רץ על אותה גרסה של המאגר, גם אם רענון מפרסם גרסה חדשה באמצע
+    private List<MovieDTO> searchCandidatePool(CandidatePool pool, float[] userVector, int topN, BitSet rows) {
+        if (!matchesIndex(pool, userVector)) {
+            return Collections.emptyList();
+        }
 
-        return scored.stream()
-                .limit(topN)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        int k = Math.max(0, topN);
+        long[] ids = new long[k];
+        float[] scores = new float[k];
+        int found = pool.index().search(userVector, k, rows, ids, scores);
+
+        List<MovieDTO> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            MovieDTO movie = pool.movie(ids[i]);
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
     }
 
-    public List<MovieDTO> getRecommendationsFromSimilarUsers(User user, int topUsers) {
-        List<Map<String, Object>> similarUsers = userSimilarityService.findUsersWithSimilarTaste(user, topUsers);
-        Map<String, Integer> movieFrequency = new HashMap<>();
+    /**
+     * (1 - w) * cosine + w * bm25 / max(bm25), over the union of the best
+     * {@code hybrid-depth} rows by cosine and by BM25. Keyword hits outside the cosine
+     * top rows get their cosine from a second index scan restricted to just those rows.
+     */
+    private List<MovieDTO> searchCandidatePoolHybrid(CandidatePool pool, float[] userVector, String keywords,
+                                                     int topN, BitSet rows) {
+        if (!matchesIndex(pool, userVector)) {
+            return Collections.emptyList();
+        }
+        int depth = Math.max(topN, hybridDepth);
+        long[] lexicalRows = new long[depth];
+        float[] lexicalScores = new float[depth];
+        int lexicalFound = pool.lexical().search(keywords, rows, depth, lexicalRows, lexicalScores);
+        if (lexicalFound == 0 || lexicalScores[0] <= 0) {
+            return searchCandidatePool(pool, userVector, topN, rows);
+        }
 
-        for (Map<String, Object> userMeta : similarUsers) {
-            String userId = (String) userMeta.get("user_id");
-            Optional<User> similarUser = userRepository.findById(Long.parseLong(userId));
+        long[] ids = new long[depth];
+        float[] cosines = new float[depth];
+        int found = pool.index().search(userVector, depth, rows, ids, cosines);
+        LongDoubleHashMap cosineById = new LongDoubleHashMap(found + lexicalFound);
+        for (int i = 0; i < found; i++) {
+            cosineById.put(ids[i], cosines[i]);
+        }
 
-            similarUser.ifPresent(u -> {
-                for (Movie fav : u.getFavoriteMovies()) {
-                    movieFrequency.merge(fav.getTitle(), 1, Integer::sum);
-                }
-            });
+        LongDoubleHashMap lexicalById = new LongDoubleHashMap(lexicalFound);
+        BitSet missing = new BitSet(pool.size());
+        for (int i = 0; i < lexicalFound; i++) {
+            int row = (int) lexicalRows[i];
+            long id = pool.movies().get(row).getId();
+            lexicalById.put(id, lexicalScores[i] / lexicalScores[0]);
+            if (!cosineById.containsKey(id)) {
+                missing.set(row);
+            }
+        }
+        if (!missing.isEmpty()) {
+            int extra = missing.cardinality();
+            long[] extraIds = new long[extra];
+            float[] extraCosines = new float[extra];
+            int extraFound = pool.index().search(userVector, extra, missing, extraIds, extraCosines);
+            for (int i = 0; i < extraFound; i++) {
+                cosineById.put(extraIds[i], extraCosines[i]);
+            }
         }
 
-        // מיון הסרטים לפי שכיחות והמרה ל־Movie
-        List<String> topTitles = movieFrequency.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(10)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        int k = Math.max(0, topN);
+        long[] topIds = new long[k];
+        float[] topScores = new float[k];
+        int top = 0;
+        for (int slot = cosineById.nextSlot(-1); slot >= 0; slot = cosineById.nextSlot(slot)) {
+            long id = cosineById.keyAt(slot);
+            double score = (1 - keywordWeight) * cosineById.valueAt(slot) + keywordWeight * lexicalById.get(id, 0);
+            top = TopKSelector.offer(topIds, topScores, top, k, id, (float) score);
+        }
+        TopKSelector.sortDescending(topIds, topScores, top);
 
-        return tmdbService.updateMovieListWithDifferences(user.getRecommendedMovies(), topTitles);
+        List<MovieDTO> result = new ArrayList<>(top);
+        for (int i = 0; i < top; i++) {
+            MovieDTO movie = pool.movie(topIds[i]);
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    private boolean matchesIndex(CandidatePool pool, float[] userVector) {
+        if (userVector == null || userVector.length == 0) {
+            throw new IllegalArgumentException("User embedding is missing");
+        }
+        if (userVector.length != pool.index().dimension()) {
+            logger.warn("⚠️ User embedding has {} dimensions, candidate index expects {}",
+                    userVector.length, pool.index().dimension());
+            return false;
+        }
+        return true;
+    }
+
+    public List<MovieDTO> getRecommendationsFromSimilarUsers(User user, int topUsers) {
+        // +1: המשתמש עצמו נמצא באינדקס ויחזור כתוצאה הקרובה ביותר
+        List<Map<String, Object>> similarUsers = userSimilarityService.findUsersWithSimilarTaste(user, topUsers + 1);
+        return collaborativeFilteringEngine.recommend(user.getId(), similarUsers, excludedMovieIds(user), SIMILAR_USERS_TOP_K);
+    }
+
+    public List<MovieDTO> getRecommendationsFromSimilarUsers(RecommendationContext context, int topUsers) {
+        if (!context.hasUserVector()) {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> similarUsers = userSimilarityService.findUsersWithSimilarTaste(
+                context.getUsername(), context.getUserVector(), topUsers + 1);
+        return collaborativeFilteringEngine.recommend(context.getUserId(), similarUsers,
+                context.getExcludedMovieIds(), SIMILAR_USERS_TOP_K);
+    }
+
+    // מועדפים + כל ההיסטוריה
+    private Set<Long> excludedMovieIds(User user) {
+        Set<Long> excluded = new HashSet<>(watchEventRepository.findWatchedMovieIds(user.getId()));
+        for (Movie movie : user.getFavoriteMovies()) {
+            if (movie != null && movie.getId() != null) {
+                excluded.add(movie.getId());
+            }
+        }
+        return excluded;
     }
 
     public List<MovieDTO> getCandidateMovies() {
-        return candidates;
+        return candidatePoolManager.current().movies();
     }
 }
\ No newline at end of file
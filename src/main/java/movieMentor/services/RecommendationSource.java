@@ -0,0 +1,29 @@
+package movieMentor.services;
+
+import movieMentor.beans.MovieDTO;
+
+import java.util.List;
+
+/**
+ * מקור המלצות אחד (וקטורי, GPT, משתמשים דומים...).
+ *
+ * Sources are run concurrently by {@link RecommendationPipeline}. Results are merged in
+ * ascending {@link #priority()} order, and a source that misses {@link #timeoutMs()}
+ * is dropped from that run.
+ */
+public interface RecommendationSource {
+
+    String name();
+
+    /**
+     * Lower values come first in the merged list.
+     */
+    int priority();
+
+    /**
+     * Time budget in milliseconds, measured from the start of the pipeline run.
+     */
+    long timeoutMs();
+
+    List<MovieDTO> fetch(RecommendationContext context);
+}
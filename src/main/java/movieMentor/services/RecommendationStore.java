@@ -0,0 +1,189 @@
+package movieMentor.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import movieMentor.beans.MovieDTO;
+import movieMentor.utils.RecommendationRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ההמלצות של כל משתמש, מחושבות מראש ונשמרות ב-Redis כרשומה בינארית אחת.
+ *
+ * A recompute writes one {@link RecommendationRecord} per user under
+ * {@code userRecs:<username>} with a single SET – a full list is under 400 bytes, so a
+ * delta saves nothing. The SET runs in a Lua compare-and-set on the record's
+ * {@code generatedAt}, so a writer that finishes late can't replace a newer record, and the
+ * read-path fallback only fills a missing record (SET NX). Records expire after
+ * {@code recommendation.store.ttl-days}. Reading is a single GET joined against the
+ * {@link MovieDtoDictionary}, so serving recommendations touches neither the database nor
+ * Hibernate.
+ */
+@Service
+public class RecommendationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationStore.class);
+    private static final String KEY_PREFIX = "userRecs:";
+
+    // KEYS[1] = רשומה, ARGV = ערך, generatedAt, גרסה, TTL במילישניות; 0 כשהרשומה השמורה חדשה יותר
+    private static final byte[] WRITE_IF_NEWER = (
+            "local stored = redis.call('GET', KEYS[1]) " +
+            "if stored and string.len(stored) >= " + RecommendationRecord.HEADER_BYTES + " " +
+            "and struct.unpack('>i4', stored) == tonumber(ARGV[3]) " +
+            "and struct.unpack('>i8', stored, 9) > tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[4]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MovieDtoDictionary movieDtoDictionary;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendation.store.ttl-days:30}")
+    private long ttlDays;
+
+    public RecommendationStore(RedisTemplate<String, Object> redisTemplate,
+                               MovieDtoDictionary movieDtoDictionary,
+                               MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.movieDtoDictionary = movieDtoDictionary;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * כמו {@link #write}, אבל רק אחרי commit כשיש טרנזקציה פעילה – כדי שהרשומה לא תקדים את ה-DB.
+     */
+    public void publish(String username, List<MovieDTO> movies, float[] scores) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(username, movies, scores);
+            return;
+        }
+        List<MovieDTO> snapshot = new ArrayList<>(movies);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write(username, snapshot, scores);
+            }
+        });
+    }
+
+    /**
+     * Replaces the stored record unless the one already there was generated later.
+     *
+     * @param scores one per movie, or null when unknown
+     */
+    public void write(String username, List<MovieDTO> movies, float[] scores) {
+        List<MovieDTO> valid = new ArrayList<>(movies.size());
+        RecommendationRecord record = pack(movies, scores, valid);
+
+        // ה-DTOs קודם, כדי שקורא שרואה את הרשומה החדשה ימצא אותם
+        movieDtoDictionary.putAll(valid);
+        byte[] value = record.encode();
+        try {
+            Long written = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands().eval(
+                    WRITE_IF_NEWER, ReturnType.INTEGER, 1, key(username), value,
+                    ascii(record.generatedAt()), ascii(RecommendationRecord.VERSION), ascii(ttl().toMillis())));
+            if (written != null && written == 0) {
+                meterRegistry.counter("recommendation.store.writes", "mode", "stale").increment();
+                logger.info("⏭️ Kept the newer materialized recommendations of '{}'", username);
+                return;
+            }
+            meterRegistry.counter("recommendation.store.writes", "mode", "full").increment();
+            logger.info("💾 Materialized {} recommendations for '{}'", record.size(), username);
+        } catch (Exception e) {
+            logger.error("❌ Redis error materializing recommendations for '{}': {}", username, e.getMessage());
+        }
+    }
+
+    /**
+     * נתיב הקריאה: ממלא רשומה חסרה מה-DB, ולעולם לא דורס רשומה שחישוב כתב בינתיים (SET NX).
+     */
+    public void writeIfAbsent(String username, List<MovieDTO> movies) {
+        List<MovieDTO> valid = new ArrayList<>(movies.size());
+        RecommendationRecord record = pack(movies, null, valid);
+
+        movieDtoDictionary.putAll(valid);
+        byte[] value = record.encode();
+        try {
+            Boolean written = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                    .set(key(username), value, Expiration.milliseconds(ttl().toMillis()), SetOption.ifAbsent()));
+            meterRegistry.counter("recommendation.store.writes", "mode",
+                    Boolean.TRUE.equals(written) ? "fallback" : "fallback-skipped").increment();
+        } catch (Exception e) {
+            logger.error("❌ Redis error materializing recommendations for '{}': {}", username, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the materialised list, or empty when there is no record or one of its movies can't be resolved
+     */
+    public Optional<List<MovieDTO>> read(String username) {
+        RecommendationRecord record;
+        try {
+            byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key(username)));
+            record = RecommendationRecord.decode(bytes);
+        } catch (Exception e) {
+            logger.error("❌ Redis error reading recommendations for '{}': {}", username, e.getMessage());
+            return Optional.empty();
+        }
+        if (record == null) {
+            return Optional.empty();
+        }
+
+        Map<Long, MovieDTO> movies = movieDtoDictionary.getAll(record.movieIds());
+        List<MovieDTO> result = new ArrayList<>(record.size());
+        for (long id : record.movieIds()) {
+            MovieDTO movie = movies.get(id);
+            if (movie == null) {
+                logger.warn("⚠️ Movie {} of the materialized recommendations for '{}' is not in the dictionary", id, username);
+                return Optional.empty();
+            }
+            result.add(movie);
+        }
+        return Optional.of(result);
+    }
+
+    // ה-DTOs עם מזהה נאספים ל-valid; הציונים נשארים מיושרים אליהם
+    private static RecommendationRecord pack(List<MovieDTO> movies, float[] scores, List<MovieDTO> valid) {
+        List<Float> validScores = new ArrayList<>(movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            MovieDTO movie = movies.get(i);
+            if (movie == null || movie.getId() == null) continue;
+            valid.add(movie);
+            validScores.add(scores != null && i < scores.length ? scores[i] : Float.NaN);
+        }
+        long[] ids = new long[valid.size()];
+        float[] packedScores = new float[valid.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = valid.get(i).getId();
+            packedScores[i] = validScores.get(i);
+        }
+        return new RecommendationRecord(ids, packedScores, System.currentTimeMillis());
+    }
+
+    private Duration ttl() {
+        return Duration.ofDays(ttlDays);
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] key(String username) {
+        return (KEY_PREFIX + username).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * מועדפים של משתמשים עם טעם דומה – עדיפות 3.
+ */
+@Component
+@RequiredArgsConstructor
+public class SimilarUsersRecommendationSource implements RecommendationSource {
+
+    private final RecommendationService recommendationService;
+
+    @Value("${recommendation.source.similar-users.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Override
+    public String name() {
+        return "similar-users";
+    }
+
+    @Override
+    public int priority() {
+        return 3;
+    }
+
+    @Override
+    public long timeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public List<MovieDTO> fetch(RecommendationContext context) {
+        return recommendationService.getRecommendationsFromSimilarUsers(context, 5);
+    }
+}
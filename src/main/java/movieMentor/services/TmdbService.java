@@ -5,7 +5,9 @@ import movieMentor.beans.Genre;
 import movieMentor.beans.Movie;
 import movieMentor.beans.MovieDTO;
 import movieMentor.models.MovieImage;
+import movieMentor.models.MovieSearchResponse;
 import org.springframework.cache.annotation.Cacheable;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Set;
@@ -16,10 +18,27 @@ public interface TmdbService {
      * Search for movies by a textual query from the TMDB API.
      *
      * @param query the search string
-     * @return a list of Movie entities with basic details and actors
+     * @return a list of Movie entities; movies already in the database are returned as stored,
+     *         the rest carry basic details only (no trailer, images or actors)
      */
     List<Movie> searchMovies(String query);
 
+    /**
+     * Lightweight search: one TMDB call, mapped straight from the search payload.
+     *
+     * @param query the search string
+     * @param page  TMDB result page, starting at 1
+     * @return a list of MovieDTOs (id, title, poster, overview)
+     */
+    List<MovieDTO> searchMovieDTOs(String query, int page);
+
+    /**
+     * Non-blocking variant of {@link #searchMovieDTOs(String, int)}.
+     *
+     * @return the mapped results; an empty list when TMDB fails
+     */
+    Mono<List<MovieDTO>> searchMovieDTOsAsync(String query, int page);
+
 //    List<MovieDTO> searchMoviesDtos(String query);
 
     List<Movie> searchMoviesDTO(String query);
@@ -33,9 +52,27 @@ public interface TmdbService {
      */
     Movie getOrCreateMovie(String title);
 
+    /**
+     * Get a fully populated movie by its TMDB ID, fetching details, trailer, images and cast
+     * in a single TMDB call when it is not in the database yet.
+     *
+     * @param movieId the TMDB movie ID
+     * @return a fully populated Movie entity
+     */
+    Movie getOrCreateMovieById(long movieId);
+
 
     MovieDTO getOrCreateMovieDTO(String title);
 
+    /**
+     * Resolve many titles at once: one Redis MGET for all of them, then concurrent TMDB
+     * searches (bounded by {@code tmdb.resolve.max-in-flight}) for the misses.
+     *
+     * @param titles movie titles, may contain duplicates
+     * @return one entry per input title, in order; null where the title could not be resolved
+     */
+    List<MovieDTO> resolveTitles(List<String> titles);
+
     /**
      * Fetch a list of now playing movies in Israel region.
      *
@@ -56,6 +93,17 @@ public interface TmdbService {
     @Cacheable(value = "upcomingMoviesDTO", unless = "#result == null or #result.isEmpty()")
     List<MovieDTO> getUpcomingMoviesDTO();
 
+    /**
+     * Fetch one raw page of a TMDB movie list, without caching – used to page through
+     * list and discover endpoints when growing the candidate pool.
+     *
+     * @param path endpoint relative to the API base URL, may carry its own query
+     *             (e.g. {@code /movie/popular} or {@code /discover/movie?sort_by=vote_count.desc})
+     * @param page TMDB result page, starting at 1
+     * @return the page, or null when TMDB fails
+     */
+    MovieSearchResponse getMovieListPage(String path, int page);
+
     /**
      * Update a user's recommended movies by replacing only the changed ones.
      *
@@ -14,23 +14,37 @@ import movieMentor.repository.ActorRepository;
 import movieMentor.repository.GenreRepository;
 import movieMentor.repository.MovieDtoRepository;
 import movieMentor.repository.MovieRepository;
+import movieMentor.utils.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Transactional
@@ -39,7 +53,7 @@ import java.util.stream.Collectors;
 public class TmdbServiceImpl implements TmdbService {
     private static final Logger logger = LoggerFactory.getLogger(TmdbServiceImpl.class);
     private final GenreRepository genreRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final WebClient webClient;
     private final MovieRepository movieRepository;
     private final ActorRepository actorRepository;
     private final EmbeddingStorageService embeddingStorageService;
@@ -55,6 +69,65 @@ public class TmdbServiceImpl implements TmdbService {
     @Value("${tmdb.api.base-url}")
     private String apiBaseUrl;
 
+    // כמה חיפושי TMDB במקביל בזמן פתרון רשימת כותרים
+    @Value("${tmdb.resolve.max-in-flight:4}")
+    private int resolveMaxInFlight;
+
+    @Value("${tmdb.resolve.timeout-ms:10000}")
+    private long resolveTimeoutMs;
+
+    // stale-while-revalidate: הערך נשמר ל-ttl-hours, וסימון ":fresh" ל-fresh-ttl-minutes.
+    // ערך בלי סימון מוגש מיד, ורענון אחד רץ ברקע.
+    @Value("${tmdb.cache.title.fresh-ttl-minutes:360}")
+    private long titleFreshTtlMinutes;
+
+    @Value("${tmdb.cache.title.ttl-hours:48}")
+    private long titleTtlHours;
+
+    @Value("${tmdb.cache.title.refresh-threads:2}")
+    private int titleRefreshThreads;
+
+    private static final String TITLE_CACHE_PREFIX = "movieDTO:title:";
+    private static final String FRESH_SUFFIX = ":fresh";
+
+    // קריאות זהות שרצות במקביל (אותו URL / אותו כותר) חולקות קריאה אחת ל-TMDB
+    private final SingleFlight<String, ResponseEntity<?>> tmdbFlights = new SingleFlight<>();
+    private final SingleFlight<String, MovieDTO> titleFlights = new SingleFlight<>();
+
+    private ExecutorService resolveExecutor;
+    // רענוני SWR ב-pool נפרד: worker של resolveTitles שמחכה ב-titleFlights לרענון של אותו כותר
+    // לא יכול לתפוס את ה-thread שהרענון צריך כדי לרוץ. Full queue -> the refresh is skipped.
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void initResolveExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        resolveExecutor = Executors.newFixedThreadPool(Math.max(1, resolveMaxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "tmdb-resolve-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int refreshThreads = Math.max(1, titleRefreshThreads);
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "tmdb-refresh-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdownResolveExecutor() {
+        if (resolveExecutor != null) {
+            resolveExecutor.shutdownNow();
+        }
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public List<Movie> searchMovies(String query) {
         String url = apiBaseUrl + "/search/movie?page=1&query=" + UriUtils.encode(query, StandardCharsets.UTF_8);
@@ -67,16 +140,52 @@ public class TmdbServiceImpl implements TmdbService {
         return fetchMoviesFromTmdb(url);
     }
 
+    @Override
+    public List<MovieDTO> searchMovieDTOs(String query, int page) {
+        List<TmdbMovie> results = searchTmdb(query, page);
+        return results.isEmpty() ? Collections.emptyList() : MovieDTO.TMDBmovieListToDtoList(results);
+    }
+
+    @Override
+    public Mono<List<MovieDTO>> searchMovieDTOsAsync(String query, int page) {
+        return getFromTmdbAsync(searchUrl(query, page), MovieSearchResponse.class)
+                .map(response -> {
+                    List<TmdbMovie> results = response.getBody() != null ? response.getBody().getResults() : null;
+                    return results == null || results.isEmpty()
+                            ? Collections.<MovieDTO>emptyList()
+                            : MovieDTO.TMDBmovieListToDtoList(results);
+                })
+                .onErrorResume(e -> {
+                    logger.error("❌ Failed to search TMDB for '{}': {}", query, e.getMessage());
+                    return Mono.just(Collections.emptyList());
+                });
+    }
+
     @Override
     public Movie getOrCreateMovie(String title) {
         return movieRepository.findAllByTitle(title).stream()
                 .findFirst()
                 .orElseGet(() -> {
-                    List<Movie> movies = searchMovies(title);
-                    if (movies.isEmpty()) {
+                    List<TmdbMovie> results = searchTmdb(title, 1);
+                    if (results.isEmpty()) {
                         throw new RuntimeException("Movie not found in TMDB: " + title);
                     }
-                    return movieRepository.saveAndFlush(movies.get(0));
+                    // רק התוצאה שנבחרה מועשרת (טריילר, תמונות, שחקנים) – בקריאה אחת
+                    TmdbMovie first = results.get(0);
+                    return movieRepository.findById(first.getId())
+                            .orElseGet(() -> movieRepository.saveAndFlush(buildMovieFromTmdb(first)));
+                });
+    }
+
+    @Override
+    public Movie getOrCreateMovieById(long movieId) {
+        return movieRepository.findById(movieId)
+                .orElseGet(() -> {
+                    JsonNode details = fetchMovieDetails(movieId);
+                    if (details == null) {
+                        throw new RuntimeException("Movie not found in TMDB: " + movieId);
+                    }
+                    return movieRepository.saveAndFlush(buildMovieFromDetails(details));
                 });
     }
 
@@ -120,22 +229,103 @@ public class TmdbServiceImpl implements TmdbService {
             throw new IllegalArgumentException("title is required");
         }
         String normalized = title.trim();
-        String cacheKey = "movieDTO:title:" + normalized.toLowerCase();
+        String cacheKey = titleCacheKey(normalized);
 
-        // קאש → החזר אם יש
+        // קאש → החזר אם יש (גם אם "מעופש" – אז רענון ברקע)
         try {
-            MovieDTO cached = (MovieDTO) redisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
+            List<Object> cached = redisTemplate.opsForValue().multiGet(List.of(cacheKey, cacheKey + FRESH_SUFFIX));
+            if (cached != null && cached.get(0) instanceof MovieDTO) {
                 logger.info("✅ Found MovieDTO in Redis for title: {}", normalized);
-                return cached; // ⬅️ ללא שמירה ל-DB (מטרה: לא לשמור כל סרט)
+                if (cached.get(1) == null) {
+                    refreshTitleInBackground(normalized);
+                }
+                return (MovieDTO) cached.get(0); // ⬅️ ללא שמירה ל-DB (מטרה: לא לשמור כל סרט)
             }
         } catch (Exception e) {
             logger.error("❌ Redis error while checking cache for title {}: {}", normalized, e.getMessage());
         }
 
-        // TMDB → המרה ל-DTO → קאש → החזרה (ללא DB)
+        return titleFlights.execute(cacheKey, () -> fetchMovieDTOFromTmdb(normalized));
+    }
+
+    @Override
+    public List<MovieDTO> resolveTitles(List<String> titles) {
+        List<MovieDTO> resolved = new ArrayList<>(Collections.nCopies(titles.size(), (MovieDTO) null));
+
+        // כותרים ייחודיים (לפי מפתח הקאש) → המיקומים שלהם ברשימה
+        Map<String, List<Integer>> positionsByKey = new LinkedHashMap<>();
+        Map<String, String> titleByKey = new HashMap<>();
+        for (int i = 0; i < titles.size(); i++) {
+            String title = titles.get(i);
+            if (title == null || title.trim().isEmpty()) continue;
+            String key = titleCacheKey(title.trim());
+            positionsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            titleByKey.putIfAbsent(key, title.trim());
+        }
+        if (positionsByKey.isEmpty()) {
+            return resolved;
+        }
+
+        // 1) MGET אחד לכל הכותרים + סימוני הטריות שלהם
+        List<String> keys = new ArrayList<>(positionsByKey.keySet());
+        List<String> lookup = new ArrayList<>(keys.size() * 2);
+        lookup.addAll(keys);
+        keys.forEach(key -> lookup.add(key + FRESH_SUFFIX));
+        List<Object> cached = null;
+        try {
+            cached = redisTemplate.opsForValue().multiGet(lookup);
+        } catch (Exception e) {
+            logger.error("❌ Redis error while reading {} titles: {}", keys.size(), e.getMessage());
+        }
+
+        Map<String, MovieDTO> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = cached != null && i < cached.size() ? cached.get(i) : null;
+            if (value instanceof MovieDTO) {
+                found.put(keys.get(i), (MovieDTO) value);
+                if (cached.size() > keys.size() + i && cached.get(keys.size() + i) == null) {
+                    refreshTitleInBackground(titleByKey.get(keys.get(i)));
+                }
+            } else {
+                misses.add(keys.get(i));
+            }
+        }
+        logger.info("✅ Resolved {}/{} titles from Redis, {} go to TMDB", found.size(), keys.size(), misses.size());
+
+        // 2) החסרים – חיפושי TMDB במקביל, עד max-in-flight בו-זמנית
+        Map<String, Future<MovieDTO>> pending = new LinkedHashMap<>();
+        for (String key : misses) {
+            String title = titleByKey.get(key);
+            pending.put(key, resolveExecutor.submit(() -> titleFlights.execute(key, () -> fetchMovieDTOFromTmdb(title))));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resolveTimeoutMs);
+        for (Map.Entry<String, Future<MovieDTO>> entry : pending.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                found.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+            } catch (Exception e) {
+                entry.getValue().cancel(true);
+                logger.warn("⚠️ Could not resolve title '{}': {}", titleByKey.get(entry.getKey()), e.getMessage());
+            }
+        }
+
+        positionsByKey.forEach((key, positions) -> {
+            MovieDTO dto = found.get(key);
+            for (int position : positions) {
+                resolved.set(position, dto);
+            }
+        });
+        return resolved;
+    }
+
+    // TMDB → המרה ל-DTO → קאש → החזרה (ללא DB)
+    private MovieDTO fetchMovieDTOFromTmdb(String normalized) {
         try {
-            List<MovieDTO> searchResults = MovieDTO.movieListToDtoList(searchMovies(normalized));
+            List<MovieDTO> searchResults = searchMovieDTOs(normalized, 1);
             if (searchResults == null || searchResults.isEmpty()) {
                 logger.warn("❌ No results found in TMDB for title: {}", normalized);
                 throw new RuntimeException("Movie not found: " + normalized);
@@ -143,12 +333,8 @@ public class TmdbServiceImpl implements TmdbService {
 
             MovieDTO movieDTO = searchResults.get(0);
 
-            try {
-                redisTemplate.opsForValue().set(cacheKey, movieDTO, java.time.Duration.ofHours(6));
-                logger.info("✅ Cached MovieDTO in Redis for title: {}", normalized);
-            } catch (Exception e) {
-                logger.error("❌ Redis error while setting cache for title {}: {}", normalized, e.getMessage());
-            }
+            cacheTitles(Map.of(titleCacheKey(normalized), movieDTO));
+            logger.info("✅ Cached MovieDTO in Redis for title: {}", normalized);
 
             return movieDTO;
 
@@ -158,6 +344,43 @@ public class TmdbServiceImpl implements TmdbService {
         }
     }
 
+    // רענון יחיד ברקע לכותר שהערך שלו כבר לא "טרי"
+    private void refreshTitleInBackground(String title) {
+        String key = titleCacheKey(title);
+        if (titleFlights.isInFlight(key)) {
+            return;
+        }
+        titleFlights.executeAsync(key, () -> fetchMovieDTOFromTmdb(title), refreshExecutor)
+                .whenComplete((dto, error) -> {
+                    if (error != null) {
+                        logger.warn("⚠️ Background refresh failed for title '{}': {}", title, error.getMessage());
+                    }
+                });
+    }
+
+    private <T> ResponseEntity<T> getFromTmdb(String url, Class<T> type) {
+        return getFromTmdbAsync(url, type).block();
+    }
+
+    /**
+     * GET ל-TMDB דרך ה-WebClient המשותף; קריאות זהות שרצות במקביל חולקות בקשה אחת.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<ResponseEntity<T>> getFromTmdbAsync(String url, Class<T> type) {
+        return Mono.defer(() -> Mono.fromFuture(tmdbFlights.executeFuture(type.getSimpleName() + " " + url,
+                        () -> webClient.get()
+                                .uri(URI.create(url))
+                                .headers(this::applyTmdbHeaders)
+                                .retrieve()
+                                .toEntity(type)
+                                .toFuture())))
+                .map(response -> (ResponseEntity<T>) response);
+    }
+
+    private static String titleCacheKey(String title) {
+        return TITLE_CACHE_PREFIX + title.trim().toLowerCase();
+    }
+
 
 
 
@@ -168,7 +391,7 @@ public class TmdbServiceImpl implements TmdbService {
 
         try {
             ResponseEntity<MovieSearchResponse> response =
-                    restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), MovieSearchResponse.class);
+                    getFromTmdb(url, MovieSearchResponse.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 List<TmdbMovie> results = response.getBody().getResults();
@@ -190,7 +413,7 @@ public class TmdbServiceImpl implements TmdbService {
         String url = apiBaseUrl + "/movie/top_rated?language=en-US&page=1";
         try {
             ResponseEntity<MovieSearchResponse> response =
-                    restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), MovieSearchResponse.class);
+                    getFromTmdb(url, MovieSearchResponse.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 List<TmdbMovie> results = response.getBody().getResults();
@@ -210,7 +433,7 @@ public class TmdbServiceImpl implements TmdbService {
         String url = apiBaseUrl + "/movie/upcoming?language=en-US&region=IL";
         try {
             ResponseEntity<MovieSearchResponse> response =
-                    restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), MovieSearchResponse.class);
+                    getFromTmdb(url, MovieSearchResponse.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 List<TmdbMovie> results = response.getBody().getResults();
@@ -224,88 +447,146 @@ public class TmdbServiceImpl implements TmdbService {
     }
 
 
+    @Override
+    public MovieSearchResponse getMovieListPage(String path, int page) {
+        String url = apiBaseUrl + path + (path.indexOf('?') >= 0 ? "&" : "?")
+                + "language=en-US&page=" + Math.max(1, page);
+        try {
+            ResponseEntity<MovieSearchResponse> response = getFromTmdb(url, MovieSearchResponse.class);
+            if (response.getStatusCode() == HttpStatus.OK) {
+                return response.getBody();
+            }
+        } catch (Exception e) {
+            logger.warn("❌ Failed to fetch {} page {}: {}", path, page, e.getMessage());
+        }
+        return null;
+    }
+
     @Override
     public List<MovieDTO> updateMovieListWithDifferences(List<MovieDTO> oldList, List<String> newTitles) {
-        // שמות הכותרים הקיימים ברשימה הישנה
-        List<String> currentTitles = oldList.stream()
-                .map(MovieDTO::getTitle)
-                .collect(java.util.stream.Collectors.toList());
+        // אינדקס כותר → DTO של הרשימה הישנה (במקום חיפוש ליניארי לכל כותר)
+        Map<String, MovieDTO> currentByTitle = new HashMap<>();
+        for (MovieDTO movie : oldList) {
+            if (movie != null && movie.getTitle() != null) {
+                currentByTitle.putIfAbsent(movie.getTitle(), movie);
+            }
+        }
 
-        List<MovieDTO> updatedList = new java.util.ArrayList<>();
-        int index = 0;
+        // כותרים "חדשים" לרשימת ההמלצות נפתרים יחד: MGET אחד + TMDB במקביל
+        List<String> newcomers = newTitles.stream()
+                .filter(title -> title != null && !currentByTitle.containsKey(title))
+                .distinct()
+                .collect(Collectors.toList());
+        List<MovieDTO> resolved = resolveTitles(newcomers);
 
-        for (String newTitle : newTitles) {
-            try {
-                if (currentTitles.contains(newTitle)) {
-                    // השאר את ה-DTO הקיים (לא שומרים שוב)
-                    MovieDTO movie = oldList.stream()
-                            .filter(m -> m.getTitle().equals(newTitle))
-                            .findFirst()
-                            .orElseThrow();
-                    updatedList.add(movie);
+        // upsert ל-DB (שומרים רק המלצות) – findAllById + saveAll אחד
+        Map<Long, MovieDTO> toSave = new LinkedHashMap<>();
+        for (MovieDTO dto : resolved) {
+            if (dto != null && dto.getId() != null) {
+                toSave.putIfAbsent(dto.getId(), dto);
+            }
+        }
+        Map<Long, MovieDTO> persistedById = new HashMap<>();
+        if (!toSave.isEmpty()) {
+            Map<Long, MovieDTO> existing = new HashMap<>();
+            movieDtoRepository.findAllById(toSave.keySet()).forEach(db -> existing.put(db.getId(), db));
+
+            List<MovieDTO> batch = new ArrayList<>(toSave.size());
+            for (MovieDTO dto : toSave.values()) {
+                MovieDTO db = existing.get(dto.getId());
+                if (db != null) {
+                    db.setTitle(dto.getTitle());
+                    db.setPosterUrl(dto.getPosterUrl());
+                    db.setVoteAverage(dto.getVoteAverage());
+                    // חיתוך overview ל-255 כדי לא להפיל MySQL
+                    db.setOverview(truncateOverview(dto.getOverview()));
+                    batch.add(db);
                 } else {
-                    // זהו סרט "חדש" לרשימת ההמלצות → משוך DTO (קאש/TMDB) ואז פרסיסט ל-DB
-                    MovieDTO dto = getOrCreateMovieDTO(newTitle); // ⬅️ משיגים DTO (ללא DB)
-                    if (dto == null) {
-                        logger.warn("⚠️ Skipping null DTO for title '{}'", newTitle);
-                    } else {
-                        // upsert ל-DB (שומרים רק המלצות)
-                        MovieDTO persisted = movieDtoRepository.findById(dto.getId())
-                                .map(db -> {
-                                    db.setTitle(dto.getTitle());
-                                    db.setPosterUrl(dto.getPosterUrl());
-                                    db.setVoteAverage(dto.getVoteAverage());
-                                    // חיתוך overview ל-255 כדי לא להפיל MySQL
-                                    String ov = dto.getOverview();
-                                    if (ov != null && ov.length() > 255) ov = ov.substring(0, 255);
-                                    db.setOverview(ov);
-                                    return db;
-                                })
-                                .orElseGet(() -> {
-                                    // חיתוך overview גם ב-insert ראשון
-                                    String ov = dto.getOverview();
-                                    if (ov != null && ov.length() > 255) {
-                                        dto.setOverview(ov.substring(0, 255));
-                                    }
-                                    return dto;
-                                });
-
-                        persisted = movieDtoRepository.save(persisted);
-
-                        // עדכן קאש עם הגרסה הנשמרת
-                        try {
-                            String cacheKey = "movieDTO:title:" + newTitle.toLowerCase();
-                            redisTemplate.opsForValue().set(cacheKey, persisted, java.time.Duration.ofHours(6));
-                        } catch (Exception e) {
-                            logger.error("❌ Redis error caching persisted title {}: {}", newTitle, e.getMessage());
-                        }
-
-                        updatedList.add(persisted);
-                    }
+                    // חיתוך overview גם ב-insert ראשון
+                    dto.setOverview(truncateOverview(dto.getOverview()));
+                    batch.add(dto);
                 }
+            }
+            try {
+                movieDtoRepository.saveAll(batch).forEach(saved -> persistedById.put(saved.getId(), saved));
             } catch (RuntimeException ex) {
+                logger.warn("⚠️ Failed to persist {} recommended movies: {}", batch.size(), ex.getMessage());
+            }
+        }
+
+        // עדכן קאש עם הגרסאות הנשמרות
+        Map<String, MovieDTO> toCache = new LinkedHashMap<>();
+        for (int i = 0; i < newcomers.size(); i++) {
+            MovieDTO dto = resolved.get(i);
+            MovieDTO persisted = dto != null ? persistedById.get(dto.getId()) : null;
+            if (persisted != null && !newcomers.get(i).trim().isEmpty()) {
+                toCache.put(titleCacheKey(newcomers.get(i)), persisted);
+            }
+        }
+        cacheTitles(toCache);
+
+        List<MovieDTO> updatedList = new ArrayList<>(newTitles.size());
+        Map<String, MovieDTO> newcomerByTitle = new HashMap<>();
+        for (int i = 0; i < newcomers.size(); i++) {
+            MovieDTO dto = resolved.get(i);
+            if (dto != null) {
+                newcomerByTitle.put(newcomers.get(i), persistedById.get(dto.getId()));
+            }
+        }
+        for (String newTitle : newTitles) {
+            MovieDTO movie = newTitle != null ? currentByTitle.get(newTitle) : null;
+            if (movie == null) {
+                movie = newcomerByTitle.get(newTitle);
+            }
+            if (movie != null) {
+                updatedList.add(movie);
+            } else {
                 // לא מפילים את כל הרשימה על כותר בודד
-                logger.warn("⚠️ Skipping title '{}' due to error: {}", newTitle, ex.getMessage());
+                logger.warn("⚠️ Skipping title '{}' – could not resolve or persist it", newTitle);
             }
-            index++;
         }
 
         return updatedList;
     }
 
+    private static String truncateOverview(String overview) {
+        return overview != null && overview.length() > DB_OVERVIEW_MAX ? overview.substring(0, DB_OVERVIEW_MAX) : overview;
+    }
+
+    // כתיבה של כל הכותרים ב-round trip אחד (pipeline)
+    private void cacheTitles(Map<String, MovieDTO> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    Duration ttl = Duration.ofHours(titleTtlHours);
+                    Duration freshTtl = Duration.ofMinutes(titleFreshTtlMinutes);
+                    entries.forEach((key, dto) -> {
+                        ops.opsForValue().set(key, dto, ttl);
+                        ops.opsForValue().set(key + FRESH_SUFFIX, System.currentTimeMillis(), freshTtl);
+                    });
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            logger.error("❌ Redis error caching {} persisted titles: {}", entries.size(), e.getMessage());
+        }
+    }
+
 
 
     @Override
     public String fetchTrailerUrl(Long movieId) {
         String url = apiBaseUrl + "/movie/" + movieId + "/videos?language=en-US";
         try {
-            ResponseEntity<JsonNode> response = restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), JsonNode.class);
+            ResponseEntity<JsonNode> response = getFromTmdb(url, JsonNode.class);
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                for (JsonNode video : response.getBody().get("results")) {
-                    if ("Trailer".equals(video.get("type").asText()) && "YouTube".equals(video.get("site").asText())) {
-                        return "https://www.youtube.com/embed/" + video.get("key").asText();
-                    }
-                }
+                return parseTrailerUrl(response.getBody());
             }
         } catch (Exception e) {
             logger.warn("Failed to fetch trailer for movieId {}: {}", movieId, e.getMessage());
@@ -317,34 +598,10 @@ public class TmdbServiceImpl implements TmdbService {
     public List<MovieImage> fetchImagesForMovie(Long movieId) {
         String url = apiBaseUrl + "/movie/" + movieId + "/images";
         try {
-            ResponseEntity<JsonNode> response = restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), JsonNode.class);
+            ResponseEntity<JsonNode> response = getFromTmdb(url, JsonNode.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<MovieImage> images = new ArrayList<>();
-                Map<String, JsonNode> sections = Map.of(
-                        "backdrop", response.getBody().get("backdrops"),
-                        "poster", response.getBody().get("posters"),
-                        "logo", response.getBody().get("logos")
-                );
-
-                sections.forEach((type, arrayNode) -> {
-                    if (arrayNode != null && arrayNode.isArray()) {
-                        int count = 0;
-                        for (JsonNode node : arrayNode) {
-                            if (count >= 10) break;
-                            if (node.hasNonNull("file_path")) {
-                                String path = node.get("file_path").asText();
-                                images.add(MovieImage.builder()
-                                        .type(type)
-                                        .url("https://image.tmdb.org/t/p/w780" + path)
-                                        .build());
-                                count++;
-                            }
-                        }
-                    }
-                });
-
-                return images;
+                return parseImages(response.getBody());
             }
         } catch (Exception e) {
             logger.warn("❌ Failed to fetch images for movieId {}: {}", movieId, e.getMessage());
@@ -357,30 +614,9 @@ public class TmdbServiceImpl implements TmdbService {
     public List<Actor> getActorsForMovie(Long movieId) {
         String url = apiBaseUrl + "/movie/" + movieId + "/credits";
         try {
-            ResponseEntity<JsonNode> response = restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), JsonNode.class);
+            ResponseEntity<JsonNode> response = getFromTmdb(url, JsonNode.class);
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<Actor> actors = new ArrayList<>();
-                JsonNode cast = response.getBody().get("cast");
-                for (int i = 0; i < Math.min(24, cast.size()); i++) {
-                    JsonNode actorNode = cast.get(i);
-                    String name = actorNode.get("name").asText();
-                    String imagePath = actorNode.hasNonNull("profile_path") ? actorNode.get("profile_path").asText() : null;
-
-                    Long tmdbId = actorNode.get("id").asLong();
-                    Long id = actorNode.get("id").asLong();
-
-                    Actor actor = actorRepository.findByTmdbId(tmdbId).orElseGet(() -> {
-                        Actor newActor = new Actor();
-                        newActor.setId(id);
-//                        newActor.setTmdbId(tmdbId);
-                        newActor.setName(name);
-                        newActor.setImageUrl(imagePath != null ? "https://image.tmdb.org/t/p/w500" + imagePath : null);
-                        return actorRepository.saveAndFlush(newActor);
-                    });
-
-                    actors.add(actor);
-                }
-                return actors;
+                return parseActors(response.getBody());
             }
         } catch (Exception e) {
             logger.warn("Error fetching actors for movieId {}: {}", movieId, e.getMessage());
@@ -413,7 +649,7 @@ public class TmdbServiceImpl implements TmdbService {
                 "&sort_by=popularity.desc&page=" + page;
         try {
             ResponseEntity<MovieSearchResponse> response =
-                    restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), MovieSearchResponse.class);
+                    getFromTmdb(url, MovieSearchResponse.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 List<TmdbMovie> results = response.getBody().getResults();
@@ -433,22 +669,37 @@ public class TmdbServiceImpl implements TmdbService {
         return movieRepository.saveAndFlush(movie);
     }
 
+    // תוצאות חיפוש "רזות": סרט שכבר ב-DB מוחזר משם, השאר בלי קריאות TMDB נוספות
     private List<Movie> fetchMoviesFromTmdb(String url) {
+        List<TmdbMovie> results = fetchTmdbResults(url);
+        if (results.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Movie> known = new HashMap<>();
+        movieRepository.findAllById(results.stream().map(TmdbMovie::getId).collect(Collectors.toList()))
+                .forEach(movie -> known.put(movie.getId(), movie));
+        return results.stream()
+                .map(tmdbMovie -> known.getOrDefault(tmdbMovie.getId(), buildBasicMovie(tmdbMovie)))
+                .collect(Collectors.toList());
+    }
+
+    private List<TmdbMovie> searchTmdb(String query, int page) {
+        return fetchTmdbResults(searchUrl(query, page));
+    }
+
+    private String searchUrl(String query, int page) {
+        return apiBaseUrl + "/search/movie?page=" + Math.max(1, page)
+                + "&query=" + UriUtils.encode(query, StandardCharsets.UTF_8);
+    }
+
+    private List<TmdbMovie> fetchTmdbResults(String url) {
         try {
             ResponseEntity<MovieSearchResponse> response =
-                    restTemplate.exchange(url, HttpMethod.GET, createRequestEntity(), MovieSearchResponse.class);
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<TmdbMovie> results = response.getBody().getResults();
-                if (results == null || results.isEmpty()) {
-                    return Collections.emptyList();
-                }
+                    getFromTmdb(url, MovieSearchResponse.class);
 
-                return results.stream()
-                        .map(tmdbMovie -> movieRepository.findById(tmdbMovie.getId())
-                                .orElseGet(() -> buildMovieFromTmdb(tmdbMovie)))
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null
+                    && response.getBody().getResults() != null) {
+                return response.getBody().getResults();
             }
         } catch (Exception e) {
             logger.error("Error fetching movies from TMDB: {}", e.getMessage(), e);
@@ -456,13 +707,25 @@ public class TmdbServiceImpl implements TmdbService {
         return Collections.emptyList();
     }
 
+    /**
+     * פרטי סרט מלאים בקריאה אחת: videos, images ו-credits דרך append_to_response.
+     */
+    private JsonNode fetchMovieDetails(long movieId) {
+        String url = apiBaseUrl + "/movie/" + movieId
+                + "?language=en-US&append_to_response=videos,images,credits&include_image_language=en,null";
+        try {
+            ResponseEntity<JsonNode> response = getFromTmdb(url, JsonNode.class);
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+                return response.getBody();
+            }
+        } catch (Exception e) {
+            logger.warn("❌ Failed to fetch details for movieId {}: {}", movieId, e.getMessage());
+        }
+        return null;
+    }
+
     private List<Movie> fetchMovieListFromTmdbJson(String url) {
-        ResponseEntity<MovieSearchResponse> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                createRequestEntity(),
-                MovieSearchResponse.class
-        );
+        ResponseEntity<MovieSearchResponse> response = getFromTmdb(url, MovieSearchResponse.class);
 
         return response.getBody().getResults().stream()
                 .map(this::buildMovieFromTmdb)
@@ -490,7 +753,7 @@ public class TmdbServiceImpl implements TmdbService {
 //        return candidates;
 //    }
 
-    private Movie buildMovieFromTmdb(TmdbMovie tmdbMovie) {
+    private Movie buildBasicMovie(TmdbMovie tmdbMovie) {
         return Movie.builder()
                 .id(tmdbMovie.getId())
                 .title(tmdbMovie.getTitle())
@@ -501,13 +764,111 @@ public class TmdbServiceImpl implements TmdbService {
                 .popularity(tmdbMovie.getPopularity())
                 .voteAverage(tmdbMovie.getVoteAverage())
                 .voteCount(tmdbMovie.getVoteCount())
-                .trailerUrl(fetchTrailerUrl(tmdbMovie.getId()))
-                .imageUrls(fetchImagesForMovie(tmdbMovie.getId()))
-                .actors(getActorsForMovie(tmdbMovie.getId()))
-                .genres(resolveGenres(tmdbMovie.getGenreIds()))
                 .build();
     }
 
+    private Movie buildMovieFromTmdb(TmdbMovie tmdbMovie) {
+        Movie movie = buildBasicMovie(tmdbMovie);
+        enrich(movie, fetchMovieDetails(tmdbMovie.getId()));
+        movie.setGenres(resolveGenres(tmdbMovie.getGenreIds()));
+        return movie;
+    }
+
+    private Movie buildMovieFromDetails(JsonNode details) {
+        List<Integer> genreIds = new ArrayList<>();
+        for (JsonNode genre : details.path("genres")) {
+            genreIds.add(genre.path("id").asInt());
+        }
+        Movie movie = Movie.builder()
+                .id(details.path("id").asLong())
+                .title(details.path("title").asText(null))
+                .originalTitle(details.path("original_title").asText(null))
+                .overview(details.path("overview").asText(null))
+                .posterUrl("https://image.tmdb.org/t/p/w500" + details.path("poster_path").asText(null))
+                .releaseDate(parseDate(details.path("release_date").asText(null)))
+                .popularity(details.path("popularity").asDouble())
+                .voteAverage(details.path("vote_average").asDouble())
+                .voteCount(details.path("vote_count").asInt())
+                .build();
+        enrich(movie, details);
+        movie.setGenres(resolveGenres(genreIds));
+        return movie;
+    }
+
+    // טריילר, תמונות ושחקנים מתוך תשובת append_to_response (אם הקריאה נכשלה – נשארים ריקים)
+    private void enrich(Movie movie, JsonNode details) {
+        if (details == null) {
+            movie.setTrailerUrl("");
+            movie.setImageUrls(new ArrayList<>());
+            return;
+        }
+        movie.setTrailerUrl(parseTrailerUrl(details.path("videos")));
+        movie.setImageUrls(parseImages(details.path("images")));
+        movie.setActors(new HashSet<>(parseActors(details.path("credits"))));
+    }
+
+    private String parseTrailerUrl(JsonNode videos) {
+        for (JsonNode video : videos.path("results")) {
+            if ("Trailer".equals(video.path("type").asText()) && "YouTube".equals(video.path("site").asText())) {
+                return "https://www.youtube.com/embed/" + video.path("key").asText();
+            }
+        }
+        return "";
+    }
+
+    private List<MovieImage> parseImages(JsonNode body) {
+        List<MovieImage> images = new ArrayList<>();
+        Map<String, JsonNode> sections = Map.of(
+                "backdrop", body.path("backdrops"),
+                "poster", body.path("posters"),
+                "logo", body.path("logos")
+        );
+
+        sections.forEach((type, arrayNode) -> {
+            if (arrayNode != null && arrayNode.isArray()) {
+                int count = 0;
+                for (JsonNode node : arrayNode) {
+                    if (count >= 10) break;
+                    if (node.hasNonNull("file_path")) {
+                        String path = node.get("file_path").asText();
+                        images.add(MovieImage.builder()
+                                .type(type)
+                                .url("https://image.tmdb.org/t/p/w780" + path)
+                                .build());
+                        count++;
+                    }
+                }
+            }
+        });
+
+        return images;
+    }
+
+    private List<Actor> parseActors(JsonNode credits) {
+        List<Actor> actors = new ArrayList<>();
+        JsonNode cast = credits.path("cast");
+        for (int i = 0; i < Math.min(24, cast.size()); i++) {
+            JsonNode actorNode = cast.get(i);
+            String name = actorNode.get("name").asText();
+            String imagePath = actorNode.hasNonNull("profile_path") ? actorNode.get("profile_path").asText() : null;
+
+            Long tmdbId = actorNode.get("id").asLong();
+            Long id = actorNode.get("id").asLong();
+
+            Actor actor = actorRepository.findByTmdbId(tmdbId).orElseGet(() -> {
+                Actor newActor = new Actor();
+                newActor.setId(id);
+//                newActor.setTmdbId(tmdbId);
+                newActor.setName(name);
+                newActor.setImageUrl(imagePath != null ? "https://image.tmdb.org/t/p/w500" + imagePath : null);
+                return actorRepository.saveAndFlush(newActor);
+            });
+
+            actors.add(actor);
+        }
+        return actors;
+    }
+
 
     private LocalDate parseDate(String dateStr) {
         try {
@@ -518,11 +879,9 @@ public class TmdbServiceImpl implements TmdbService {
         }
     }
 
-    private HttpEntity<String> createRequestEntity() {
-        HttpHeaders headers = new HttpHeaders();
+    private void applyTmdbHeaders(HttpHeaders headers) {
         headers.set("Authorization", "Bearer " + apiToken);
         headers.set("Accept", "application/json");
-        return new HttpEntity<>(headers);
     }
 
 }
@@ -0,0 +1,343 @@
+package movieMentor.services;
+
+import movieMentor.beans.Movie;
+import movieMentor.beans.ProfileContribution;
+import movieMentor.beans.User;
+import movieMentor.beans.UserProfileAggregate;
+import movieMentor.beans.WatchEvent;
+import movieMentor.repository.UserProfileAggregateRepository;
+import movieMentor.repository.WatchEventRepository;
+import movieMentor.utils.EmbeddingUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * מתחזק את וקטור הפרופיל של המשתמש באופן מצטבר.
+ *
+ * Each favourite (weight 2) and each of the last {@value #HISTORY_WINDOW} history entries
+ * (weight 1) is added to or subtracted from a persisted weighted sum when it enters or
+ * leaves the profile, so a mutation costs O(dimension) and reading the profile is one
+ * division. The persisted collections are changed in place (ring slot overwrite for the
+ * history window, swap-with-last for favourites), so a mutation writes one or two rows. Movies without an embedding yet are recorded as pending and folded in once
+ * their embedding exists. The sum is rebuilt from scratch every
+ * {@code user-profile.rebuild-every-mutations} updates to shed accumulated rounding error.
+ * Every counted movie keeps a fingerprint of the vector that went into the sum; if the
+ * movie has been re-embedded since, it can't be subtracted exactly and the sum is rebuilt.
+ */
+@Service
+@Transactional
+public class UserProfileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserProfileService.class);
+
+    public static final float FAVORITE_WEIGHT = 2.0f;
+    public static final float HISTORY_WEIGHT = 1.0f;
+    public static final int HISTORY_WINDOW = 30;
+    private static final int EMBEDDING_DIMENSION = 1536;
+    // 2: מועדפים עם עמודת סדר וטביעת אצבע לכל תרומה
+    private static final int FORMAT_VERSION = 2;
+
+    private final UserProfileAggregateRepository aggregateRepository;
+    private final EmbeddingStorageService embeddingStorageService;
+    private final WatchEventRepository watchEventRepository;
+
+    @Value("${user-profile.rebuild-every-mutations:500}")
+    private int rebuildEveryMutations;
+
+    public UserProfileService(UserProfileAggregateRepository aggregateRepository,
+                              EmbeddingStorageService embeddingStorageService,
+                              WatchEventRepository watchEventRepository) {
+        this.aggregateRepository = aggregateRepository;
+        this.embeddingStorageService = embeddingStorageService;
+        this.watchEventRepository = watchEventRepository;
+    }
+
+    /**
+     * נקרא אחרי שהסרט כבר נוסף ל-{@code user.getFavoriteMovies()}.
+     */
+    public void favoriteAdded(User user, Long movieId) {
+        if (movieId == null) return;
+        Optional<UserProfileAggregate> existing = aggregateRepository.findForUpdate(user.getId());
+        if (!existing.isPresent() || isStale(existing.get())) {
+            rebuild(user);
+            return;
+        }
+        UserProfileAggregate aggregate = existing.get();
+        float[] sum = decode(aggregate.getWeightedSum());
+        aggregate.getFavorites().add(add(aggregate, sum, movieId, FAVORITE_WEIGHT));
+        save(aggregate, sum, user, true);
+    }
+
+    /**
+     * נקרא אחרי שהסרט כבר הוסר מ-{@code user.getFavoriteMovies()}.
+     */
+    public void favoriteRemoved(User user, Long movieId) {
+        if (movieId == null) return;
+        Optional<UserProfileAggregate> existing = aggregateRepository.findForUpdate(user.getId());
+        if (!existing.isPresent() || isStale(existing.get())) {
+            rebuild(user);
+            return;
+        }
+        UserProfileAggregate aggregate = existing.get();
+        float[] sum = decode(aggregate.getWeightedSum());
+        boolean exact = true;
+        List<ProfileContribution> favorites = aggregate.getFavorites();
+        for (int i = favorites.size() - 1; i >= 0; i--) {
+            if (movieId.equals(favorites.get(i).getMovieId())) {
+                exact &= subtract(aggregate, sum, favorites.get(i), FAVORITE_WEIGHT);
+                // האחרון עובר למקום שהתפנה – בלי להזיז את שאר האינדקסים
+                int last = favorites.size() - 1;
+                if (i != last) {
+                    favorites.set(i, favorites.get(last));
+                }
+                favorites.remove(last);
+            }
+        }
+        save(aggregate, sum, user, exact);
+    }
+
+    /**
+     * נקרא אחרי שה-{@link WatchEvent} החדש כבר נשמר.
+     */
+    public void historyAppended(User user, Long movieId) {
+        if (movieId == null) return;
+        Optional<UserProfileAggregate> existing = aggregateRepository.findForUpdate(user.getId());
+        if (!existing.isPresent() || isStale(existing.get())) {
+            rebuild(user);
+            return;
+        }
+        UserProfileAggregate aggregate = existing.get();
+        float[] sum = decode(aggregate.getWeightedSum());
+        List<ProfileContribution> window = aggregate.getHistoryWindow();
+        ProfileContribution added = add(aggregate, sum, movieId, HISTORY_WEIGHT);
+        boolean exact = true;
+        if (window.size() < HISTORY_WINDOW) {
+            window.add(added);
+        } else {
+            // החלון מלא: דורסים את התא של הישן ביותר במקום
+            int head = aggregate.getHistoryHead() == null ? 0 : aggregate.getHistoryHead();
+            exact = subtract(aggregate, sum, window.set(head, added), HISTORY_WEIGHT);
+            aggregate.setHistoryHead((head + 1) % HISTORY_WINDOW);
+        }
+        save(aggregate, sum, user, exact);
+    }
+
+    /**
+     * @return the weighted mean of the profile's movie embeddings, or an empty array when none have one
+     */
+    public float[] profileVector(User user) {
+        UserProfileAggregate aggregate = aggregateRepository.findById(user.getId()).orElse(null);
+        if (aggregate == null || isStale(aggregate)) {
+            aggregate = rebuild(user);
+        } else if (hasResolvablePending(aggregate)) {
+            aggregate = aggregateRepository.findForUpdate(user.getId()).orElse(aggregate);
+            float[] sum = decode(aggregate.getWeightedSum());
+            int resolved = resolvePending(aggregate, sum, aggregate.getFavorites(), FAVORITE_WEIGHT)
+                    + resolvePending(aggregate, sum, aggregate.getHistoryWindow(), HISTORY_WEIGHT);
+            if (resolved > 0) {
+                aggregate.setWeightedSum(encode(sum));
+                aggregateRepository.save(aggregate);
+            }
+        }
+
+        if (aggregate.getTotalWeight() <= 0) {
+            logger.warn("⚠️ No valid embeddings found for user '{}'", user.getUsername());
+            return new float[0];
+        }
+        return mean(aggregate);
+    }
+
+    /**
+     * וקטור הפרופיל כפי שנשמר – בלי לבנות, לנעול או לקפל סרטים שה-embedding שלהם הגיע בינתיים.
+     *
+     * @return the stored weighted mean, or an empty array when there is no usable aggregate
+     */
+    @Transactional(readOnly = true)
+    public float[] storedProfileVector(Long userId) {
+        UserProfileAggregate aggregate = aggregateRepository.findById(userId).orElse(null);
+        if (aggregate == null || isStale(aggregate) || aggregate.getTotalWeight() <= 0) {
+            return new float[0];
+        }
+        return mean(aggregate);
+    }
+
+    /**
+     * @return true when the stored aggregate is missing, outdated or still has movies that are not in the sum
+     */
+    @Transactional(readOnly = true)
+    public boolean hasPendingMovies(Long userId) {
+        UserProfileAggregate aggregate = aggregateRepository.findById(userId).orElse(null);
+        if (aggregate == null || isStale(aggregate)) {
+            return true;
+        }
+        for (ProfileContribution contribution : aggregate.getFavorites()) {
+            if (!contribution.isCounted()) return true;
+        }
+        for (ProfileContribution contribution : aggregate.getHistoryWindow()) {
+            if (!contribution.isCounted()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * סרטים בפרופיל שעדיין אין להם embedding (בונה את ה-aggregate אם אינו קיים).
+     */
+    public Set<Long> pendingMovieIds(User user) {
+        UserProfileAggregate aggregate = aggregateRepository.findById(user.getId())
+                .filter(stored -> !isStale(stored))
+                .orElseGet(() -> rebuild(user));
+        Set<Long> pending = new LinkedHashSet<>();
+        for (ProfileContribution contribution : aggregate.getFavorites()) {
+            if (!contribution.isCounted()) pending.add(contribution.getMovieId());
+        }
+        for (ProfileContribution contribution : aggregate.getHistoryWindow()) {
+            if (!contribution.isCounted()) pending.add(contribution.getMovieId());
+        }
+        return pending;
+    }
+
+    /**
+     * בונה את הסכום מאפס מתוך המועדפים ו-30 הרשומות האחרונות בהיסטוריה.
+     */
+    public UserProfileAggregate rebuild(User user) {
+        UserProfileAggregate aggregate = aggregateRepository.findForUpdate(user.getId()).orElseGet(() -> {
+            UserProfileAggregate created = new UserProfileAggregate();
+            created.setUserId(user.getId());
+            return created;
+        });
+        rebuildInto(aggregate, user);
+        return aggregateRepository.save(aggregate);
+    }
+
+    private void rebuildInto(UserProfileAggregate aggregate, User user) {
+        float[] sum = new float[EMBEDDING_DIMENSION];
+        aggregate.setTotalWeight(0);
+        aggregate.getFavorites().clear();
+        aggregate.getHistoryWindow().clear();
+        aggregate.setHistoryHead(0);
+
+        List<Movie> favorites = user.getFavoriteMovies();
+        for (Movie movie : favorites != null ? favorites : Collections.<Movie>emptyList()) {
+            if (movie == null || movie.getId() == null) continue;
+            aggregate.getFavorites().add(add(aggregate, sum, movie.getId(), FAVORITE_WEIGHT));
+        }
+
+        for (WatchEvent event : watchEventRepository.findRecent(user.getId(), HISTORY_WINDOW)) {
+            aggregate.getHistoryWindow().add(add(aggregate, sum, event.getMovieId(), HISTORY_WEIGHT));
+        }
+
+        aggregate.setWeightedSum(encode(sum));
+        aggregate.setMutationsSinceRebuild(0);
+        aggregate.setFormatVersion(FORMAT_VERSION);
+        logger.info("✅ Rebuilt profile aggregate for '{}' ({} favorites, {} history entries)",
+                user.getUsername(), aggregate.getFavorites().size(), aggregate.getHistoryWindow().size());
+    }
+
+    private void save(UserProfileAggregate aggregate, float[] sum, User user, boolean exact) {
+        aggregate.setMutationsSinceRebuild(aggregate.getMutationsSinceRebuild() + 1);
+        if (!exact || aggregate.getMutationsSinceRebuild() >= rebuildEveryMutations) {
+            rebuildInto(aggregate, user);
+        } else {
+            aggregate.setWeightedSum(encode(sum));
+        }
+        aggregateRepository.save(aggregate);
+    }
+
+    private ProfileContribution add(UserProfileAggregate aggregate, float[] sum, Long movieId, float weight) {
+        float[] vector = embeddingStorageService.getEmbedding(movieId);
+        if (vector == null || vector.length != EMBEDDING_DIMENSION) {
+            return new ProfileContribution(movieId, false, null);
+        }
+        for (int d = 0; d < EMBEDDING_DIMENSION; d++) {
+            sum[d] += vector[d] * weight;
+        }
+        aggregate.setTotalWeight(aggregate.getTotalWeight() + weight);
+        return new ProfileContribution(movieId, true, EmbeddingUtils.fingerprint(vector));
+    }
+
+    /**
+     * @return false if a counted movie has lost its embedding or has been re-embedded since it was
+     *         added, so the sum can no longer be corrected exactly
+     */
+    private boolean subtract(UserProfileAggregate aggregate, float[] sum, ProfileContribution contribution, float weight) {
+        if (!contribution.isCounted()) {
+            return true;
+        }
+        float[] vector = embeddingStorageService.getEmbedding(contribution.getMovieId());
+        if (vector == null || vector.length != EMBEDDING_DIMENSION) {
+            return false;
+        }
+        Long added = contribution.getEmbeddingHash();
+        if (added == null || added != EmbeddingUtils.fingerprint(vector)) {
+            return false;
+        }
+        for (int d = 0; d < EMBEDDING_DIMENSION; d++) {
+            sum[d] -= vector[d] * weight;
+        }
+        aggregate.setTotalWeight(Math.max(0, aggregate.getTotalWeight() - weight));
+        return true;
+    }
+
+    private static boolean isStale(UserProfileAggregate aggregate) {
+        Integer version = aggregate.getFormatVersion();
+        return version == null || version != FORMAT_VERSION;
+    }
+
+    private boolean hasResolvablePending(UserProfileAggregate aggregate) {
+        for (ProfileContribution contribution : aggregate.getFavorites()) {
+            if (!contribution.isCounted() && embeddingStorageService.hasEmbedding(contribution.getMovieId())) return true;
+        }
+        for (ProfileContribution contribution : aggregate.getHistoryWindow()) {
+            if (!contribution.isCounted() && embeddingStorageService.hasEmbedding(contribution.getMovieId())) return true;
+        }
+        return false;
+    }
+
+    private int resolvePending(UserProfileAggregate aggregate, float[] sum, List<ProfileContribution> contributions, float weight) {
+        int resolved = 0;
+        for (int i = 0; i < contributions.size(); i++) {
+            ProfileContribution contribution = contributions.get(i);
+            if (contribution.isCounted()) continue;
+            ProfileContribution updated = add(aggregate, sum, contribution.getMovieId(), weight);
+            if (updated.isCounted()) {
+                contributions.set(i, updated);
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    private static float[] mean(UserProfileAggregate aggregate) {
+        float[] vector = decode(aggregate.getWeightedSum());
+        float inv = (float) (1.0 / aggregate.getTotalWeight());
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] *= inv;
+        }
+        return vector;
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] sum = new float[EMBEDDING_DIMENSION];
+        if (bytes != null && bytes.length == EMBEDDING_DIMENSION * Float.BYTES) {
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(sum);
+        }
+        return sum;
+    }
+
+    private static byte[] encode(float[] sum) {
+        ByteBuffer buffer = ByteBuffer.allocate(sum.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(sum);
+        return buffer.array();
+    }
+}
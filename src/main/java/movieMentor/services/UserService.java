@@ -2,6 +2,8 @@ package movieMentor.services;
 
 import movieMentor.beans.User;
 import movieMentor.beans.MovieDTO;
+import movieMentor.dto.CursorPage;
+import movieMentor.dto.UserVectorPoint;
 
 import java.util.List;
 
@@ -15,11 +17,42 @@ public interface UserService {
 
     List<MovieDTO> getRecommendations(String username);
 
-    List<MovieDTO> getFavorites(String username);
-
-    List<MovieDTO> getHistoryDTO(String username);
+    /**
+     * עמוד היסטוריה, מהחדש לישן.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page
+     * @param limit  page size, capped at {@code api.pagination.max-page-size}
+     */
+    CursorPage<MovieDTO> getHistoryPage(String username, String cursor, int limit);
+
+    /**
+     * עמוד מועדפים, לפי מזהה הסרט.
+     */
+    CursorPage<MovieDTO> getFavoritesPage(String username, String cursor, int limit);
+
+    /**
+     * חיפוש במאגר המועמדים לפי וקטור הפרופיל של המשתמש, עם סינון ומילות מפתח.
+     * Read-only: uses the stored profile vector as is and leaves movies still waiting for an
+     * embedding to the background recompute.
+     *
+     * @param limit result size, capped at {@code api.pagination.max-page-size}
+     * @return best matches first; empty when the user has no usable embeddings
+     */
+    List<MovieDTO> searchCandidates(String username, CandidateQuery query, int limit);
 
     void setRecommendedMovies(String username, List<String> recommendedTitles);
 
     void updateRecommendations(User user);
+
+    /**
+     * מחשב מחדש את וקטור המשתמש ואת ההמלצות שלו. Called by {@link RecommendationJobQueue}.
+     */
+    void recomputeRecommendations(String username);
+
+    /**
+     * בונה את וקטור הפרופיל של המשתמש ואת ה-payload שלו, בלי לשמור אותו ב-Vector DB.
+     *
+     * @return the point to upsert, or null when the user has no usable embeddings
+     */
+    UserVectorPoint buildUserVectorPoint(User user);
 }
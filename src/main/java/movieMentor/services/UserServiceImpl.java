@@ -4,14 +4,25 @@ import lombok.RequiredArgsConstructor;
 import movieMentor.beans.Movie;
 import movieMentor.beans.User;
 import movieMentor.beans.MovieDTO;
+import movieMentor.beans.WatchEvent;
+import movieMentor.dto.CursorPage;
+import movieMentor.dto.UserVectorPoint;
+import movieMentor.repository.MovieDtoRepository;
 import movieMentor.repository.UserRepository;
+import movieMentor.repository.WatchEventRepository;
+import movieMentor.utils.EmbeddingUtils;
+import movieMentor.utils.PageCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -27,13 +38,21 @@ public class UserServiceImpl implements UserService {
     private final RecommendationService recommendationService;
     private final EmbeddingService embeddingService;
     private final EmbeddingStorageService embeddingStorageService;
-    private final UserVectorClientService userVectorClient;
-    private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
-
+    private final UserVectorIndex userVectorIndex;
+    private final RecommendationJobQueue recommendationJobQueue;
+    private final RecommendationPipeline recommendationPipeline;
+    private final UserProfileService userProfileService;
+    private final WatchEventRepository watchEventRepository;
+    private final RecommendationStore recommendationStore;
+    private final PlatformTransactionManager transactionManager;
+    private final MovieDtoRepository movieDtoRepository;
+
+    @Value("${api.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    // ההמלצות עצמן מחושבות ברקע (RecommendationJobQueue); עד אז מוגשת הרשימה הקודמת
     @Override
     @Transactional
-    @CacheEvict(value = "userRecommendations", key = "#username")
-
     public void addFavoriteMovie(String username, String movieTitle) {
         User user = fetchUser(username);
         Movie movie = tmdbService.getOrCreateMovie(movieTitle);
@@ -41,218 +60,132 @@ public class UserServiceImpl implements UserService {
 
         if (added) {
             logger.info("✅ Added movie '{}' to favorites for user '{}'", movieTitle, username);
-            updateUserContextInVectorDB(user);  // ← עדכון FAISS
-            updateRecommendations(user);
             userRepository.save(user);
+            userProfileService.favoriteAdded(user, movie.getId());
+            recommendationJobQueue.markDirty(username);
         }
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "userRecommendations", key = "#username")
-
     public void removeFavoriteMovie(String username, Long movieId) {
         User user = fetchUser(username);
         boolean removed = user.getFavoriteMovies().removeIf(m -> m.getId().equals(movieId));
 
         if (removed) {
             logger.info("🗑️ Removed movie ID {} from favorites for user '{}'", movieId, username);
-            updateRecommendations(user);
-            updateUserContextInVectorDB(user);  // ← עדכון FAISS
+            userProfileService.favoriteRemoved(user, movieId);
+            recommendationJobQueue.markDirty(username);
         }
     }
     @Override
     @Transactional
-    @CacheEvict(value = {"userRecommendations", "userHistory"}, key = "#username")
     public void addToWatchHistory(String username, String movieTitle) {
-        User user = fetchUser(username);
-
-        // משיגים צילום מצב כ-DTO (לא ישות JPA)
+        // משיגים צילום מצב כ-DTO (לא ישות JPA) – לפני הנעילה, כדי לא להחזיק אותה בזמן קריאה ל-TMDB
         MovieDTO dto = tmdbService.getOrCreateMovieDTO(movieTitle);
         if (dto == null) {
             logger.warn("⚠️ Could not resolve MovieDTO for title '{}'", movieTitle);
             return;
         }
 
-        // המרה ל-JSON ושמירה ב-ElementCollection
-        try {
-            String json = objectMapper.writeValueAsString(dto);
-
-            // דה-דופליקציה קלה: אל תוסיף אם האחרון זהה (אופציונלי אך שימושי)
-            List<String> history = user.getWatchHistoryJson();
-            if (history.isEmpty() || !history.get(history.size() - 1).equals(json)) {
-                history.add(json);
-            }
-
-            // שמירת אורך מקסימלי (אופציונלי)
-            final int LIMIT = 200;
-            if (history.size() > LIMIT) {
-                history.subList(0, history.size() - LIMIT).clear();
-            }
-
-            userRepository.save(user);
-            logger.info("🎬 Added '{}' to watch history (JSON) of '{}'", movieTitle, username);
-
-        } catch (Exception e) {
-            logger.warn("Failed to serialize MovieDTO for history of '{}': {}", username, e.getMessage());
-        }
-
-        // דואגים ל-embedding של הסרט (ע”פ ה-ID של ה-DTO)
-        if (dto.getId() != null && !embeddingStorageService.hasEmbedding(dto.getId())) {
-            String overview = dto.getOverview() != null ? dto.getOverview() : "";
-            float[] vector = embeddingService.getEmbedding(overview);
-            if (vector != null && vector.length > 0) {
-                embeddingStorageService.addEmbedding(dto.getId(), vector);
-            }
-        }
+        // שורת המשתמש נעולה עד סוף הטרנזקציה: שתי הוספות במקביל (לחיצה כפולה, שתי לשוניות)
+        // קוראות את ה-ordinal האחרון בזו אחר זו ולא מפרות את uk_watch_events_user_ordinal
+        User user = userRepository.findForUpdateByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
 
-        // מריצים עדכון המלצות כל 5 הוספות (כמו קודם)
-        if (user.getWatchHistoryJson().size() % 5 == 0) {
-            logger.info("📊 Triggering recommendation update — history count divisible by 5");
-            updateRecommendations(user);
+        // INSERT יחיד ל-watch_events; דה-דופליקציה קלה: לא מוסיפים אם האחרון הוא אותו סרט
+        Optional<WatchEvent> last = watchEventRepository.findTopByUserIdOrderByOrdinalDesc(user.getId());
+        if (last.isPresent() && last.get().getMovieId().equals(dto.getId())) {
+            logger.info("↩️ '{}' is already the latest entry in the watch history of '{}'", movieTitle, username);
+            return;
         }
+        long ordinal = last.map(WatchEvent::getOrdinal).orElse(0L) + 1;
+        watchEventRepository.save(WatchEvent.of(user.getId(), dto, ordinal, Instant.now()));
+        userProfileService.historyAppended(user, dto.getId());
+        logger.info("🎬 Added '{}' to watch history of '{}'", movieTitle, username);
 
-        // עדכון וקטור המשתמש ב-Vector DB
-        updateUserContextInVectorDB(user);
+        // embedding לסרט, וקטור המשתמש וההמלצות – הכל ב-job ברקע
+        recommendationJobQueue.markDirty(username);
     }
 
-    private float[] buildUserProfileEmbeddingWeighted(User user) {
-        // משקלים
-        final float FAVORITE_WEIGHT = 2.0f;
-        final float HISTORY_WEIGHT  = 1.0f;
-        final int   HISTORY_LIMIT   = 30;
-
-        List<float[]> vectors = new ArrayList<>();
-        List<Float>   weights = new ArrayList<>();
-
-        // 1) מועדפים (Movie ישויות)
-        for (Movie movie : user.getFavoriteMovies()) {
-            if (movie == null || movie.getId() == null) continue;
-            float[] vec = embeddingStorageService.getEmbedding(movie.getId());
-            if (vec != null && vec.length > 0) {
-                vectors.add(vec);
-                weights.add(FAVORITE_WEIGHT);
-            }
-        }
-
-        // 2) היסטוריית צפייה (JSON -> MovieDTO) – 30 אחרונים
-        List<String> snapshots = user.getWatchHistoryJson();
-        if (snapshots != null && !snapshots.isEmpty()) {
-            int from = Math.max(0, snapshots.size() - HISTORY_LIMIT);
-            for (int i = from; i < snapshots.size(); i++) {
-                String json = snapshots.get(i);
-                if (json == null || json.isEmpty()) continue;
-
-                try {
-                    MovieDTO dto = objectMapper.readValue(json, MovieDTO.class);
-                    if (dto == null || dto.getId() == null) continue;
-
-                    float[] vec = embeddingStorageService.getEmbedding(dto.getId());
-                    if (vec == null || vec.length == 0) {
-                        String overview = dto.getOverview() != null ? dto.getOverview() : "";
-                        vec = embeddingService.getEmbedding(overview);
-                        if (vec != null && vec.length > 0) {
-                            embeddingStorageService.addEmbedding(dto.getId(), vec);
-                        }
-                    }
-
-                    if (vec != null && vec.length > 0) {
-                        vectors.add(vec);
-                        weights.add(HISTORY_WEIGHT);
-                    }
-                } catch (Exception ignore) {
-                    // דלג על רשומה פגומה
-                }
-            }
-        }
-
-        if (vectors.isEmpty()) {
-            logger.warn("⚠️ No valid embeddings found for user '{}'", user.getUsername());
-            return new float[0];
+    @Override
+    // נתיב הקריאה: GET אחד ל-Redis + מילון DTO; ה-DB רק כשאין רשומה מוכנה (ואז היא נכתבת)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<MovieDTO> getRecommendations(String username) {
+        Optional<List<MovieDTO>> materialized = recommendationStore.read(username);
+        if (materialized.isPresent()) {
+            return materialized.get();
         }
-
-        // 3) ממוצע משוקלל
-        int dim = vectors.get(0).length;
-        float[] weightedSum = new float[dim];
-        float totalWeight = 0f;
-
-        for (int idx = 0; idx < vectors.size(); idx++) {
-            float[] vec = vectors.get(idx);
-            // הגנה ממדדים לא תואמים (אם יש)
-            if (vec.length != dim) continue;
-
-            float w = weights.get(idx);
-            totalWeight += w;
-            for (int d = 0; d < dim; d++) {
-                weightedSum[d] += vec[d] * w;
-            }
+        List<MovieDTO> recommendations = userRepository.findRecommendationsByUsername(username);
+        if (recommendations.isEmpty() && !userRepository.findIdByUsername(username).isPresent()) {
+            throw new IllegalArgumentException("User not found");
         }
+        recommendationStore.writeIfAbsent(username, recommendations);
+        return recommendations;
+    }
 
-        if (totalWeight == 0f) {
-            logger.warn("⚠️ Total weight is zero for user '{}'", user.getUsername());
-            return new float[0];
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovieDTO> searchCandidates(String username, CandidateQuery query, int limit) {
+        Long userId = userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        // החיפוש לא קורא ל-OpenAI/TMDB ולא נועל את ה-aggregate – סרטים חסרים יושלמו בחישוב ברקע
+        if (userProfileService.hasPendingMovies(userId)) {
+            recommendationJobQueue.markDirty(username);
         }
-
-        for (int d = 0; d < dim; d++) {
-            weightedSum[d] /= totalWeight;
+        float[] userVector = userProfileService.storedProfileVector(userId);
+        if (userVector.length == 0) {
+            logger.warn("⚠️ User '{}' has no embedding data – nothing to search with", username);
+            return Collections.emptyList();
         }
-
-        logger.info("✅ Built weighted profile embedding for '{}'", user.getUsername());
-        return weightedSum;
+        return recommendationService.findMostSimilarMovies(userVector, query, Math.max(1, Math.min(limit, maxPageSize)));
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(cacheNames = "userRecommendations", key = "#username", unless = "#result == null || #result.isEmpty()")
-    public List<MovieDTO> getRecommendations(String username) {
-        User u = userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        u.getRecommendedMovies().size();
-        return u.getRecommendedMovies().stream()
-                .map(MovieDTO::new)
-                .collect(Collectors.toList());
+    public CursorPage<MovieDTO> getHistoryPage(String username, String cursor, int limit) {
+        long before = PageCursor.decode(cursor, Long.MAX_VALUE);
+        int size = clampPageSize(limit);
+        Long userId = userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+
+        // שורה אחת מעבר לעמוד – כך יודעים אם יש עמוד הבא בלי שאילתת count
+        List<WatchEvent> events = watchEventRepository.findByUserIdAndOrdinalLessThanOrderByOrdinalDesc(
+                userId, before, PageRequest.of(0, size + 1));
+        boolean hasMore = events.size() > size;
+        List<MovieDTO> items = new ArrayList<>(Math.min(size, events.size()));
+        for (int i = 0; i < events.size() && i < size; i++) {
+            items.add(events.get(i).toMovieDTO());
+        }
+        String next = hasMore ? PageCursor.encode(events.get(size - 1).getOrdinal()) : null;
+        return new CursorPage<>(items, next);
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(cacheNames = "userFavorites", key = "#username")
-    public List<MovieDTO> getFavorites(String username) {
-        User u = userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        // לדרוך על ה‑LAZY לפני סיריאליזציה
-        u.getFavoriteMovies().size();
-        return u.getFavoriteMovies().stream()
-                .map(MovieDTO::new)
-                .collect(Collectors.toList());
+    public CursorPage<MovieDTO> getFavoritesPage(String username, String cursor, int limit) {
+        long afterId = PageCursor.decode(cursor, Long.MIN_VALUE);
+        int size = clampPageSize(limit);
+
+        List<MovieDTO> rows = userRepository.findFavoritePage(username, afterId, PageRequest.of(0, size + 1));
+        boolean hasMore = rows.size() > size;
+        List<MovieDTO> items = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String next = hasMore ? PageCursor.encode(items.get(size - 1).getId()) : null;
+        return new CursorPage<>(items, next);
     }
 
-    @Override
-    public List<MovieDTO> getHistoryDTO(String username) {
-        User user = fetchUser(username);
-        List<MovieDTO> history = new ArrayList<>();
-
-        for (String json : user.getWatchHistoryJson()) {
-            if (json == null || json.isEmpty()) continue;
-            try {
-                MovieDTO dto = objectMapper.readValue(json, MovieDTO.class);
-                history.add(dto);
-            } catch (Exception e) {
-                logger.warn("⚠️ Failed to parse watch history entry for user '{}': {}", username, e.getMessage());
-            }
-        }
-
-        return history;
+    private int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, maxPageSize));
     }
 
-
     @Override
     @Transactional
-    @CacheEvict(value = "userRecommendations", key = "#username")
     public void setRecommendedMovies(String username, List<String> recommendedTitles) {
         User user = fetchUser(username);
         List<MovieDTO> updated = tmdbService.updateMovieListWithDifferences(user.getRecommendedMovies(), recommendedTitles);
         user.setRecommendedMovies(updated);
         userRepository.saveAndFlush(user);
+        recommendationStore.publish(username, updated, null);
         logger.info("🛠️ Manually updated recommended movies for '{}'", username);
     }
 //
@@ -291,140 +224,214 @@ public class UserServiceImpl implements UserService {
 //    }
 
 
+    /**
+     * רץ ב-worker של {@link RecommendationJobQueue}. Only the database steps run in (short)
+     * transactions; the OpenAI, TMDB and vector DB calls in between hold no transaction and
+     * no pooled connection, however long the pipeline deadline lets them run.
+     */
     @Override
-@Transactional
-@CacheEvict(cacheNames = "userRecommendations", key = "#user.username")
-public void updateRecommendations(User user) {
-    final String username = user.getUsername();
-
-    // 1) וקטור פרופיל משתמש
-    float[] userVector = buildUserProfileEmbeddingWeighted(user);
-    if (userVector == null || userVector.length == 0) {
-        logger.warn("⚠️ User '{}' has no embedding data – skipping vector-based recommendations", username);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recomputeRecommendations(String username) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // 1) סרטים בפרופיל שעדיין בלי embedding – מה-DB, ואז TMDB/OpenAI מחוץ לטרנזקציה
+        List<MovieDTO> pending = transaction.execute(status -> pendingProfileMovies(fetchUser(username)));
+        embedPendingMovies(pending);
+
+        // 2) וקטור הפרופיל וצילום מצב של המשתמש למקורות – טרנזקציה קצרה
+        UserVectorPoint[] point = new UserVectorPoint[1];
+        RecommendationContext context = transaction.execute(status -> {
+            User user = fetchUser(username);
+            point[0] = userVectorPoint(user);
+            return recommendationService.buildContext(user, point[0] != null ? point[0].getVector() : null);
+        });
+        float[] userVector = context.getUserVector();
+        if (userVector.length == 0) {
+            logger.warn("⚠️ User '{}' has no embedding data – skipping vector-based recommendations", username);
+        }
+
+        // 3) Vector DB וכל המקורות (וקטורי, GPT, משתמשים דומים) במקביל – בלי טרנזקציה
+        if (point[0] != null) {
+            userVectorIndex.upsert(point[0]);
+        }
+        final int MAX_RECS = 30;
+        List<MovieDTO> finalRecommendations = recommendationPipeline.collect(context, MAX_RECS);
+
+        // 4) עדכון ה-DB (ElementCollection עם OrderColumn ישמור את הסדר); הרשומה ב-Redis אחרי ה-commit
+        transaction.executeWithoutResult(status -> {
+            User user = fetchUser(username);
+            user.getRecommendedMovies().clear();
+            user.getRecommendedMovies().addAll(storedMovieDtos(finalRecommendations));
+            userRepository.saveAndFlush(user);
+            recommendationStore.publish(username, finalRecommendations, similarityScores(userVector, finalRecommendations));
+        });
+
+        logger.info("✅ Updated {} recommendations for '{}': {}",
+                finalRecommendations.size(),
+                username,
+                finalRecommendations.stream().map(MovieDTO::getTitle).collect(Collectors.toList()));
     }
 
-    // 2) מועמדים + דימיון וקטורי (אופציונלי)
-    List<MovieDTO> candidateMovies = recommendationService.getCandidateMovies();
-    List<MovieDTO> similarMovies = Collections.emptyList();
-    if (userVector != null && userVector.length > 0) {
-        similarMovies = recommendationService.findMostSimilarMovies(userVector, candidateMovies, 10);
-        logger.info("🎯 Found {} vector-based similar movies for '{}'", similarMovies.size(), username);
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void updateRecommendations(User user) {
+        recomputeRecommendations(user.getUsername());
     }
 
-    // 3) GPT titles -> עדכון לרשימת DTO (שומר שדות מלאים)
-    List<String> newTitles = recommendationService.generateRecommendations(user);
-    List<MovieDTO> updatedGptList =
-            tmdbService.updateMovieListWithDifferences(user.getRecommendedMovies(), newTitles);
-
-    // 4) משתמשים דומים
-    List<MovieDTO> similarTasteMovies = recommendationService.getRecommendationsFromSimilarUsers(user, 5);
-
-    // 5) מיזוג חכם: שומר סדר, מסיר כפילויות לפי id ואח"כ title
-    LinkedHashMap<String, MovieDTO> merged = new LinkedHashMap<>();
-    java.util.function.Consumer<MovieDTO> add = m -> {
-        if (m == null) return;
-        String key = dedupeKey(m);
-        if (key != null && !merged.containsKey(key)) merged.put(key, m);
-    };
-
-    similarMovies.forEach(add);        // עדיפות 1
-    updatedGptList.forEach(add);       // עדיפות 2
-    similarTasteMovies.forEach(add);   // עדיפות 3
-
-    // 6) חיתוך לאורך סביר
-    final int MAX_RECS = 30;
-    List<MovieDTO> finalRecommendations = merged.values()
-            .stream()
-            .limit(MAX_RECS)
-            .collect(java.util.stream.Collectors.toList());
-
-    // 7) עדכון ה-DB (ElementCollection עם OrderColumn ישמור את הסדר)
-    user.getRecommendedMovies().clear();
-    user.getRecommendedMovies().addAll(finalRecommendations);
-    userRepository.saveAndFlush(user);
-
-    logger.info("✅ Updated {} recommendations for '{}': {}",
-            finalRecommendations.size(),
-            username,
-            finalRecommendations.stream().map(MovieDTO::getTitle).collect(java.util.stream.Collectors.toList()));
-}
+    // שורות movie_dto_cache שה-user_recommendations מצביע עליהן: הקיימות בשאילתה אחת, החסרות ב-saveAll אחד.
+    // רץ בטרנזקציית השמירה, אחרי המיזוג – המקורות עצמם לא כותבים ל-DB (הם עלולים להתבטל באמצע)
+    private List<MovieDTO> storedMovieDtos(List<MovieDTO> movies) {
+        Map<Long, MovieDTO> stored = new HashMap<>();
+        List<Long> ids = new ArrayList<>(movies.size());
+        for (MovieDTO movie : movies) {
+            if (movie != null && movie.getId() != null) ids.add(movie.getId());
+        }
+        movieDtoRepository.findAllById(ids).forEach(db -> stored.put(db.getId(), db));
+
+        Map<Long, MovieDTO> missing = new LinkedHashMap<>();
+        for (MovieDTO movie : movies) {
+            if (movie != null && movie.getId() != null && !stored.containsKey(movie.getId())) {
+                // העתק רזה: ה-DTO של המקור משותף (מאגר המועמדים) ולא נעשה managed; overview לא נקרא מה-DB
+                missing.putIfAbsent(movie.getId(), new MovieDTO(movie.getId(), movie.getTitle(),
+                        movie.getPosterUrl(), movie.getVoteAverage()));
+            }
+        }
+        if (!missing.isEmpty()) {
+            movieDtoRepository.saveAll(missing.values()).forEach(saved -> stored.put(saved.getId(), saved));
+        }
 
-    // עוזר לדה-דופליקציה: קודם לפי id, אחרת לפי title מנורמל
-    private String dedupeKey(MovieDTO m) {
-        if (m.getId() != null) return "id:" + m.getId();
-        if (m.getTitle() != null) return "t:" + m.getTitle().trim().toLowerCase(java.util.Locale.ROOT);
-        return null;
+        List<MovieDTO> result = new ArrayList<>(movies.size());
+        for (MovieDTO movie : movies) {
+            MovieDTO db = movie != null && movie.getId() != null ? stored.get(movie.getId()) : null;
+            if (db != null) result.add(db);
+        }
+        return result;
     }
 
-    private User fetchUser(String username) {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+    // cosine בין וקטור המשתמש ל-embedding של כל סרט; NaN כשאחד מהם חסר
+    private float[] similarityScores(float[] userVector, List<MovieDTO> movies) {
+        float[] scores = new float[movies.size()];
+        for (int i = 0; i < scores.length; i++) {
+            MovieDTO movie = movies.get(i);
+            float[] embedding = userVector == null || userVector.length == 0 || movie == null || movie.getId() == null
+                    ? null : embeddingStorageService.getEmbedding(movie.getId());
+            scores[i] = embedding == null || embedding.length != userVector.length
+                    ? Float.NaN : (float) EmbeddingUtils.cosineSimilarity(userVector, embedding);
+        }
+        return scores;
     }
 
-    private void updateUserContextInVectorDB(User user) {
-        // 1) אוספים DTOs: מועדפים (Movie -> MovieDTO) + היסטוריה (JSON -> MovieDTO)
-        List<MovieDTO> allMovies = new ArrayList<>();
-
-        if (user.getFavoriteMovies() != null && !user.getFavoriteMovies().isEmpty()) {
-            allMovies.addAll(
-                    user.getFavoriteMovies().stream()
-                            .filter(Objects::nonNull)
-                            .map(MovieDTO::new)
-                            .collect(Collectors.toList())
-            );
+    // מביא embeddings לכל הסרטים שעדיין אין להם – בקשת batch אחת ל-OpenAI
+    private void ensureEmbeddings(List<MovieDTO> movies) {
+        List<MovieDTO> missing = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (MovieDTO movie : movies) {
+            if (movie == null || movie.getId() == null) continue;
+            // בלי overview אין מה להטמיע – מחרוזת ריקה הייתה מפילה את כל ה-batch ב-OpenAI
+            if (movie.getOverview() == null || movie.getOverview().trim().isEmpty()) continue;
+            if (seen.add(movie.getId()) && !embeddingStorageService.hasEmbedding(movie.getId())) {
+                missing.add(movie);
+            }
         }
+        if (missing.isEmpty()) return;
+
+        // דרך ה-collector המשותף: workers שמטמיעים במקביל יוצאים יחד באותה בקשה
+        List<float[]> vectors = embeddingService.getEmbeddingsCoalesced(missing.stream()
+                .map(MovieDTO::getOverview)
+                .collect(Collectors.toList()));
+        for (int i = 0; i < missing.size(); i++) {
+            float[] vector = vectors.get(i);
+            if (vector != null && vector.length > 0) {
+                embeddingStorageService.addEmbedding(missing.get(i).getId(), missing.get(i).getOverview(), vector);
+            }
+        }
+    }
 
-        List<String> snapshots = Optional.ofNullable(user.getWatchHistoryJson())
-                .orElseGet(Collections::emptyList);
+    // מועדפים ורשומות היסטוריה שה-aggregate עוד לא הצליח לספור כי חסר להם embedding
+    private void ensurePendingEmbeddings(User user) {
+        embedPendingMovies(pendingProfileMovies(user));
+    }
 
-        for (String json : snapshots) {
-            if (json == null || json.isEmpty()) continue;
-            try {
-                MovieDTO dto = objectMapper.readValue(json, MovieDTO.class);
-                if (dto != null) {
-                    allMovies.add(dto);
+    // קריאה מה-DB בלבד – TMDB ו-OpenAI ב-embedPendingMovies
+    private List<MovieDTO> pendingProfileMovies(User user) {
+        Set<Long> pending = userProfileService.pendingMovieIds(user);
+        if (pending.isEmpty()) return Collections.emptyList();
+
+        List<MovieDTO> movies = new ArrayList<>();
+        if (user.getFavoriteMovies() != null) {
+            for (Movie movie : user.getFavoriteMovies()) {
+                if (movie != null && pending.contains(movie.getId())) {
+                    // toDTO שומר את ה-overview; הבנאי MovieDTO(Movie) מוותר עליו
+                    movies.add(MovieDTO.toDTO(movie));
                 }
-            } catch (Exception e) {
-                logger.warn("Failed to deserialize MovieDTO for '{}': {}", user.getUsername(), e.getMessage());
             }
         }
+        for (WatchEvent event : watchEventRepository.findRecent(user.getId(), UserProfileService.HISTORY_WINDOW)) {
+            if (pending.contains(event.getMovieId()) && event.getTitle() != null) {
+                movies.add(event.toMovieDTO());
+            }
+        }
+        return movies;
+    }
 
-        // 2) ודא שקיים embedding לכל סרט (לפי id)
-        for (MovieDTO movie : allMovies) {
-            if (movie == null || movie.getId() == null) continue;
-
-            if (!embeddingStorageService.hasEmbedding(movie.getId())) {
-                String text = movie.getOverview() != null ? movie.getOverview() : "";
-                float[] vector = embeddingService.getEmbedding(text);
-                if (vector != null && vector.length > 0) {
-                    embeddingStorageService.addEmbedding(movie.getId(), vector);
-                }
+    private void embedPendingMovies(List<MovieDTO> movies) {
+        if (movies == null || movies.isEmpty()) return;
+        List<MovieDTO> resolved = new ArrayList<>(movies.size());
+        for (MovieDTO movie : movies) {
+            if (movie.getOverview() != null && !movie.getOverview().trim().isEmpty()) {
+                resolved.add(movie);
+                continue;
+            }
+            // ל-watch_events אין overview – משיגים אותו מה-cache של TMDB לפי הכותרת
+            MovieDTO dto = movie.getTitle() != null ? tmdbService.getOrCreateMovieDTO(movie.getTitle()) : null;
+            if (dto != null && movie.getId().equals(dto.getId())) {
+                resolved.add(dto);
             }
         }
+        ensureEmbeddings(resolved);
+    }
+
+    private User fetchUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+    }
 
-        // 3) מחשבים וקטור משתמש
-        float[] userVector = buildUserProfileEmbeddingWeighted(user);
+    @Override
+    public UserVectorPoint buildUserVectorPoint(User user) {
+        // ה-backfill מעביר User מנותק (מעמוד של findAll) – טוענים מחדש בטרנזקציה הזו לפני גישה לאוספים
+        User managed = userRepository.findById(user.getId()).orElse(null);
+        if (managed == null) {
+            return null;
+        }
+        // embeddings רק לסרטים בפרופיל שעדיין אין להם – כל החסרים בבקשת batch אחת
+        ensurePendingEmbeddings(managed);
+        return userVectorPoint(managed);
+    }
+
+    private UserVectorPoint userVectorPoint(User user) {
+        // 1) וקטור המשתמש מהסכום המצטבר (UserProfileService)
+        float[] userVector = userProfileService.profileVector(user);
         if (userVector == null || userVector.length == 0) {
             logger.warn("⛔ User '{}' has empty vector – skipping FAISS update", user.getUsername());
-            return;
+            return null;
         }
 
-        // 4) שולחים ל-Vector DB עם מטא־דאטה
+        // 2) מטא־דאטה שנשמרת לצד הווקטור ב-Vector DB
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("favorite_count", user.getFavoriteMovies() != null ? user.getFavoriteMovies().size() : 0);
-        metadata.put("watch_history_count", snapshots.size());
+        metadata.put("watch_history_count", watchEventRepository.countByUserId(user.getId()));
         metadata.put("username", user.getUsername());
 
-        userVectorClient.storeUserVector(String.valueOf(user.getId()), userVector, metadata);
+        return new UserVectorPoint(String.valueOf(user.getId()), userVector, metadata);
     }
 
     public List<Map<String, Object>> findUsersWithSimilarTaste(User user, int topK) {
-        float[] userVector = buildUserProfileEmbeddingWeighted(user);
+        float[] userVector = userProfileService.profileVector(user);
         if (userVector.length == 0) {
             logger.warn("⛔ Cannot find similar users – empty vector for '{}'", user.getUsername());
             return List.of();
         }
-        return userVectorClient.findSimilarUsers(userVector, topK);
+        return userVectorIndex.findSimilar(userVector, topK);
     }
 
 
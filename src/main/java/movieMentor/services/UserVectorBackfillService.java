@@ -0,0 +1,155 @@
+package movieMentor.services;
+
+import movieMentor.beans.User;
+import movieMentor.dto.UserVectorPoint;
+import movieMentor.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * בונה מחדש את וקטורי כל המשתמשים מטבלת users ושומר אותם ב-{@link UserVectorIndex}.
+ *
+ * Users are read a page at a time; the vectors of a page are built on a small pool
+ * ({@code qdrant.backfill.concurrency}, which also bounds the OpenAI embedding calls for
+ * movies that have no embedding yet) and then upserted in bulk. Only one backfill runs at
+ * a time.
+ */
+@Service
+public class UserVectorBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserVectorBackfillService.class);
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final UserVectorIndex userVectorIndex;
+
+    @Value("${qdrant.backfill.on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${qdrant.backfill.concurrency:4}")
+    private int concurrency;
+
+    @Value("${qdrant.backfill.page-size:200}")
+    private int pageSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ExecutorService executor;
+
+    public UserVectorBackfillService(UserRepository userRepository, UserService userService,
+                                     UserVectorIndex userVectorIndex) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.userVectorIndex = userVectorIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(this::backfillAllUsers, "user-vector-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
+    /**
+     * @return number of user vectors written, or -1 if a backfill is already running
+     */
+    public int backfillAllUsers() {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("⚠️ User vector backfill already running – skipping");
+            return -1;
+        }
+        long start = System.currentTimeMillis();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "user-vector-backfill-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int users = 0;
+        int stored = 0;
+        int skipped = 0;
+        int failed = 0;
+        try {
+            Page<User> page = userRepository.findAll(PageRequest.of(0, Math.max(1, pageSize), Sort.by("id")));
+            while (true) {
+                List<Future<UserVectorPoint>> pending = new ArrayList<>(page.getNumberOfElements());
+                for (User user : page.getContent()) {
+                    pending.add(executor.submit(() -> userService.buildUserVectorPoint(user)));
+                }
+
+                List<UserVectorPoint> points = new ArrayList<>(pending.size());
+                for (Future<UserVectorPoint> future : pending) {
+                    try {
+                        UserVectorPoint point = future.get();
+                        if (point != null) {
+                            points.add(point);
+                        } else {
+                            skipped++;
+                        }
+                    } catch (ExecutionException e) {
+                        failed++;
+                        logger.warn("⚠️ Failed to build a user vector during backfill: {}",
+                                e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                    }
+                }
+                users += page.getNumberOfElements();
+
+                try {
+                    stored += userVectorIndex.upsertAll(points);
+                } catch (RuntimeException e) {
+                    failed += points.size();
+                    logger.error("❌ Failed to store {} user vectors (page {}): {}",
+                            points.size(), page.getNumber(), e.getMessage());
+                }
+
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = userRepository.findAll(page.nextPageable());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("⚠️ User vector backfill interrupted after {} users", users);
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+            running.set(false);
+        }
+
+        logger.info("✅ User vector backfill: {} users, {} stored, {} without embeddings, {} failed in {} ms",
+                users, stored, skipped, failed, System.currentTimeMillis() - start);
+        return stored;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+}
@@ -3,23 +3,28 @@ package movieMentor.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import movieMentor.dto.UserVectorPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
 
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "user-vector.index", havingValue = "qdrant", matchIfMissing = true)
 public class UserVectorClientService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserVectorClientService.class);
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final WebClient webClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Value("${qdrant.api.url}")
@@ -31,6 +36,18 @@ public class UserVectorClientService {
     @Value("${qdrant.collection.name}")
     private String qdrantCollectionName;
 
+    // כמה נקודות נשלחות ב-PUT אחד
+    @Value("${qdrant.upsert.batch-size:256}")
+    private int upsertBatchSize;
+
+    // כמה וקטורי חיפוש נשלחים בבקשת search/batch אחת
+    @Value("${qdrant.search.batch-size:32}")
+    private int searchBatchSize;
+
+    // int8 scalar quantization בצד Qdrant; נקבע רק ביצירת ה-collection
+    @Value("${qdrant.quantization.enabled:false}")
+    private boolean quantizationEnabled;
+
     // *** גודל הווקטור הנדרש, כעת 1536 ***
     private static final int REQUIRED_EMBEDDING_DIM = 1536;
 
@@ -39,25 +56,25 @@ public class UserVectorClientService {
         createCollectionIfNotExists();
     }
 
-    private HttpHeaders createHeaders() {
-        HttpHeaders headers = new HttpHeaders();
+    private void applyHeaders(HttpHeaders headers) {
         headers.setContentType(MediaType.APPLICATION_JSON);
         // הוסף את מפתח ה-API לכותרות אם הוא קיים
         if (qdrantApiKey != null && !qdrantApiKey.isEmpty()) {
             headers.set("api-key", qdrantApiKey);
         }
-        return headers;
     }
 
     private void createCollectionIfNotExists() {
         String url = qdrantApiUrl + "/collections/" + qdrantCollectionName;
-        HttpHeaders headers = createHeaders();
 
         try {
-            restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            webClient.get().uri(url).headers(this::applyHeaders)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block();
             logger.info("✅ Qdrant collection '{}' already exists.", qdrantCollectionName);
             return;
-        } catch (HttpClientErrorException.NotFound e) {
+        } catch (WebClientResponseException.NotFound e) {
             logger.info("ℹ️ Qdrant collection '{}' not found, creating it...", qdrantCollectionName);
         } catch (Exception e) {
             logger.error("❌ Error checking Qdrant collection existence: {}", e.getMessage());
@@ -69,116 +86,281 @@ public class UserVectorClientService {
 
         Map<String, Object> collectionConfig = new HashMap<>();
         collectionConfig.put("vectors", vectorsConfig);
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(collectionConfig, headers);
+        if (quantizationEnabled) {
+            Map<String, Object> scalar = new HashMap<>();
+            scalar.put("type", "int8");
+            scalar.put("quantile", 0.99);
+            scalar.put("always_ram", true);
+            collectionConfig.put("quantization_config", Collections.singletonMap("scalar", scalar));
+        }
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, entity, String.class);
-            if (response.getStatusCode().is2xxSuccessful()) {
-                logger.info("✅ Qdrant collection '{}' created successfully.", qdrantCollectionName);
-            } else {
-                logger.error("❌ Failed to create Qdrant collection '{}'. Status: {}, Body: {}",
-                        qdrantCollectionName, response.getStatusCode(), response.getBody());
-            }
+            webClient.put().uri(url).headers(this::applyHeaders)
+                    .bodyValue(collectionConfig)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block();
+            logger.info("✅ Qdrant collection '{}' created successfully.", qdrantCollectionName);
+        } catch (WebClientResponseException e) {
+            logger.error("❌ Failed to create Qdrant collection '{}'. Status: {}, Body: {}",
+                    qdrantCollectionName, e.getRawStatusCode(), e.getResponseBodyAsString());
         } catch (Exception e) {
             logger.error("❌ Exception while creating Qdrant collection '{}': {}", qdrantCollectionName, e.getMessage());
         }
     }
 
     public void storeUserVector(String userId, float[] embedding, Map<String, Object> metadata) {
-        if (embedding == null || embedding.length != REQUIRED_EMBEDDING_DIM) {
-            throw new IllegalArgumentException("❌ Embedding must have " + REQUIRED_EMBEDDING_DIM + " values, but got: " +
-                    (embedding == null ? "null" : embedding.length));
-        }
+        storeUserVectorAsync(userId, embedding, metadata).block();
+    }
 
-        String url = qdrantApiUrl + "/collections/" + qdrantCollectionName + "/points";
-        HttpHeaders headers = createHeaders();
+    /**
+     * גרסה לא-חוסמת של {@link #storeUserVector}; משלימה אחרי ש-Qdrant אישר את הכתיבה (wait=true).
+     */
+    public Mono<Void> storeUserVectorAsync(String userId, float[] embedding, Map<String, Object> metadata) {
+        requireDimension(embedding);
 
-        Object formattedUserId;
-        try {
-            formattedUserId = Long.parseLong(userId);
-        } catch (NumberFormatException e) {
-            formattedUserId = userId;
+        return upsert(Collections.singletonList(new UserVectorPoint(userId, embedding, metadata)), true)
+                .doOnSuccess(ignored -> logger.info("✅ Stored vector for user '{}' in Qdrant.", userId))
+                .onErrorMap(e -> new RuntimeException("Failed to store vector for user " + userId, e));
+    }
+
+    /**
+     * Upserts many user vectors, {@code qdrant.upsert.batch-size} points per request.
+     *
+     * @param wait true to return only after Qdrant has applied each chunk; false to return once
+     *             the chunk is acknowledged (faster for backfills, read-your-writes not guaranteed)
+     * @return number of points stored; a failing chunk fails the whole call
+     */
+    public int storeUserVectors(List<UserVectorPoint> points, boolean wait) {
+        Integer stored = storeUserVectorsAsync(points, wait).block();
+        return stored != null ? stored : 0;
+    }
+
+    public Mono<Integer> storeUserVectorsAsync(List<UserVectorPoint> points, boolean wait) {
+        if (points == null || points.isEmpty()) {
+            return Mono.just(0);
         }
+        points.forEach(point -> requireDimension(point.getVector()));
 
-        Map<String, Object> point = new HashMap<>();
-        point.put("id", formattedUserId);
-        point.put("vector", embedding);
-        point.put("payload", metadata);
+        return Flux.fromIterable(partition(points, upsertBatchSize))
+                .concatMap(chunk -> upsert(chunk, wait).thenReturn(chunk.size()))
+                .reduce(0, Integer::sum)
+                .doOnSuccess(stored -> logger.info("✅ Stored {} user vectors in Qdrant (wait={}).", stored, wait));
+    }
 
-        List<Map<String, Object>> points = Collections.singletonList(point);
+    private Mono<Void> upsert(List<UserVectorPoint> chunk, boolean wait) {
+        // wait הוא פרמטר query ב-Qdrant (בגוף הבקשה הוא פשוט מתעלם ממנו)
+        String url = qdrantApiUrl + "/collections/" + qdrantCollectionName + "/points?wait=" + wait;
+
+        List<Map<String, Object>> points = new ArrayList<>(chunk.size());
+        for (UserVectorPoint vectorPoint : chunk) {
+            Map<String, Object> point = new HashMap<>();
+            point.put("id", formatPointId(vectorPoint.getUserId()));
+            point.put("vector", vectorPoint.getVector());
+            point.put("payload", vectorPoint.getPayload() != null ? vectorPoint.getPayload() : Collections.emptyMap());
+            points.add(point);
+        }
 
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("points", points);
-        requestBody.put("wait", true);
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, entity, String.class);
-            if (response.getStatusCode().is2xxSuccessful()) {
-                logger.info("✅ Stored vector for user '{}' in Qdrant.", userId);
-            } else {
-                logger.error("❌ Failed to store vector for user '{}'. Status: {}, Body: {}",
-                        userId, response.getStatusCode(), response.getBody());
-                throw new RuntimeException("Failed to store vector for user " + userId + " in Qdrant.");
-            }
-        } catch (Exception e) {
-            logger.error("❌ Exception while storing vector for user '{}': {}", userId, e.getMessage());
-            throw new RuntimeException("Failed to store vector for user " + userId, e);
-        }
+        return webClient.put().uri(url).headers(this::applyHeaders)
+                .bodyValue(requestBody)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnError(e -> {
+                    if (e instanceof WebClientResponseException) {
+                        WebClientResponseException error = (WebClientResponseException) e;
+                        logger.error("❌ Failed to upsert {} user vectors. Status: {}, Body: {}",
+                                chunk.size(), error.getRawStatusCode(), error.getResponseBodyAsString());
+                    } else {
+                        logger.error("❌ Exception while upserting {} user vectors: {}", chunk.size(), e.getMessage());
+                    }
+                })
+                .then();
     }
 
     public List<Map<String, Object>> findSimilarUsers(float[] embedding, int topK) {
-        if (embedding == null || embedding.length != REQUIRED_EMBEDDING_DIM) {
-            throw new IllegalArgumentException("❌ Embedding must have " + REQUIRED_EMBEDDING_DIM + " values, but got: " +
-                    (embedding == null ? "null" : embedding.length));
-        }
+        return findSimilarUsersAsync(embedding, topK).block();
+    }
+
+    /**
+     * גרסה לא-חוסמת של {@link #findSimilarUsers}.
+     *
+     * @return user_id, payload fields and score per hit; an empty list when the search fails
+     */
+    public Mono<List<Map<String, Object>>> findSimilarUsersAsync(float[] embedding, int topK) {
+        requireDimension(embedding);
 
         String url = qdrantApiUrl + "/collections/" + qdrantCollectionName + "/points/search";
-        HttpHeaders headers = createHeaders();
 
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("vector", embedding);
         requestBody.put("limit", topK);
         requestBody.put("with_payload", true);
         requestBody.put("with_vectors", false);
+        putSearchParams(requestBody);
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode resultNode = root.get("result");
-
-                if (resultNode != null && resultNode.isArray()) {
-                    List<Map<String, Object>> similarUsers = new ArrayList<>();
-                    for (JsonNode pointNode : resultNode) {
-                        Map<String, Object> userMeta = new HashMap<>();
-                        userMeta.put("user_id", pointNode.get("id").asText());
-                        if (pointNode.has("payload")) {
-                            Map<String, Object> payloadMap = objectMapper.convertValue(pointNode.get("payload"),
-                                    new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {});
-                            userMeta.putAll(payloadMap);
-                        }
-                        userMeta.put("score", pointNode.get("score").asDouble());
-                        similarUsers.add(userMeta);
+        return webClient.post().uri(url).headers(this::applyHeaders)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(this::parseSearchResult)
+                .defaultIfEmpty(Collections.<Map<String, Object>>emptyList())
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException) {
+                        WebClientResponseException error = (WebClientResponseException) e;
+                        logger.error("❌ Failed to find similar users. Status: {}, Body: {}",
+                                error.getRawStatusCode(), error.getResponseBodyAsString());
+                    } else {
+                        logger.error("❌ Exception while finding similar users: {}", e.getMessage());
                     }
-                    logger.info("✅ Found {} similar users in Qdrant.", similarUsers.size());
-                    return similarUsers;
-                } else {
-                    logger.warn("⚠️ Qdrant search result is not an array or is null.");
-                    return Collections.emptyList();
-                }
-            } else {
-                logger.error("❌ Failed to find similar users. Status: {}, Body: {}",
-                        response.getStatusCode(), response.getBody());
-                return Collections.emptyList();
+                    return Mono.just(Collections.<Map<String, Object>>emptyList());
+                });
+    }
+
+    /**
+     * חיפוש משתמשים דומים לכמה וקטורים – בקשת {@code points/search/batch} אחת לכל
+     * {@code qdrant.search.batch-size} וקטורים.
+     *
+     * @return one hit list per input vector, in input order; a failed chunk yields empty lists
+     */
+    public List<List<Map<String, Object>>> findSimilarUsersBatch(List<float[]> embeddings, int topK) {
+        List<List<Map<String, Object>>> results = findSimilarUsersBatchAsync(embeddings, topK).block();
+        return results != null ? results : Collections.emptyList();
+    }
+
+    public Mono<List<List<Map<String, Object>>>> findSimilarUsersBatchAsync(List<float[]> embeddings, int topK) {
+        if (embeddings == null || embeddings.isEmpty()) {
+            return Mono.just(Collections.<List<Map<String, Object>>>emptyList());
+        }
+        embeddings.forEach(UserVectorClientService::requireDimension);
+
+        return Flux.fromIterable(partition(embeddings, searchBatchSize))
+                .concatMap(chunk -> searchBatch(chunk, topK))
+                .collectList()
+                .map(chunks -> {
+                    List<List<Map<String, Object>>> all = new ArrayList<>(embeddings.size());
+                    chunks.forEach(all::addAll);
+                    return all;
+                });
+    }
+
+    private Mono<List<List<Map<String, Object>>>> searchBatch(List<float[]> chunk, int topK) {
+        String url = qdrantApiUrl + "/collections/" + qdrantCollectionName + "/points/search/batch";
+
+        List<Map<String, Object>> searches = new ArrayList<>(chunk.size());
+        for (float[] embedding : chunk) {
+            Map<String, Object> search = new HashMap<>();
+            search.put("vector", embedding);
+            search.put("limit", topK);
+            search.put("with_payload", true);
+            search.put("with_vectors", false);
+            putSearchParams(search);
+            searches.add(search);
+        }
+        Map<String, Object> requestBody = Collections.singletonMap("searches", searches);
+
+        return webClient.post().uri(url).headers(this::applyHeaders)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(body -> parseBatchSearchResult(body, chunk.size()))
+                .onErrorResume(e -> {
+                    logger.error("❌ Batch search for {} vectors failed: {}", chunk.size(), e.getMessage());
+                    return Mono.just(emptyResults(chunk.size()));
+                });
+    }
+
+    private List<List<Map<String, Object>>> parseBatchSearchResult(String body, int expected) {
+        JsonNode resultNode = readTree(body).get("result");
+        if (resultNode == null || !resultNode.isArray()) {
+            logger.warn("⚠️ Qdrant batch search result is not an array or is null.");
+            return emptyResults(expected);
+        }
+        List<List<Map<String, Object>>> results = new ArrayList<>(expected);
+        for (JsonNode hits : resultNode) {
+            results.add(parseHits(hits));
+        }
+        while (results.size() < expected) {
+            results.add(Collections.emptyList());
+        }
+        return results;
+    }
+
+    private List<Map<String, Object>> parseSearchResult(String body) {
+        JsonNode resultNode = readTree(body).get("result");
+
+        if (resultNode == null || !resultNode.isArray()) {
+            logger.warn("⚠️ Qdrant search result is not an array or is null.");
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> similarUsers = parseHits(resultNode);
+        logger.info("✅ Found {} similar users in Qdrant.", similarUsers.size());
+        return similarUsers;
+    }
+
+    private List<Map<String, Object>> parseHits(JsonNode hits) {
+        List<Map<String, Object>> similarUsers = new ArrayList<>();
+        for (JsonNode pointNode : hits) {
+            Map<String, Object> userMeta = new HashMap<>();
+            userMeta.put("user_id", pointNode.get("id").asText());
+            if (pointNode.has("payload")) {
+                Map<String, Object> payloadMap = objectMapper.convertValue(pointNode.get("payload"),
+                        new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {});
+                userMeta.putAll(payloadMap);
             }
+            userMeta.put("score", pointNode.get("score").asDouble());
+            similarUsers.add(userMeta);
+        }
+        return similarUsers;
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return objectMapper.readTree(body);
         } catch (Exception e) {
-            logger.error("❌ Exception while finding similar users: {}", e.getMessage());
-            return Collections.emptyList();
+            throw new IllegalStateException("Unreadable Qdrant search response", e);
+        }
+    }
+
+    private static List<List<Map<String, Object>>> emptyResults(int count) {
+        List<List<Map<String, Object>>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(Collections.emptyList());
+        }
+        return results;
+    }
+
+    // עם quantization: הסריקה על int8, והמועמדים מדורגים מחדש מול הווקטורים המקוריים
+    private void putSearchParams(Map<String, Object> search) {
+        if (quantizationEnabled) {
+            search.put("params", Collections.singletonMap("quantization",
+                    Collections.singletonMap("rescore", true)));
+        }
+    }
+
+    private static Object formatPointId(String userId) {
+        try {
+            return Long.parseLong(userId);
+        } catch (NumberFormatException e) {
+            return userId;
+        }
+    }
+
+    private static <T> List<List<T>> partition(List<T> items, int size) {
+        int chunkSize = Math.max(1, size);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private static void requireDimension(float[] embedding) {
+        if (embedding == null || embedding.length != REQUIRED_EMBEDDING_DIM) {
+            throw new IllegalArgumentException("❌ Embedding must have " + REQUIRED_EMBEDDING_DIM + " values, but got: " +
+                    (embedding == null ? "null" : embedding.length));
         }
     }
-}
\ No newline at end of file
+}
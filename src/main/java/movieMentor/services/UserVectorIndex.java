@@ -0,0 +1,42 @@
+package movieMentor.services;
+
+import movieMentor.dto.UserVectorPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * אינדקס וקטורי המשתמשים לחיפוש "משתמשים עם טעם דומה".
+ *
+ * The backend is chosen with {@code user-vector.index}: {@code qdrant} (default, remote) or
+ * {@code hnsw} (embedded, in-JVM). Hits have the same shape for every backend:
+ * {@code user_id}, the stored payload fields, and {@code score} (cosine similarity).
+ */
+public interface UserVectorIndex {
+
+    String name();
+
+    void upsert(UserVectorPoint point);
+
+    /**
+     * @return number of points stored
+     */
+    default int upsertAll(List<UserVectorPoint> points) {
+        points.forEach(this::upsert);
+        return points.size();
+    }
+
+    List<Map<String, Object>> findSimilar(float[] vector, int topK);
+
+    /**
+     * @return one hit list per input vector, in input order
+     */
+    default List<List<Map<String, Object>>> findSimilarBatch(List<float[]> vectors, int topK) {
+        List<List<Map<String, Object>>> results = new ArrayList<>(vectors.size());
+        for (float[] vector : vectors) {
+            results.add(findSimilar(vector, topK));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,45 @@
+package movieMentor.services;
+
+import lombok.RequiredArgsConstructor;
+import movieMentor.beans.MovieDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * דימיון וקטורי מול אינדקס המועמדים – עדיפות 1.
+ */
+@Component
+@RequiredArgsConstructor
+public class VectorRecommendationSource implements RecommendationSource {
+
+    private final RecommendationService recommendationService;
+
+    @Value("${recommendation.source.vector.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public int priority() {
+        return 1;
+    }
+
+    @Override
+    public long timeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public List<MovieDTO> fetch(RecommendationContext context) {
+        if (!context.hasUserVector()) {
+            return Collections.emptyList();
+        }
+        return recommendationService.findMostSimilarMovies(context.getUserVector(), 10);
+    }
+}
@@ -0,0 +1,145 @@
+package movieMentor.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Okapi BM25 keyword index over short documents (movie overviews), addressed by row.
+ *
+ * Each term keeps a packed posting list of {@code (row, term frequency)} pairs, so a query
+ * touches only the rows that contain one of its terms. Tokens are lower-cased runs of
+ * letters and digits; very short tokens and common English stop words are dropped. There
+ * is no stemming.
+ *
+ * Immutable after construction.
+ */
+public final class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "he", "her",
+            "his", "in", "into", "is", "it", "its", "of", "on", "or", "she", "that", "the", "their",
+            "they", "this", "to", "was", "who", "with"));
+
+    private final int rows;
+    private final int[] documentLengths;
+    private final float averageLength;
+    // term -> [row0, tf0, row1, tf1, ...], rows ascending
+    private final Map<String, int[]> postings;
+
+    /**
+     * @param documents one document per row, null allowed
+     */
+    public Bm25Index(List<String> documents) {
+        this.rows = documents.size();
+        this.documentLengths = new int[rows];
+        Map<String, IntList> building = new HashMap<>();
+        long totalLength = 0;
+        for (int row = 0; row < rows; row++) {
+            List<String> tokens = tokenize(documents.get(row));
+            documentLengths[row] = tokens.size();
+            totalLength += tokens.size();
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                building.computeIfAbsent(term.getKey(), key -> new IntList()).add(row, term.getValue());
+            }
+        }
+        this.averageLength = rows == 0 ? 0f : (float) totalLength / rows;
+        this.postings = new HashMap<>(building.size() * 2);
+        for (Map.Entry<String, IntList> term : building.entrySet()) {
+            postings.put(term.getKey(), term.getValue().toArray());
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Writes the best {@code k} rows for {@code query} (only rows set in {@code filter},
+     * when given) into {@code rowsOut}/{@code scoresOut}, best first. Rows without any
+     * query term are not returned.
+     *
+     * @return number of results written (at most {@code k})
+     */
+    public int search(String query, BitSet filter, int k, long[] rowsOut, float[] scoresOut) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (k <= 0 || terms.isEmpty() || rows == 0) {
+            return 0;
+        }
+        float[] scores = new float[rows];
+        BitSet touched = new BitSet(rows);
+        for (String term : terms) {
+            int[] posting = postings.get(term);
+            if (posting == null) continue;
+            int documentFrequency = posting.length / 2;
+            float idf = (float) Math.log(1.0 + (rows - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (int i = 0; i < posting.length; i += 2) {
+                int row = posting[i];
+                if (filter != null && !filter.get(row)) continue;
+                float tf = posting[i + 1];
+                float norm = K1 * (1 - B + B * documentLengths[row] / averageLength);
+                scores[row] += idf * tf * (K1 + 1) / (tf + norm);
+                touched.set(row);
+            }
+        }
+
+        int found = 0;
+        for (int row = touched.nextSetBit(0); row >= 0; row = touched.nextSetBit(row + 1)) {
+            found = TopKSelector.offer(rowsOut, scoresOut, found, k, row, scores[row]);
+        }
+        TopKSelector.sortDescending(rowsOut, scoresOut, found);
+        return found;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                String token = current.toString();
+                if (token.length() >= MIN_TOKEN_LENGTH && !STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                current.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int row, int frequency) {
+            if (size + 2 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = row;
+            values[size++] = frequency;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
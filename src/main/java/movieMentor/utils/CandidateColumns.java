@@ -0,0 +1,105 @@
+package movieMentor.utils;
+
+import movieMentor.enums.GenreEnum;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Per-row metadata of the candidate index, kept column by column in primitive arrays.
+ *
+ * Row {@code i} describes the movie in row {@code i} of the vector index it was built
+ * with. Genre membership is one {@link BitSet} of rows per {@link GenreEnum} genre, so a
+ * genre filter is a handful of ORs; the release-year and vote-count checks then run only
+ * over the rows still set. The resulting bitset is passed to
+ * {@link VectorIndex#search}, which scores only those rows.
+ *
+ * Immutable after construction.
+ */
+public final class CandidateColumns {
+
+    private static final GenreEnum[] GENRES = GenreEnum.values();
+
+    private final int rows;
+    private final short[] releaseYears;
+    private final int[] voteCounts;
+    private final BitSet[] rowsByGenre;
+
+    /**
+     * @param entries one entry per index row, in row order
+     */
+    public CandidateColumns(List<CandidatePoolSnapshot.Entry> entries) {
+        this.rows = entries.size();
+        this.releaseYears = new short[rows];
+        this.voteCounts = new int[rows];
+        this.rowsByGenre = new BitSet[GENRES.length];
+        for (int g = 0; g < GENRES.length; g++) {
+            rowsByGenre[g] = new BitSet(rows);
+        }
+        for (int row = 0; row < rows; row++) {
+            CandidatePoolSnapshot.Entry entry = entries.get(row);
+            releaseYears[row] = (short) entry.getReleaseYear();
+            voteCounts[row] = entry.getVoteCount();
+            for (int genreId : entry.getGenreIds()) {
+                int genre = genreIndex(genreId);
+                if (genre >= 0) {
+                    rowsByGenre[genre].set(row);
+                }
+            }
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Rows that have at least one of {@code genreIds}, a known release year within
+     * {@code [yearFrom, yearTo]} and at least {@code minVotes} votes. A null/empty genre
+     * list and zero bounds leave that criterion out; genre ids outside {@link GenreEnum}
+     * match nothing.
+     *
+     * @return the matching rows, or null when no criterion is given (every row matches)
+     */
+    public BitSet filter(int[] genreIds, int yearFrom, int yearTo, int minVotes) {
+        boolean byGenre = genreIds != null && genreIds.length > 0;
+        boolean byYear = yearFrom > 0 || yearTo > 0;
+        boolean byVotes = minVotes > 0;
+        if (!byGenre && !byYear && !byVotes) {
+            return null;
+        }
+
+        BitSet result = new BitSet(rows);
+        if (byGenre) {
+            for (int genreId : genreIds) {
+                int genre = genreIndex(genreId);
+                if (genre >= 0) {
+                    result.or(rowsByGenre[genre]);
+                }
+            }
+        } else {
+            result.set(0, rows);
+        }
+
+        if (byYear || byVotes) {
+            int from = yearFrom > 0 ? yearFrom : Integer.MIN_VALUE;
+            int to = yearTo > 0 ? yearTo : Integer.MAX_VALUE;
+            for (int row = result.nextSetBit(0); row >= 0; row = result.nextSetBit(row + 1)) {
+                int year = releaseYears[row];
+                if ((byYear && (year == 0 || year < from || year > to)) || voteCounts[row] < minVotes) {
+                    result.clear(row);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int genreIndex(int genreId) {
+        for (int g = 0; g < GENRES.length; g++) {
+            if (GENRES[g].getId() == genreId) {
+                return g;
+            }
+        }
+        return -1;
+    }
+}
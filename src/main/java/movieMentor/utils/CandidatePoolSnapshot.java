@@ -0,0 +1,225 @@
+package movieMentor.utils;
+
+import movieMentor.beans.MovieDTO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Versioned on-disk copy of the candidate pool: each movie's DTO fields, its pool metadata
+ * (TMDB popularity, genres, release year, vote count, when it was last listed) and its
+ * embedding.
+ *
+ * Loading it at boot fills the candidate index without any TMDB or OpenAI call. The file
+ * starts with a magic number, a schema version and the embedding dimension; a file with a
+ * different version or dimension is rejected rather than half-read, and the pool is then
+ * rebuilt by the background refresh. Both directions stream one movie at a time, so a pool
+ * of tens of thousands never holds all its vectors twice. Writes go to a temp file that is
+ * atomically moved over the old snapshot.
+ */
+public final class CandidatePoolSnapshot {
+
+    private static final int MAGIC = 0x4D4D4350; // "MMCP"
+    public static final int SCHEMA_VERSION = 3;
+
+    private CandidatePoolSnapshot() {
+    }
+
+    /**
+     * A pool member without its vector. Unknown metadata is an empty genre list, year 0
+     * and vote count 0.
+     */
+    public static final class Entry {
+        private static final int[] NO_GENRES = new int[0];
+
+        private final MovieDTO movie;
+        private final double popularity;
+        private final long seenAt;
+        private final int[] genreIds;
+        private final int releaseYear;
+        private final int voteCount;
+
+        /**
+         * @param seenAt epoch millis of the last refresh that listed the movie
+         */
+        public Entry(MovieDTO movie, double popularity, long seenAt) {
+            this(movie, popularity, seenAt, NO_GENRES, 0, 0);
+        }
+
+        /**
+         * @param genreIds TMDB genre ids ({@code GenreEnum})
+         */
+        public Entry(MovieDTO movie, double popularity, long seenAt, int[] genreIds, int releaseYear, int voteCount) {
+            this.movie = movie;
+            this.popularity = popularity;
+            this.seenAt = seenAt;
+            this.genreIds = genreIds != null ? genreIds : NO_GENRES;
+            this.releaseYear = releaseYear;
+            this.voteCount = voteCount;
+        }
+
+        /**
+         * Same movie metadata, listed again.
+         */
+        public Entry withSeen(MovieDTO movie, double popularity, long seenAt) {
+            return new Entry(movie, popularity, seenAt, genreIds, releaseYear, voteCount);
+        }
+
+        public MovieDTO getMovie() {
+            return movie;
+        }
+
+        public double getPopularity() {
+            return popularity;
+        }
+
+        public long getSeenAt() {
+            return seenAt;
+        }
+
+        public int[] getGenreIds() {
+            return genreIds;
+        }
+
+        public int getReleaseYear() {
+            return releaseYear;
+        }
+
+        public int getVoteCount() {
+            return voteCount;
+        }
+    }
+
+    public interface Visitor {
+        /**
+         * @param vector a fresh array per entry, owned by the visitor
+         */
+        void accept(Entry entry, float[] vector);
+    }
+
+    /**
+     * @param vectors embedding lookup; every entry must have a vector of {@code dimension} values
+     */
+    public static void write(Path path, int dimension, List<Entry> entries, LongFunction<float[]> vectors) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(SCHEMA_VERSION);
+            out.writeInt(dimension);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                MovieDTO movie = entry.getMovie();
+                float[] vector = vectors.apply(movie.getId());
+                if (vector == null || vector.length != dimension) {
+                    throw new IllegalArgumentException("vector of movie " + movie.getId() + " must have " + dimension + " values");
+                }
+                out.writeLong(movie.getId());
+                writeNullable(out, movie.getTitle());
+                writeNullable(out, movie.getPosterUrl());
+                out.writeDouble(movie.getVoteAverage() != null ? movie.getVoteAverage() : Double.NaN);
+                writeNullable(out, movie.getOverview());
+                out.writeDouble(entry.getPopularity());
+                out.writeLong(entry.getSeenAt());
+                out.writeShort(entry.getReleaseYear());
+                out.writeInt(entry.getVoteCount());
+                int genres = Math.min(255, entry.getGenreIds().length);
+                out.writeByte(genres);
+                for (int g = 0; g < genres; g++) {
+                    out.writeInt(entry.getGenreIds()[g]);
+                }
+                for (float value : vector) {
+                    out.writeFloat(value);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the whole snapshot into {@code visitor}.
+     *
+     * @return epoch millis when the snapshot was written
+     * @throws IOException if the file is unreadable, truncated, or of another schema version or dimension
+     */
+    public static long read(Path path, int dimension, Visitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a candidate pool snapshot");
+            }
+            int version = in.readInt();
+            if (version != SCHEMA_VERSION) {
+                throw new IOException("snapshot schema version " + version + ", expected " + SCHEMA_VERSION);
+            }
+            int storedDimension = in.readInt();
+            if (storedDimension != dimension) {
+                throw new IOException("snapshot dimension " + storedDimension + ", expected " + dimension);
+            }
+            long writtenAt = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("corrupt snapshot: negative movie count");
+            }
+
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String title = readNullable(in);
+                String posterUrl = readNullable(in);
+                double voteAverage = in.readDouble();
+                String overview = readNullable(in);
+                double popularity = in.readDouble();
+                long seenAt = in.readLong();
+                int releaseYear = in.readShort();
+                int voteCount = in.readInt();
+                int[] genreIds = new int[in.readUnsignedByte()];
+                for (int g = 0; g < genreIds.length; g++) {
+                    genreIds[g] = in.readInt();
+                }
+                float[] vector = new float[dimension];
+                for (int d = 0; d < dimension; d++) {
+                    vector[d] = in.readFloat();
+                }
+                // posterUrl נשמר מלא – לא עוברים דרך setPosterUrl
+                MovieDTO movie = new MovieDTO(id, title, posterUrl, Double.isNaN(voteAverage) ? null : voteAverage, overview);
+                visitor.accept(new Entry(movie, popularity, seenAt, genreIds, releaseYear, voteCount), vector);
+            }
+            return writtenAt;
+        }
+    }
+
+    // אורך + UTF-8 (ולא writeUTF, שמוגבל ל-64KB); -1 עבור null
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -16,12 +16,75 @@ public class EmbeddingUtils {
 
         for (int i = 0; i < a.length; i++) {
             dotProduct += a[i] * b[i];
-            normA += Math.pow(a[i], 2);
-            normB += Math.pow(b[i], 2);
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
         }
 
         if (normA == 0 || normB == 0) return 0;
 
         return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
     }
+
+    /**
+     * מכפלה סקלרית בין {@code a} לבין שורה בתוך מערך דחוס (row-major).
+     * The loop is unrolled with four independent accumulators so the JIT can keep
+     * the FP pipeline busy instead of serialising on a single sum.
+     */
+    public static float dot(float[] a, float[] packed, int offset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * packed[offset + i];
+            s1 += a[i + 1] * packed[offset + i + 1];
+            s2 += a[i + 2] * packed[offset + i + 2];
+            s3 += a[i + 3] * packed[offset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[i] * packed[offset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            throw new IllegalArgumentException("Invalid vectors");
+        }
+        return dot(a, b, 0, a.length);
+    }
+
+    public static double norm(float[] v) {
+        double sum = 0;
+        for (float x : v) {
+            sum += x * x;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * מנרמל וקטור לאורך 1 ומעתיק לתוך {@code target} החל מ-{@code offset}.
+     * A zero vector is copied as zeros so it scores 0 against everything.
+     */
+    public static void normalizeInto(float[] source, float[] target, int offset) {
+        double norm = norm(source);
+        float inv = norm == 0 ? 0f : (float) (1.0 / norm);
+        for (int i = 0; i < source.length; i++) {
+            target[offset + i] = source[i] * inv;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the float bits – identifies a vector without storing it.
+     */
+    public static long fingerprint(float[] vector) {
+        long hash = 0xcbf29ce484222325L;
+        for (float value : vector) {
+            int bits = Float.floatToIntBits(value);
+            for (int shift = 0; shift < 32; shift += 8) {
+                hash ^= (bits >>> shift) & 0xFF;
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
 }
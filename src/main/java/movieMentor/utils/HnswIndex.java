@@ -0,0 +1,509 @@
+package movieMentor.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW (Hierarchical Navigable Small World) graph for cosine nearest-neighbour search.
+ *
+ * Vectors are normalised on insert, so similarity is a plain dot product. Every node gets a
+ * random top level; a search descends greedily through the sparse upper levels and then runs
+ * a best-first search of width {@code ef} on level 0. Neighbours are chosen with the diversity
+ * heuristic from the HNSW paper, at most {@code m} per level ({@code 2m} on level 0).
+ *
+ * Re-inserting an id leaves the old node in the graph as a tombstone: it is still traversed
+ * but never returned. {@link #compacted()} rebuilds the graph from the live nodes once
+ * tombstones pile up. Writers are serialised; searches run concurrently under a read lock.
+ */
+public class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    // עם m >= 2 ההסתברות לרמה כזאת אפסית; ערך גדול יותר בקובץ הוא שחיתות, לא גרף אמיתי
+    private static final int MAX_LEVEL = 64;
+
+    private final int dimension;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    private static final class Node {
+        final long id;
+        final float[] vector;
+        final int[][] links;
+        final int[] linkCounts;
+        boolean deleted;
+
+        Node(long id, float[] vector, int level, int m, int maxLinks0) {
+            this.id = id;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxLinks0 : m];
+            }
+        }
+
+        int level() {
+            return links.length - 1;
+        }
+    }
+
+    private static final class Scored {
+        final int node;
+        final float score;
+
+        Scored(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Scored> BY_SCORE = Comparator.comparingDouble(s -> s.score);
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        if (dimension <= 0 || m < 2 || efConstruction <= 0) {
+            throw new IllegalArgumentException("dimension, m (>= 2) and efConstruction must be positive");
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * מוסיף או מחליף את הווקטור של {@code id}.
+     *
+     * @return false when the vector is missing or has the wrong dimension
+     */
+    public boolean upsert(long id, float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            return false;
+        }
+        float[] normalized = new float[dimension];
+        EmbeddingUtils.normalizeInto(vector, normalized, 0);
+
+        lock.writeLock().lock();
+        try {
+            markDeleted(id);
+            insert(id, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return markDeleted(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top-{@code k} live ids by cosine similarity to {@code query}.
+     *
+     * @param ef        search width on level 0; raised to {@code k} if smaller
+     * @param idsOut    receives ids, best first (length >= k)
+     * @param scoresOut receives the matching similarities (length >= k)
+     * @return number of results written
+     */
+    public int search(float[] query, int k, int ef, long[] idsOut, float[] scoresOut) {
+        if (query == null || query.length != dimension || k <= 0) {
+            return 0;
+        }
+        float[] q = new float[dimension];
+        EmbeddingUtils.normalizeInto(query, q, 0);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return 0;
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(q, current, level);
+            }
+            List<Scored> found = searchLayer(q, current, Math.max(ef, k), 0);
+
+            int size = 0;
+            for (Scored candidate : found) {
+                Node node = nodes.get(candidate.node);
+                if (!node.deleted) {
+                    size = TopKSelector.offer(idsOut, scoresOut, size, k, node.id, candidate.score);
+                }
+            }
+            TopKSelector.sortDescending(idsOut, scoresOut, size);
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return nodeById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live ids.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * בונה גרף חדש רק מהצמתים החיים (בלי tombstones). The current index is left unchanged.
+     */
+    public HnswIndex compacted() {
+        HnswIndex rebuilt = new HnswIndex(dimension, m, efConstruction);
+        lock.readLock().lock();
+        try {
+            for (Node node : nodes) {
+                if (!node.deleted) {
+                    rebuilt.insert(node.id, node.vector);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Layout: header (magic, version, dimension, m, efConstruction, node count, entry point,
+     * max level, deleted count), then per node {@code id, deleted, level, vector, and for each
+     * level the link count followed by the links}.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(nodes.size());
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            out.writeInt(deletedCount);
+            for (Node node : nodes) {
+                out.writeLong(node.id);
+                out.writeBoolean(node.deleted);
+                out.writeInt(node.level());
+                for (float value : node.vector) {
+                    out.writeFloat(value);
+                }
+                for (int level = 0; level <= node.level(); level++) {
+                    out.writeInt(node.linkCounts[level]);
+                    for (int i = 0; i < node.linkCounts[level]; i++) {
+                        out.writeInt(node.links[level][i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo}. The graph is checked before it is returned
+     * (link targets inside the node list and present on that level, a consistent entry point and
+     * counters), so a truncated or corrupt file fails here with an {@link IOException} instead of
+     * an {@code ArrayIndexOutOfBoundsException} on the first search; the caller rebuilds the index.
+     */
+    public static HnswIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an HNSW snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported HNSW snapshot version " + version);
+        }
+        HnswIndex index;
+        try {
+            index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt HNSW snapshot: " + e.getMessage());
+        }
+        int count = in.readInt();
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        index.deletedCount = in.readInt();
+        if (count < 0 || index.entryPoint < -1 || index.entryPoint >= count || (index.entryPoint < 0) != (count == 0)
+                || index.maxLevel < -1 || index.maxLevel > MAX_LEVEL) {
+            throw new IOException("Corrupt HNSW snapshot: header (nodes=" + count + ", entry point="
+                    + index.entryPoint + ", max level=" + index.maxLevel + ")");
+        }
+
+        int deleted = 0;
+        for (int n = 0; n < count; n++) {
+            long id = in.readLong();
+            boolean isDeleted = in.readBoolean();
+            int level = in.readInt();
+            if (level < 0 || level > index.maxLevel) {
+                throw new IOException("Corrupt HNSW snapshot: node " + n + " has level " + level);
+            }
+            float[] vector = new float[index.dimension];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = in.readFloat();
+            }
+            Node node = new Node(id, vector, level, index.m, index.maxLinks0);
+            node.deleted = isDeleted;
+            for (int l = 0; l <= level; l++) {
+                int links = in.readInt();
+                if (links < 0 || links > node.links[l].length) {
+                    throw new IOException("Corrupt HNSW snapshot: node " + n + " has " + links + " links on level " + l);
+                }
+                for (int i = 0; i < links; i++) {
+                    int neighbour = in.readInt();
+                    if (neighbour < 0 || neighbour >= count || neighbour == n) {
+                        throw new IOException("Corrupt HNSW snapshot: node " + n + " links to " + neighbour
+                                + " on level " + l + " (nodes=" + count + ")");
+                    }
+                    node.links[l][i] = neighbour;
+                }
+                node.linkCounts[l] = links;
+            }
+            index.nodes.add(node);
+            if (isDeleted) {
+                deleted++;
+            } else if (index.nodeById.put(id, n) != null) {
+                throw new IOException("Corrupt HNSW snapshot: id " + id + " is live twice");
+            }
+        }
+
+        // שכן ברמה l חייב להגיע לרמה l, אחרת greedyClosest/searchLayer קוראים מחוץ למערך
+        for (int n = 0; n < count; n++) {
+            Node node = index.nodes.get(n);
+            for (int l = 1; l <= node.level(); l++) {
+                for (int i = 0; i < node.linkCounts[l]; i++) {
+                    if (index.nodes.get(node.links[l][i]).level() < l) {
+                        throw new IOException("Corrupt HNSW snapshot: node " + n + " links to "
+                                + node.links[l][i] + " above its level " + l);
+                    }
+                }
+            }
+        }
+        if (deleted != index.deletedCount
+                || (count > 0 && index.nodes.get(index.entryPoint).level() != index.maxLevel)) {
+            throw new IOException("Corrupt HNSW snapshot: counters do not match the nodes");
+        }
+        return index;
+    }
+
+    private boolean markDeleted(long id) {
+        Integer existing = nodeById.remove(id);
+        if (existing == null) {
+            return false;
+        }
+        nodes.get(existing).deleted = true;
+        deletedCount++;
+        return true;
+    }
+
+    // נקרא תחת write lock (או על אינדקס שעדיין לא פורסם); הווקטור כבר מנורמל
+    private void insert(long id, float[] vector) {
+        int level = randomLevel();
+        int index = nodes.size();
+        Node node = new Node(id, vector, level, m, maxLinks0);
+        nodes.add(node);
+        nodeById.put(id, index);
+
+        if (entryPoint < 0) {
+            entryPoint = index;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Scored> candidates = searchLayer(vector, current, efConstruction, l);
+            List<Scored> neighbours = selectNeighbours(candidates, m);
+            for (Scored neighbour : neighbours) {
+                node.links[l][node.linkCounts[l]++] = neighbour.node;
+            }
+            for (Scored neighbour : neighbours) {
+                addLink(neighbour.node, index, l);
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = index;
+        }
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private float similarity(float[] q, int node) {
+        return EmbeddingUtils.dot(q, nodes.get(node).vector, 0, dimension);
+    }
+
+    private int greedyClosest(float[] q, int start, int level) {
+        int current = start;
+        float best = similarity(q, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbour = node.links[level][i];
+                float score = similarity(q, neighbour);
+                if (score > best) {
+                    best = score;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one level.
+     *
+     * @return up to {@code ef} nodes (tombstones included), best first
+     */
+    private List<Scored> searchLayer(float[] q, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(BY_SCORE.reversed());
+        PriorityQueue<Scored> results = new PriorityQueue<>(BY_SCORE);
+
+        Scored start = new Scored(entry, similarity(q, entry));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Scored candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score < results.peek().score) {
+                break;
+            }
+            Node node = nodes.get(candidate.node);
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbour = node.links[level][i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = similarity(q, neighbour);
+                if (results.size() < ef || score > results.peek().score) {
+                    Scored scored = new Scored(neighbour, score);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Scored> ordered = new ArrayList<>(results);
+        ordered.sort(BY_SCORE.reversed());
+        return ordered;
+    }
+
+    /**
+     * היוריסטיקת הגיוון: מועמד נשמר רק אם הוא קרוב לבסיס יותר מאשר לכל שכן שכבר נבחר.
+     * Candidates must be sorted best first; slots left over are filled with the pruned ones.
+     */
+    private List<Scored> selectNeighbours(List<Scored> candidates, int count) {
+        List<Scored> selected = new ArrayList<>(count);
+        List<Scored> pruned = new ArrayList<>();
+        for (Scored candidate : candidates) {
+            if (selected.size() >= count) {
+                break;
+            }
+            float[] vector = nodes.get(candidate.node).vector;
+            boolean diverse = true;
+            for (Scored kept : selected) {
+                if (similarity(vector, kept.node) > candidate.score) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < count; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void addLink(int from, int to, int level) {
+        Node node = nodes.get(from);
+        int[] links = node.links[level];
+        if (node.linkCounts[level] < links.length) {
+            links[node.linkCounts[level]++] = to;
+            return;
+        }
+        // הרשימה מלאה – בוחרים מחדש מבין השכנים הקיימים + החדש
+        List<Scored> candidates = new ArrayList<>(links.length + 1);
+        for (int i = 0; i < node.linkCounts[level]; i++) {
+            candidates.add(new Scored(links[i], similarity(node.vector, links[i])));
+        }
+        candidates.add(new Scored(to, similarity(node.vector, to)));
+        candidates.sort(BY_SCORE.reversed());
+
+        List<Scored> kept = selectNeighbours(candidates, links.length);
+        for (int i = 0; i < kept.size(); i++) {
+            links[i] = kept.get(i).node;
+        }
+        node.linkCounts[level] = kept.size();
+    }
+}
@@ -0,0 +1,221 @@
+package movieMentor.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only file of {@code (id, key)} long pairs – a persistent {@code Map<Long, Long>}.
+ *
+ * File layout: a 16 byte header (magic, version) followed by 16 byte records in
+ * little-endian order. The map lives in memory and is rebuilt by replaying the records on
+ * open, the last record of an id winning; a torn record at the end (crash mid-write) is
+ * dropped. Overwritten records are dead space until {@link #compact()}.
+ */
+public class IdKeyLog implements Closeable {
+
+    private static final int MAGIC = 0x49444B4C;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 16;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    private final Map<Long, Long> keyById = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    private FileChannel channel;
+    private long end;
+    private long records;
+
+    private IdKeyLog(Path path) {
+        this.path = path;
+    }
+
+    public static IdKeyLog open(Path path) throws IOException {
+        IdKeyLog log = new IdKeyLog(path);
+        log.load();
+        return log;
+    }
+
+    private void load() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            channel.truncate(0);
+            write(header(), 0);
+            end = HEADER_BYTES;
+            records = 0;
+            return;
+        }
+
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        read(head, 0);
+        if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+            close();
+            throw new IOException("Not an id/key log (or unsupported version): " + path);
+        }
+
+        long complete = HEADER_BYTES + (size - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+        ByteBuffer chunk = ByteBuffer.allocate(READ_BUFFER_BYTES - READ_BUFFER_BYTES % RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long position = HEADER_BYTES; position < complete; ) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), complete - position));
+            read(chunk, position);
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_BYTES) {
+                keyById.put(chunk.getLong(), chunk.getLong());
+                records++;
+            }
+            position += chunk.limit();
+        }
+        if (complete != size) {
+            channel.truncate(complete);
+        }
+        end = complete;
+    }
+
+    /**
+     * Records the key for an id; writing the key an id already has is a no-op.
+     */
+    public synchronized void put(long id, long key) throws IOException {
+        Long existing = keyById.get(id);
+        if (existing != null && existing == key) {
+            return;
+        }
+        record.clear();
+        record.putLong(id).putLong(key).flip();
+        write(record, end);
+        end += RECORD_BYTES;
+        records++;
+        keyById.put(id, key);
+    }
+
+    /**
+     * @return the key of the id, or null
+     */
+    public synchronized Long get(long id) {
+        return keyById.get(id);
+    }
+
+    public synchronized boolean contains(long id) {
+        return keyById.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return keyById.size();
+    }
+
+    public synchronized long deadRecords() {
+        return records - keyById.size();
+    }
+
+    /**
+     * @return a copy of the current mapping
+     */
+    public synchronized Map<Long, Long> snapshot() {
+        return new HashMap<>(keyById);
+    }
+
+    /**
+     * Rewrites the file with live records only and atomically swaps it in place; on failure
+     * the file at {@code path} is reopened so the log stays usable.
+     */
+    public synchronized void compact() throws IOException {
+        if (records == keyById.size()) {
+            return;
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(READ_BUFFER_BYTES - READ_BUFFER_BYTES % RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.put(header());
+            long position = 0;
+            for (Map.Entry<Long, Long> entry : keyById.entrySet()) {
+                if (chunk.remaining() < RECORD_BYTES) {
+                    chunk.flip();
+                    position += writeFully(out, chunk, position);
+                    chunk.clear();
+                }
+                chunk.putLong(entry.getKey()).putLong(entry.getValue());
+            }
+            chunk.flip();
+            writeFully(out, chunk, position);
+            out.force(true);
+        }
+
+        closeChannel();
+        keyById.clear();
+        records = 0;
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            load();
+        } catch (IOException | RuntimeException e) {
+            try {
+                closeChannel();
+                keyById.clear();
+                records = 0;
+                Files.deleteIfExists(tmp);
+                load();
+            } catch (IOException | RuntimeException reopen) {
+                e.addSuppressed(reopen);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+        closeChannel();
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(VERSION).putLong(0L).flip();
+        return head;
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        writeFully(channel, buffer, position);
+    }
+
+    private static long writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += target.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        long read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+            read += n;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package movieMentor.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to {@code double} values.
+ *
+ * Meant for accumulating scores per id ({@link #addTo}) without boxing a Long and a
+ * Double per entry. Linear probing over power-of-two tables, resized at 50% load; there
+ * is no removal. Iterate with {@link #nextSlot}, {@link #keyAt} and {@link #valueAt}:
+ *
+ * <pre>
+ * for (int slot = map.nextSlot(-1); slot >= 0; slot = map.nextSlot(slot)) { ... }
+ * </pre>
+ *
+ * Not thread-safe.
+ */
+public class LongDoubleHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongDoubleHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongDoubleHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key} (missing keys start at 0).
+     *
+     * @return the new value
+     */
+    public double addTo(long key, double delta) {
+        int slot = find(key);
+        if (used[slot]) {
+            values[slot] += delta;
+            return values[slot];
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    public void put(long key, double value) {
+        int slot = find(key);
+        if (used[slot]) {
+            values[slot] = value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    /**
+     * @return the value of {@code key}, or {@code defaultValue} when it is absent
+     */
+    public double get(long key, double defaultValue) {
+        int slot = find(key);
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return used[find(key)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the next occupied slot after {@code slot}, or -1 when there is none
+     */
+    public int nextSlot(int slot) {
+        for (int i = slot + 1; i < used.length; i++) {
+            if (used[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public double valueAt(int slot) {
+        return values[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void insert(int slot, long key, double value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // המשבצת של המפתח, או המשבצת הריקה שבה הוא ייכנס
+    private int find(long key) {
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    // מזהי TMDB רציפים – מערבבים את הביטים כדי שלא יתקבצו במשבצות סמוכות
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
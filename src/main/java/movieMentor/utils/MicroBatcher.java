@@ -0,0 +1,130 @@
+package movieMentor.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-item requests from many threads into batched calls.
+ *
+ * A dispatcher thread waits for the first item, then keeps collecting until either
+ * {@code maxBatchSize} items are queued or {@code lingerMillis} has passed, and hands
+ * the batch to {@code batchFunction} on the supplied executor. The function must
+ * return one result per input, in input order.
+ */
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    private final Function<List<I>, List<O>> batchFunction;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Executor executor;
+    private final BlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private static final class Pending<I, O> {
+        final I input;
+        final CompletableFuture<O> result = new CompletableFuture<>();
+
+        Pending(I input) {
+            this.input = input;
+        }
+    }
+
+    public MicroBatcher(String name, Function<List<I>, List<O>> batchFunction,
+                        int maxBatchSize, long lingerMillis, Executor executor) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.executor = executor;
+        this.dispatcher = new Thread(this::dispatchLoop, name + "-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public CompletableFuture<O> submit(I input) {
+        Pending<I, O> pending = new Pending<>(input);
+        if (!running) {
+            pending.result.completeExceptionally(new IllegalStateException("batcher is closed"));
+            return pending.result;
+        }
+        queue.add(pending);
+        return pending.result;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Pending<I, O> first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    Pending<I, O> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    executor.execute(() -> runBatch(batch));
+                } catch (RuntimeException e) {
+                    fail(batch, e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runBatch(List<Pending<I, O>> batch) {
+        try {
+            List<I> inputs = new ArrayList<>(batch.size());
+            for (Pending<I, O> pending : batch) {
+                inputs.add(pending.input);
+            }
+            List<O> outputs = batchFunction.apply(inputs);
+            if (outputs == null || outputs.size() != batch.size()) {
+                throw new IllegalStateException("batch function returned "
+                        + (outputs == null ? "null" : outputs.size() + " results") + " for " + batch.size() + " inputs");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(outputs.get(i));
+            }
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void fail(List<Pending<I, O>> batch, Throwable error) {
+        for (Pending<I, O> pending : batch) {
+            pending.result.completeExceptionally(error);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        List<Pending<I, O>> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, new IllegalStateException("batcher is closed"));
+    }
+}
@@ -0,0 +1,465 @@
+package movieMentor.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Append-only, memory-mapped file of fixed-width embedding rows.
+ *
+ * File layout: a 32 byte header (magic, version, dimension, committed row count)
+ * followed by rows of {@code [long id][float x dimension]} in little-endian order.
+ * The id -> row index lives in memory and is rebuilt by scanning the rows on open;
+ * when an id is written twice the last row wins and the older one becomes dead
+ * space until {@link #compact()} rewrites the file with live rows only.
+ *
+ * The rows are mapped in segments of at most 1 GB (a single {@link MappedByteBuffer}
+ * can't address past 2 GB, about 349k rows of 1536 floats); a row never straddles two
+ * segments, and file offsets are computed as longs.
+ */
+public class MmapEmbeddingStore implements Closeable {
+
+    private static final int MAGIC = 0x4D454D42;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ROW_COUNT_OFFSET = 16;
+    private static final int INITIAL_ROWS = 1024;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+    private final Path path;
+    private final int dimension;
+    private final int rowBytes;
+    private final int segmentRows;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private FloatBuffer[] segmentFloats;
+    private int capacityRows;
+    private int rowCount;
+    private int deadRows;
+
+    /**
+     * Visitor for {@link #forEach}. {@code data} is a view over the mapped segment holding
+     * the row; the vector occupies {@code data.get(offset) .. data.get(offset + dimension - 1)}.
+     */
+    public interface RowVisitor {
+        void visit(long id, FloatBuffer data, int offset);
+    }
+
+    private MmapEmbeddingStore(Path path, int dimension, long segmentBytes) {
+        this.path = path;
+        this.dimension = dimension;
+        this.rowBytes = Long.BYTES + dimension * Float.BYTES;
+        this.segmentRows = (int) Math.max(1, Math.min(Integer.MAX_VALUE, segmentBytes) / rowBytes);
+    }
+
+    /**
+     * פותח (או יוצר) קובץ embeddings ובונה מחדש את האינדקס מהשורות הקיימות.
+     */
+    public static MmapEmbeddingStore open(Path path, int dimension) throws IOException {
+        return open(path, dimension, SEGMENT_BYTES);
+    }
+
+    // segmentBytes קטן מאפשר לבדוק מעבר בין סגמנטים בלי קובץ של גיגה-בייטים
+    static MmapEmbeddingStore open(Path path, int dimension, long segmentBytes) throws IOException {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        MmapEmbeddingStore store = new MmapEmbeddingStore(path, dimension, segmentBytes);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+
+        if (fileSize < HEADER_BYTES) {
+            map(INITIAL_ROWS);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, dimension);
+            header.putLong(ROW_COUNT_OFFSET, 0L);
+            rowCount = 0;
+            return;
+        }
+
+        long fileRows = (fileSize - HEADER_BYTES) / rowBytes;
+        if (fileRows > maxRows()) {
+            closeChannel();
+            throw new IOException("Embedding store " + path + " has more than " + maxRows() + " rows");
+        }
+        map((int) Math.max(INITIAL_ROWS, fileRows));
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            closeChannel();
+            throw new IOException("Not an embedding store (or unsupported version): " + path);
+        }
+        if (header.getInt(8) != dimension) {
+            int stored = header.getInt(8);
+            closeChannel();
+            throw new IOException("Embedding store " + path + " has dimension " + stored + ", expected " + dimension);
+        }
+
+        long committed = header.getLong(ROW_COUNT_OFFSET);
+        if (committed < 0 || committed > capacityRows) {
+            closeChannel();
+            throw new IOException("Corrupt row count " + committed + " in " + path);
+        }
+        rowCount = (int) committed;
+        for (int row = 0; row < rowCount; row++) {
+            Integer previous = rowById.put(rowId(row), row);
+            if (previous != null) {
+                deadRows++;
+            }
+        }
+    }
+
+    /**
+     * שומר וקטור עבור id. A re-embedded movie appends a new row; identical vectors are not rewritten.
+     */
+    public void put(long id, float[] vector) throws IOException {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException("vector must have " + dimension + " values");
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowById.get(id);
+            if (existing != null && sameVector(existing, vector)) {
+                return;
+            }
+            if (rowCount == capacityRows) {
+                long grown = Math.max(capacityRows + 1L, capacityRows * 2L);
+                map((int) Math.min(grown, maxRows()));
+                if (rowCount == capacityRows) {
+                    throw new IOException("Embedding store " + path + " is full (" + rowCount + " rows)");
+                }
+            }
+            int row = rowCount;
+            segments[segment(row)].putLong(segmentOffset(row), id);
+            FloatBuffer floats = segmentFloats[segment(row)];
+            int base = floatIndex(row);
+            for (int i = 0; i < dimension; i++) {
+                floats.put(base + i, vector[i]);
+            }
+            rowCount++;
+            header.putLong(ROW_COUNT_OFFSET, rowCount);
+            rowById.put(id, row);
+            if (existing != null) {
+                deadRows++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the stored vector, or null
+     */
+    public float[] get(long id) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowById.get(id);
+            if (row == null) {
+                return null;
+            }
+            float[] vector = new float[dimension];
+            FloatBuffer source = segmentFloats[segment(row)].duplicate();
+            source.position(floatIndex(row));
+            source.get(vector);
+            return vector;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zero-copy, read-only view of the stored vector, or null. The view stays valid
+     * until the next {@link #compact()}.
+     */
+    public FloatBuffer view(long id) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowById.get(id);
+            if (row == null) {
+                return null;
+            }
+            FloatBuffer view = segmentFloats[segment(row)].duplicate();
+            int base = floatIndex(row);
+            view.limit(base + dimension).position(base);
+            return view.slice().asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return rowById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every live row while holding the read lock.
+     */
+    public void forEach(RowVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            FloatBuffer[] data = new FloatBuffer[segmentFloats.length];
+            for (int s = 0; s < data.length; s++) {
+                data[s] = segmentFloats[s].asReadOnlyBuffer();
+            }
+            for (Map.Entry<Long, Integer> entry : rowById.entrySet()) {
+                int row = entry.getValue();
+                visitor.visit(entry.getKey(), data[segment(row)], floatIndex(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deadRows() {
+        lock.readLock().lock();
+        try {
+            return deadRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Rewrites the file with live rows only and atomically swaps it in place. If the swap
+     * fails the store reopens whatever file is at {@code path} (the original when the move
+     * itself failed), so it stays usable instead of being left without a mapping.
+     */
+    public void compact() throws IOException {
+        compact(id -> true);
+    }
+
+    /**
+     * Like {@link #compact()}, but also drops the live rows whose id fails {@code keep}.
+     *
+     * @return the number of rows left out of the new file (overwritten plus dropped)
+     */
+    public int compact(LongPredicate keep) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Iterator<Long> it = rowById.keySet().iterator(); it.hasNext(); ) {
+                if (!keep.test(it.next())) {
+                    it.remove();
+                    deadRows++;
+                }
+            }
+            if (deadRows == 0) {
+                return 0;
+            }
+            int reclaimed = deadRows;
+            Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+            writeLiveRows(tmp);
+
+            closeChannel();
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                rowById.clear();
+                deadRows = 0;
+                load();
+            } catch (IOException | RuntimeException e) {
+                reopenAfterFailedCompaction(tmp, e);
+                throw e;
+            }
+            return reclaimed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // כתיבה רציפה דרך ה-channel (ולא mapping) – הקובץ החדש יכול להיות גדול מ-2GB
+    private void writeLiveRows(Path tmp) throws IOException {
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(rowBytes, COPY_BUFFER_BYTES - COPY_BUFFER_BYTES % rowBytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long position = HEADER_BYTES;
+            int written = 0;
+            for (int row = 0; row < rowCount; row++) {
+                Integer live = rowById.get(rowId(row));
+                if (live == null || live != row) {
+                    continue;
+                }
+                if (chunk.remaining() < rowBytes) {
+                    position += drain(out, chunk, position);
+                }
+                ByteBuffer source = segments[segment(row)].duplicate();
+                source.limit(segmentOffset(row) + rowBytes).position(segmentOffset(row));
+                chunk.put(source);
+                written++;
+            }
+            drain(out, chunk, position);
+
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(0, MAGIC);
+            head.putInt(4, VERSION);
+            head.putInt(8, dimension);
+            head.putLong(ROW_COUNT_OFFSET, written);
+            drain(out, head.position(HEADER_BYTES), 0);
+            out.force(true);
+        }
+    }
+
+    private static long drain(FileChannel out, ByteBuffer chunk, long position) throws IOException {
+        chunk.flip();
+        long start = position;
+        while (chunk.hasRemaining()) {
+            position += out.write(chunk, position);
+        }
+        chunk.clear();
+        return position - start;
+    }
+
+    private void reopenAfterFailedCompaction(Path tmp, Exception failure) {
+        rowById.clear();
+        deadRows = 0;
+        try {
+            closeChannel();
+            Files.deleteIfExists(tmp);
+            load();
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            force();
+            closeChannel();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void force() {
+        if (segments == null) {
+            return;
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    private void closeChannel() throws IOException {
+        header = null;
+        segments = null;
+        segmentFloats = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Maps {@code rows} rows; full segments that are already mapped are kept as they are.
+     */
+    private void map(int rows) throws IOException {
+        if (header == null) {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        int count = (int) ((rows + (long) segmentRows - 1) / segmentRows);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        FloatBuffer[] views = new FloatBuffer[count];
+        for (int s = 0; s < count; s++) {
+            long firstRow = (long) s * segmentRows;
+            int bytes = (int) Math.min(segmentRows, rows - firstRow) * rowBytes;
+            if (segments != null && s < segments.length && segments[s].capacity() == bytes) {
+                mapped[s] = segments[s];
+                views[s] = segmentFloats[s];
+                continue;
+            }
+            mapped[s] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + firstRow * rowBytes, bytes);
+            mapped[s].order(ByteOrder.LITTLE_ENDIAN);
+            views[s] = mapped[s].asFloatBuffer();
+        }
+        segments = mapped;
+        segmentFloats = views;
+        capacityRows = rows;
+    }
+
+    private boolean sameVector(int row, float[] vector) {
+        FloatBuffer floats = segmentFloats[segment(row)];
+        int base = floatIndex(row);
+        for (int i = 0; i < dimension; i++) {
+            if (Float.floatToIntBits(floats.get(base + i)) != Float.floatToIntBits(vector[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long maxRows() {
+        return Integer.MAX_VALUE;
+    }
+
+    private int segment(int row) {
+        return row / segmentRows;
+    }
+
+    // offset בתוך הסגמנט – תמיד מתחת ל-2GB כי סגמנט קטן מזה
+    private int segmentOffset(int row) {
+        return (row % segmentRows) * rowBytes;
+    }
+
+    private int floatIndex(int row) {
+        return (segmentOffset(row) + Long.BYTES) / Float.BYTES;
+    }
+
+    private long rowId(int row) {
+        return segments[segment(row)].getLong(segmentOffset(row));
+    }
+}
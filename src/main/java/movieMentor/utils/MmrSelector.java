@@ -0,0 +1,69 @@
+package movieMentor.utils;
+
+/**
+ * Maximal marginal relevance: picks {@code k} of {@code n} items, each step taking the
+ * one that maximises {@code lambda * relevance[i] - (1 - lambda) * max sim(i, selected)}.
+ *
+ * The max similarity of every item to the selected set is cached and updated with the
+ * similarity row of each newly selected item only, so a selection costs O(k·n) dot
+ * products instead of O(k²·n). All scratch buffers are allocated once per call, not per
+ * step. Rows are expected unit length (see {@link EmbeddingUtils#normalizeInto}), so dot
+ * products are cosines; an all-zero row (no embedding) is similar to nothing.
+ */
+public final class MmrSelector {
+
+    private MmrSelector() {
+    }
+
+    /**
+     * @param vectors     {@code n} rows of {@code dimension} values, packed row-major
+     * @param relevance   relevance of each row, higher is better
+     * @param lambda      1 = relevance only, 0 = diversity only
+     * @param selectedOut receives the selected rows in pick order; length >= {@code k}
+     * @return number of rows selected ({@code min(k, n)})
+     */
+    public static int select(float[] vectors, int n, int dimension, float[] relevance, float lambda, int k,
+                             int[] selectedOut) {
+        int picks = Math.min(Math.max(0, k), n);
+        if (picks == 0) {
+            return 0;
+        }
+        if (selectedOut.length < picks) {
+            throw new IllegalArgumentException("output buffer is smaller than k");
+        }
+        float diversityWeight = 1f - lambda;
+        float[] maxSimilarity = new float[n];
+        boolean[] selected = new boolean[n];
+        float[] current = new float[dimension];
+
+        for (int step = 0; step < picks; step++) {
+            int best = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) continue;
+                // בצעד הראשון אין עדיין נבחרים – רק הרלוונטיות קובעת
+                float score = lambda * relevance[i] - (step == 0 ? 0f : diversityWeight * maxSimilarity[i]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            selected[best] = true;
+            selectedOut[step] = best;
+            if (step == picks - 1) {
+                break;
+            }
+
+            // שורת הדמיון של הנבחר מול כל מי שנשאר – מעדכנת את המקסימום השמור
+            System.arraycopy(vectors, best * dimension, current, 0, dimension);
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) continue;
+                float similarity = EmbeddingUtils.dot(current, vectors, i * dimension, dimension);
+                if (step == 0 || similarity > maxSimilarity[i]) {
+                    maxSimilarity[i] = similarity;
+                }
+            }
+        }
+        return picks;
+    }
+}
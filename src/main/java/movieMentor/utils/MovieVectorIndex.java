@@ -0,0 +1,165 @@
+package movieMentor.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Brute-force cosine index over movie embeddings.
+ *
+ * Vectors are normalised on insert and packed row-major into one contiguous
+ * {@code float[]}, so a query is a single linear pass of dot products with no
+ * per-movie map lookup. Top-K is kept in a bounded min-heap supplied by the caller,
+ * which means {@link #search} does not allocate.
+ */
+public class MovieVectorIndex implements VectorIndex {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final int dimension;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+
+    private float[] vectors;
+    private long[] ids;
+    private int size;
+
+    public MovieVectorIndex(int dimension) {
+        this(dimension, DEFAULT_CAPACITY);
+    }
+
+    public MovieVectorIndex(int dimension, int initialCapacity) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        int capacity = Math.max(1, initialCapacity);
+        this.dimension = dimension;
+        this.vectors = new float[capacity * dimension];
+        this.ids = new long[capacity];
+    }
+
+    /**
+     * מוסיף או מחליף את הווקטור של הסרט.
+     *
+     * @return false when the vector is missing or has the wrong dimension
+     */
+    @Override
+    public boolean upsert(long movieId, float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(movieId);
+            if (row == null) {
+                ensureCapacity(size + 1);
+                row = size++;
+                ids[row] = movieId;
+                rowById.put(movieId, row);
+            }
+            EmbeddingUtils.normalizeInto(vector, vectors, row * dimension);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long movieId) {
+        return rowOf(movieId) >= 0;
+    }
+
+    /**
+     * @return the row holding {@code movieId}, or -1. Rows never move once assigned.
+     */
+    @Override
+    public int rowOf(long movieId) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowById.get(movieId);
+            return row == null ? -1 : row;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long idAt(int row) {
+        lock.readLock().lock();
+        try {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("row " + row + " of " + size);
+            }
+            return ids[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Scores {@code query} against every row (or only rows set in {@code filter})
+     * and writes the best {@code k} matches into {@code idsOut}/{@code scoresOut},
+     * best first. Scores are cosine similarities.
+     *
+     * @return number of results written (at most {@code k})
+     */
+    @Override
+    public int search(float[] query, int k, BitSet filter, long[] idsOut, float[] scoresOut) {
+        if (query == null || query.length != dimension) {
+            throw new IllegalArgumentException("query must have " + dimension + " values");
+        }
+        if (idsOut.length < k || scoresOut.length < k) {
+            throw new IllegalArgumentException("output buffers are smaller than k");
+        }
+        double queryNorm = EmbeddingUtils.norm(query);
+        if (k <= 0 || queryNorm == 0) {
+            return 0;
+        }
+        float invNorm = (float) (1.0 / queryNorm);
+
+        lock.readLock().lock();
+        try {
+            int found = 0;
+            if (filter == null) {
+                for (int row = 0, offset = 0; row < size; row++, offset += dimension) {
+                    float score = EmbeddingUtils.dot(query, vectors, offset, dimension) * invNorm;
+                    found = TopKSelector.offer(idsOut, scoresOut, found, k, ids[row], score);
+                }
+            } else {
+                for (int row = filter.nextSetBit(0); row >= 0 && row < size; row = filter.nextSetBit(row + 1)) {
+                    float score = EmbeddingUtils.dot(query, vectors, row * dimension, dimension) * invNorm;
+                    found = TopKSelector.offer(idsOut, scoresOut, found, k, ids[row], score);
+                }
+            }
+            TopKSelector.sortDescending(idsOut, scoresOut, found);
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(rows, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimension);
+    }
+}
@@ -0,0 +1,43 @@
+package movieMentor.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor: the sort key of the last row on a page, base64url-encoded.
+ *
+ * Clients only pass back what they received in {@code nextCursor}; the encoding leaves
+ * room to change the key without breaking that contract.
+ */
+public final class PageCursor {
+
+    private static final String PREFIX = "k1:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(long key) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + key).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return the key stored in {@code cursor}, or {@code firstPageKey} when there is no cursor
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode}
+     */
+    public static long decode(String cursor, long firstPageKey) {
+        if (cursor == null || cursor.isEmpty()) {
+            return firstPageKey;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException ושגיאות base64 הן IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package movieMentor.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * Cosine index that keeps vectors as int8 codes (one byte per dimension) instead of floats.
+ *
+ * Each vector is normalised and then quantised with its own offset and scale
+ * ({@code x[i] ≈ offset + scale * code[i]}, codes 0..255), so the packed rows take a quarter
+ * of the memory of {@link MovieVectorIndex}. The query is quantised symmetrically to ±127 per
+ * search, so the scan score {@code offset * sum(q) + scale * dot(q, code)} needs only an
+ * integer dot product per row.
+ *
+ * Quantisation reorders near-ties, so a search first selects the best
+ * {@code rerankDepth} rows by approximate score and then re-scores them exactly with the
+ * float vectors from {@code exactVectors} (the mmap embedding store) before keeping
+ * {@code k}. Rows without an exact vector keep their approximate score.
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final int LEVELS = 255;
+    private static final int QUERY_LEVELS = 127;
+
+    private final int dimension;
+    private final int rerankDepth;
+    private final LongFunction<float[]> exactVectors;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+
+    private byte[] codes;
+    private float[] offsets;
+    private float[] scales;
+    private long[] ids;
+    private int size;
+
+    /**
+     * @param exactVectors float vector lookup for the re-rank; may return null
+     */
+    public QuantizedVectorIndex(int dimension, int rerankDepth, LongFunction<float[]> exactVectors) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.rerankDepth = Math.max(0, rerankDepth);
+        this.exactVectors = exactVectors;
+        this.codes = new byte[DEFAULT_CAPACITY * dimension];
+        this.offsets = new float[DEFAULT_CAPACITY];
+        this.scales = new float[DEFAULT_CAPACITY];
+        this.ids = new long[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public boolean upsert(long id, float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            return false;
+        }
+        float[] normalized = new float[dimension];
+        EmbeddingUtils.normalizeInto(vector, normalized, 0);
+
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(id);
+            if (row == null) {
+                ensureCapacity(size + 1);
+                row = size++;
+                ids[row] = id;
+                rowById.put(id, row);
+            }
+            quantizeInto(normalized, row);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long id) {
+        return rowOf(id) >= 0;
+    }
+
+    @Override
+    public int rowOf(long id) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowById.get(id);
+            return row == null ? -1 : row;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int search(float[] query, int k, BitSet filter, long[] idsOut, float[] scoresOut) {
+        if (k <= 0) {
+            return 0;
+        }
+        int depth = Math.max(k, rerankDepth);
+        long[] candidateIds = new long[depth];
+        float[] candidateScores = new float[depth];
+        int candidates = searchApproximate(query, depth, filter, candidateIds, candidateScores);
+        if (exactVectors == null || candidates == 0) {
+            int found = Math.min(k, candidates);
+            System.arraycopy(candidateIds, 0, idsOut, 0, found);
+            System.arraycopy(candidateScores, 0, scoresOut, 0, found);
+            return found;
+        }
+
+        // דירוג מחדש מדויק של המועמדים מול וקטורי ה-float
+        float invNorm = (float) (1.0 / EmbeddingUtils.norm(query));
+        int found = 0;
+        for (int i = 0; i < candidates; i++) {
+            float score = candidateScores[i];
+            float[] exact = exactVectors.apply(candidateIds[i]);
+            if (exact != null && exact.length == dimension) {
+                double exactNorm = EmbeddingUtils.norm(exact);
+                score = exactNorm == 0 ? 0f : (float) (EmbeddingUtils.dot(query, exact) * invNorm / exactNorm);
+            }
+            found = TopKSelector.offer(idsOut, scoresOut, found, k, candidateIds[i], score);
+        }
+        TopKSelector.sortDescending(idsOut, scoresOut, found);
+        return found;
+    }
+
+    /**
+     * Scan over the int8 codes only, without the exact re-rank – scores are estimates.
+     */
+    public int searchApproximate(float[] query, int k, BitSet filter, long[] idsOut, float[] scoresOut) {
+        if (query == null || query.length != dimension) {
+            throw new IllegalArgumentException("query must have " + dimension + " values");
+        }
+        if (idsOut.length < k || scoresOut.length < k) {
+            throw new IllegalArgumentException("output buffers are smaller than k");
+        }
+        double queryNorm = EmbeddingUtils.norm(query);
+        if (k <= 0 || queryNorm == 0) {
+            return 0;
+        }
+        // גם השאילתה מקוונטטת (סימטרית, ±127) כדי שהסריקה תהיה מכפלה של שלמים בלבד
+        float maxAbs = 0f;
+        for (float value : query) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float queryScale = maxAbs / QUERY_LEVELS;
+        float invQueryScale = 1f / queryScale;
+        int[] queryCodes = new int[dimension];
+        long queryCodeSum = 0;
+        for (int i = 0; i < dimension; i++) {
+            queryCodes[i] = Math.round(query[i] * invQueryScale);
+            queryCodeSum += queryCodes[i];
+        }
+        float invNorm = (float) (queryScale / queryNorm);
+
+        lock.readLock().lock();
+        try {
+            int found = 0;
+            if (filter == null) {
+                for (int row = 0; row < size; row++) {
+                    found = TopKSelector.offer(idsOut, scoresOut, found, k, ids[row],
+                            approximateScore(queryCodes, queryCodeSum, row) * invNorm);
+                }
+            } else {
+                for (int row = filter.nextSetBit(0); row >= 0 && row < size; row = filter.nextSetBit(row + 1)) {
+                    found = TopKSelector.offer(idsOut, scoresOut, found, k, ids[row],
+                            approximateScore(queryCodes, queryCodeSum, row) * invNorm);
+                }
+            }
+            TopKSelector.sortDescending(idsOut, scoresOut, found);
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes held by the quantised rows (codes plus per-row offset/scale).
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) size * (dimension + 2L * Float.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private float approximateScore(int[] queryCodes, long queryCodeSum, int row) {
+        return offsets[row] * queryCodeSum + scales[row] * dotCodes(queryCodes, row * dimension);
+    }
+
+    // 255 * 127 * dimension נכנס ב-int עבור dimension עד ~66K
+    private int dotCodes(int[] queryCodes, int offset) {
+        int sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += queryCodes[i] * (codes[offset + i] & 0xFF);
+        }
+        return sum;
+    }
+
+    private void quantizeInto(float[] normalized, int row) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : normalized) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        float scale = max > min ? (max - min) / LEVELS : 0f;
+        float inv = scale > 0 ? 1f / scale : 0f;
+        int offset = row * dimension;
+        for (int i = 0; i < dimension; i++) {
+            int code = Math.round((normalized[i] - min) * inv);
+            codes[offset + i] = (byte) Math.min(LEVELS, Math.max(0, code));
+        }
+        offsets[row] = min;
+        scales[row] = scale;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(rows, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        scales = Arrays.copyOf(scales, newCapacity);
+        codes = Arrays.copyOf(codes, newCapacity * dimension);
+    }
+}
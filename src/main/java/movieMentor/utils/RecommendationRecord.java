@@ -0,0 +1,93 @@
+package movieMentor.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact, fixed-width binary form of one user's materialised recommendations.
+ *
+ * Layout: a 16-byte header ({@code version:int, count:int, generatedAt:long}) followed by
+ * {@code count} entries of {@code movieId:long, score:float}. The header is big-endian and
+ * fixed, so the store's Lua compare-and-set can read {@code generatedAt} at offset 8
+ * without decoding the entries; bytes past {@code count} are ignored on read.
+ */
+public final class RecommendationRecord {
+
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int ENTRY_BYTES = 12;
+
+    private final long[] movieIds;
+    private final float[] scores;
+    private final long generatedAt;
+
+    /**
+     * @param scores one per movie; {@code NaN} when unknown
+     */
+    public RecommendationRecord(long[] movieIds, float[] scores, long generatedAt) {
+        if (movieIds.length != scores.length) {
+            throw new IllegalArgumentException("movieIds and scores must have the same length");
+        }
+        this.movieIds = movieIds;
+        this.scores = scores;
+        this.generatedAt = generatedAt;
+    }
+
+    public long[] movieIds() {
+        return movieIds;
+    }
+
+    public float[] scores() {
+        return scores;
+    }
+
+    public long generatedAt() {
+        return generatedAt;
+    }
+
+    public int size() {
+        return movieIds.length;
+    }
+
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + movieIds.length * ENTRY_BYTES);
+        buffer.put(header());
+        for (int i = 0; i < movieIds.length; i++) {
+            buffer.putLong(movieIds[i]);
+            buffer.putFloat(scores[i]);
+        }
+        return buffer.array();
+    }
+
+    public byte[] header() {
+        return ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(VERSION)
+                .putInt(movieIds.length)
+                .putLong(generatedAt)
+                .array();
+    }
+
+    /**
+     * @return the record, or null when {@code bytes} is missing, of another version or truncated
+     */
+    public static RecommendationRecord decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != VERSION) {
+            return null;
+        }
+        int count = buffer.getInt();
+        long generatedAt = buffer.getLong();
+        if (count < 0 || bytes.length < HEADER_BYTES + (long) count * ENTRY_BYTES) {
+            return null;
+        }
+        long[] movieIds = new long[count];
+        float[] scores = new float[count];
+        for (int i = 0; i < count; i++) {
+            movieIds[i] = buffer.getLong();
+            scores[i] = buffer.getFloat();
+        }
+        return new RecommendationRecord(movieIds, scores, generatedAt);
+    }
+}
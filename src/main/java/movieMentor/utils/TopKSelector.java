@@ -0,0 +1,91 @@
+package movieMentor.utils;
+
+/**
+ * Bounded top-K selection over parallel primitive arrays.
+ *
+ * The caller owns {@code ids} and {@code scores} (both of length >= k) and keeps them
+ * as a min-heap on score while offering candidates, so selecting K out of N costs
+ * O(N log K) and allocates nothing. {@link #sortDescending} turns the heap into a
+ * ranked list in place once the scan is done.
+ */
+public final class TopKSelector {
+
+    private TopKSelector() {
+    }
+
+    /**
+     * מציע מועמד לערימה.
+     *
+     * @return the new heap size
+     */
+    public static int offer(long[] ids, float[] scores, int size, int k, long id, float score) {
+        if (k <= 0) {
+            return size;
+        }
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(ids, scores, size);
+            return size + 1;
+        }
+        if (score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(ids, scores, 0, size);
+        }
+        return size;
+    }
+
+    /**
+     * Lowest score currently kept, or negative infinity while the heap is not full.
+     */
+    public static float threshold(float[] scores, int size, int k) {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Heap-sorts the first {@code size} entries so that index 0 holds the best score.
+     */
+    public static void sortDescending(long[] ids, float[] scores, int size) {
+        for (int end = size - 1; end > 0; end--) {
+            swap(ids, scores, 0, end);
+            siftDown(ids, scores, 0, end);
+        }
+    }
+
+    private static void siftUp(long[] ids, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(ids, scores, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] ids, float[] scores, int i, int size) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int smallest = (right < size && scores[right] < scores[left]) ? right : left;
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(ids, scores, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(long[] ids, float[] scores, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,36 @@
+package movieMentor.utils;
+
+import java.util.BitSet;
+
+/**
+ * Cosine top-K index over fixed-dimension vectors addressed by long id.
+ *
+ * Rows are assigned on first insert and never move, so callers can keep a {@link BitSet}
+ * of rows as a search filter.
+ */
+public interface VectorIndex {
+
+    /**
+     * @return false when the vector is missing or has the wrong dimension
+     */
+    boolean upsert(long id, float[] vector);
+
+    boolean contains(long id);
+
+    /**
+     * @return the row holding {@code id}, or -1
+     */
+    int rowOf(long id);
+
+    int size();
+
+    int dimension();
+
+    /**
+     * Writes the best {@code k} matches for {@code query} (only rows set in {@code filter},
+     * when given) into {@code idsOut}/{@code scoresOut}, best first.
+     *
+     * @return number of results written (at most {@code k})
+     */
+    int search(float[] query, int k, BitSet filter, long[] idsOut, float[] scoresOut);
+}
@@ -0,0 +1,192 @@
+package movieMentor.config;
+
+import movieMentor.beans.Actor;
+import movieMentor.beans.Genre;
+import movieMentor.beans.Movie;
+import movieMentor.beans.MovieDTO;
+import movieMentor.models.MovieImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips through {@link CompactRedisSerializer}, and its size against the
+ * {@link GenericJackson2JsonRedisSerializer} it replaced for movie values.
+ * The throughput benchmark (a cached list of 30 DTOs, both directions) is opt-in:
+ * {@code mvn test -Dbenchmarks=true -Dtest=CompactRedisSerializerTest}.
+ */
+class CompactRedisSerializerTest {
+
+    private static final String[] WORDS = {"a", "young", "detective", "returns", "to", "her", "home", "town",
+            "where", "an", "old", "crime", "war", "family", "secret", "love", "city", "night", "team", "must",
+            "find", "the", "lost", "mission", "before", "it", "is", "too", "late", "and", "uncovers", "past"};
+
+    private static volatile long blackhole;
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(json);
+
+    @Test
+    void movieDtoRoundTripsWithAndWithoutOptionalFields() {
+        MovieDTO full = new MovieDTO(603L, "The Matrix", "https://image.tmdb.org/t/p/w500/matrix.jpg", 8.2,
+                "A hacker learns the truth about his reality.");
+        MovieDTO sparse = new MovieDTO(604L, "The Matrix Reloaded", null, null, null);
+
+        assertEquals(full, serializer.deserialize(serializer.serialize(full)));
+        assertEquals(sparse, serializer.deserialize(serializer.serialize(sparse)));
+        assertEquals(Arrays.asList(full, sparse), serializer.deserialize(serializer.serialize(Arrays.asList(full, sparse))));
+        assertEquals(Collections.emptyList(), serializer.deserialize(serializer.serialize(new ArrayList<MovieDTO>())));
+    }
+
+    @Test
+    void movieRoundTripsWithCollections() {
+        Movie movie = new Movie();
+        movie.setId(27205L);
+        movie.setTitle("Inception");
+        movie.setOriginalTitle("Inception");
+        movie.setOverview("A thief who steals corporate secrets through dream-sharing technology.");
+        movie.setPosterUrl("https://image.tmdb.org/t/p/w500/inception.jpg");
+        movie.setReleaseDate(LocalDate.of(2010, 7, 15));
+        movie.setPopularity(83.5);
+        movie.setVoteAverage(8.4);
+        movie.setVoteCount(35000);
+        movie.setImageUrls(new ArrayList<>(Arrays.asList(new MovieImage("backdrop", "https://image.tmdb.org/b.jpg"),
+                new MovieImage("poster", null))));
+        movie.setTrailerUrl("https://youtube.com/watch?v=YoHD9XEInc0");
+        Actor actor = new Actor();
+        actor.setId(1L);
+        actor.setName("Leonardo DiCaprio");
+        actor.setTmdbId(6193L);
+        movie.getActors().add(actor);
+        Genre genre = new Genre();
+        genre.setId(878L);
+        genre.setName("Science Fiction");
+        movie.getGenres().add(genre);
+
+        Movie read = (Movie) serializer.deserialize(serializer.serialize(movie));
+
+        assertEquals(movie.getId(), read.getId());
+        assertEquals(movie.getTitle(), read.getTitle());
+        assertEquals(movie.getOriginalTitle(), read.getOriginalTitle());
+        assertEquals(movie.getOverview(), read.getOverview());
+        assertEquals(movie.getPosterUrl(), read.getPosterUrl());
+        assertEquals(movie.getReleaseDate(), read.getReleaseDate());
+        assertEquals(movie.getPopularity(), read.getPopularity());
+        assertEquals(movie.getVoteAverage(), read.getVoteAverage());
+        assertEquals(movie.getVoteCount(), read.getVoteCount());
+        assertEquals(movie.getImageUrls(), read.getImageUrls());
+        assertEquals(movie.getTrailerUrl(), read.getTrailerUrl());
+        Actor readActor = read.getActors().iterator().next();
+        assertEquals("Leonardo DiCaprio", readActor.getName());
+        assertEquals(6193L, readActor.getTmdbId());
+        assertNull(readActor.getImageUrl());
+        Genre readGenre = read.getGenres().iterator().next();
+        assertEquals(878L, readGenre.getId());
+        assertEquals("Science Fiction", readGenre.getName());
+    }
+
+    @Test
+    void otherValuesAndLegacyJsonGoThroughTheFallback() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("state", "RUNNING");
+        status.put("attempts", 3);
+        assertEquals(status, serializer.deserialize(serializer.serialize(status)));
+
+        // JSON נכתב לפני הפורמט הבינארי; posterUrl עובר דרך setPosterUrl ולכן לא נבדק
+        MovieDTO movie = new MovieDTO(11L, "Star Wars", null, 8.2, "A long time ago");
+        MovieDTO legacy = (MovieDTO) serializer.deserialize(json.serialize(movie));
+        assertEquals(movie.getId(), legacy.getId());
+        assertEquals(movie.getTitle(), legacy.getTitle());
+        assertEquals(movie.getVoteAverage(), legacy.getVoteAverage());
+        assertEquals(movie.getOverview(), legacy.getOverview());
+
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    void listOfRecommendationsIsMuchSmallerThanJson() {
+        List<MovieDTO> movies = recommendations(30, new Random(42));
+
+        byte[] compact = serializer.serialize(movies);
+        byte[] generic = json.serialize(movies);
+
+        assertEquals(movies, serializer.deserialize(compact));
+        assertTrue(compact.length * 2 < generic.length,
+                "compact " + compact.length + " bytes vs JSON " + generic.length + " bytes");
+    }
+
+    @Test
+    void uncompressedMovieDtoIsStillSmallerThanJson() {
+        CompactRedisSerializer uncompressed = new CompactRedisSerializer(json, Integer.MAX_VALUE);
+        MovieDTO movie = recommendations(1, new Random(7)).get(0);
+
+        byte[] compact = uncompressed.serialize(movie);
+
+        assertEquals(movie, uncompressed.deserialize(compact));
+        assertTrue(compact.length < json.serialize(movie).length);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void throughputAgainstJson() {
+        List<MovieDTO> movies = recommendations(30, new Random(42));
+        byte[] compact = serializer.serialize(movies);
+        byte[] generic = json.serialize(movies);
+        assertEquals(movies, serializer.deserialize(compact));
+
+        int iterations = 20_000;
+        double compactWrites = opsPerSecond(iterations, i -> serializer.serialize(movies));
+        double jsonWrites = opsPerSecond(iterations, i -> json.serialize(movies));
+        double compactReads = opsPerSecond(iterations, i -> serializer.deserialize(compact));
+        double jsonReads = opsPerSecond(iterations, i -> json.deserialize(generic));
+
+        System.out.printf("30 MovieDTOs – compact %d bytes, JSON %d bytes%n", compact.length, generic.length);
+        System.out.printf("serialize:   compact %.0f ops/s, JSON %.0f ops/s (x%.1f)%n",
+                compactWrites, jsonWrites, compactWrites / jsonWrites);
+        System.out.printf("deserialize: compact %.0f ops/s, JSON %.0f ops/s (x%.1f)%n",
+                compactReads, jsonReads, compactReads / jsonReads);
+    }
+
+    // חימום באותו מספר איטרציות ואז מדידה; התוצאה נצברת כדי שה-JIT לא יזרוק את העבודה
+    private static double opsPerSecond(int iterations, Function<Integer, Object> operation) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.apply(i).hashCode();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.apply(i).hashCode();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        blackhole = sink;
+        return iterations / seconds;
+    }
+
+    private static List<MovieDTO> recommendations(int count, Random random) {
+        List<MovieDTO> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder overview = new StringBuilder();
+            for (int w = 0; w < 40; w++) {
+                overview.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            movies.add(new MovieDTO(100_000L + random.nextInt(900_000), "Movie " + i,
+                    "https://image.tmdb.org/t/p/w500/" + Long.toHexString(random.nextLong()) + ".jpg",
+                    Math.round(random.nextDouble() * 100) / 10.0, overview.toString().trim()));
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,113 @@
+package movieMentor.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class TwoLevelCacheTest {
+
+    private static final String CACHE = "movies";
+
+    // במקום Redis: cache משותף שמחזיק עותק מסוריאלז (store-by-value), וערוץ invalidation שמגיע לכל השרתים
+    private final ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager();
+    private final List<TwoLevelCacheManager> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        redis.setStoreByValue(true);
+    }
+
+    @Test
+    void l1HitReturnsAFreshCopy() {
+        TwoLevelCache cache = cache(node());
+        cache.put("42", titles("Heat", "Ronin"));
+
+        @SuppressWarnings("unchecked")
+        List<String> first = cache.get("42", List.class);
+        first.add("mutated by a caller");
+
+        assertEquals(titles("Heat", "Ronin"), cache.get("42", List.class));
+        assertEquals(2, cache.l1Hits.get());
+        assertEquals(0, cache.l2Hits.get());
+    }
+
+    @Test
+    void l1MissReadsThroughL2AndFillsL1() {
+        cache(node()).put("42", titles("Heat"));
+        TwoLevelCache other = cache(node());
+
+        assertEquals(titles("Heat"), other.get("42", List.class));
+        assertEquals(1, other.l2Hits.get());
+        assertEquals(1, other.localSize());
+
+        assertEquals(titles("Heat"), other.get("42", List.class));
+        assertEquals(1, other.l1Hits.get());
+
+        assertNull(other.get("missing"));
+        assertEquals(1, other.misses.get());
+    }
+
+    @Test
+    void writesOnOneNodeInvalidateL1OnTheOthers() {
+        TwoLevelCache writer = cache(node());
+        TwoLevelCache reader = cache(node());
+        writer.put("42", titles("Heat"));
+        reader.get("42");
+        assertEquals(1, reader.localSize());
+
+        writer.put("42", titles("Heat (1995)"));
+        assertEquals(0, reader.localSize());
+        // הכותב מתעלם מההודעה של עצמו ונשאר עם הערך החדש ב-L1
+        assertEquals(1, writer.localSize());
+        assertEquals(titles("Heat (1995)"), reader.get("42", List.class));
+
+        writer.evict("42");
+        assertEquals(0, reader.localSize());
+        assertNull(reader.get("42"));
+
+        writer.put("7", titles("Alien"));
+        reader.get("7");
+        writer.clear();
+        assertEquals(0, reader.localSize());
+        assertNull(reader.get("7"));
+    }
+
+    private TwoLevelCacheManager node() {
+        StringRedisTemplate publisher = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            Message message = new DefaultMessage(
+                    invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8),
+                    invocation.<String>getArgument(1).getBytes(StandardCharsets.UTF_8));
+            nodes.forEach(node -> node.onMessage(message, null));
+            return null;
+        }).when(publisher).convertAndSend(anyString(), any());
+
+        TwoLevelCacheManager node = new TwoLevelCacheManager(redis, new TwoLevelCacheProperties(), publisher,
+                new SimpleMeterRegistry());
+        nodes.add(node);
+        return node;
+    }
+
+    private static TwoLevelCache cache(TwoLevelCacheManager node) {
+        return (TwoLevelCache) node.getCache(CACHE);
+    }
+
+    private static ArrayList<String> titles(String... titles) {
+        return new ArrayList<>(List.of(titles));
+    }
+}
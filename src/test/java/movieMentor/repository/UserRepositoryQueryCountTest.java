@@ -0,0 +1,152 @@
+package movieMentor.repository;
+
+import movieMentor.beans.Movie;
+import movieMentor.beans.MovieDTO;
+import movieMentor.beans.User;
+import movieMentor.dto.FavoriteMovieRow;
+import movieMentor.security.UserDetailsServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * כמה שאילתות SQL עולה כל נתיב קריאה חם – נמדד דרך Hibernate statistics על H2.
+ * Each path must stay a single statement that loads no entity and initialises no collection,
+ * no matter how many favourites or recommendations the user has.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(UserDetailsServiceImpl.class)
+class UserRepositoryQueryCountTest {
+
+    private static final int MOVIES = 25;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("dana");
+        user.setEmail("dana@example.com");
+        user.setPassword("{noop}secret");
+        for (long id = 1; id <= MOVIES; id++) {
+            Movie movie = new Movie();
+            movie.setId(id);
+            movie.setTitle("Movie " + id);
+            movie.setVoteAverage(7.0);
+            entityManager.persist(movie);
+            user.getFavoriteMovies().add(movie);
+
+            MovieDTO recommendation = new MovieDTO(1000 + id, "Recommended " + id, "/poster" + id + ".jpg", 6.5, null);
+            entityManager.persist(recommendation);
+            user.getRecommendedMovies().add(0, recommendation);
+        }
+        entityManager.persist(user);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void favoritesPageIsOneStatement() {
+        List<MovieDTO> first = userRepository.findFavoritePage("dana", Long.MIN_VALUE, PageRequest.of(0, 11));
+        assertSingleStatement();
+        assertEquals(11, first.size());
+
+        statistics.clear();
+        List<MovieDTO> next = userRepository.findFavoritePage("dana", first.get(10).getId(), PageRequest.of(0, 11));
+        assertSingleStatement();
+        assertEquals(12L, next.get(0).getId());
+    }
+
+    @Test
+    void recommendationsAreOneStatementInStoredOrder() {
+        List<MovieDTO> recommendations = userRepository.findRecommendationsByUsername("dana");
+
+        assertSingleStatement();
+        assertEquals(MOVIES, recommendations.size());
+        assertEquals(Arrays.asList(1025L, 1024L, 1023L),
+                recommendations.subList(0, 3).stream().map(MovieDTO::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void favoritesOfSimilarUsersAreOneStatement() {
+        Long noa = persistUserWithFavorites("noa", 1, 2, 3);
+        Long omer = persistUserWithFavorites("omer", 3, 4);
+        Long dana = userRepository.findIdByUsername("dana").orElseThrow();
+        statistics.clear();
+
+        List<FavoriteMovieRow> rows = userRepository.findFavoriteMoviesByUserIds(List.of(dana, noa, omer));
+
+        assertSingleStatement();
+        assertEquals(MOVIES + 5, rows.size());
+        Map<Long, List<Long>> byUser = rows.stream().collect(Collectors.groupingBy(FavoriteMovieRow::getUserId,
+                Collectors.mapping(FavoriteMovieRow::getMovieId, Collectors.toList())));
+        assertEquals(Arrays.asList(1L, 2L, 3L), byUser.get(noa).stream().sorted().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(3L, 4L), byUser.get(omer).stream().sorted().collect(Collectors.toList()));
+        assertEquals(MOVIES, byUser.get(dana).size());
+        FavoriteMovieRow row = rows.stream().filter(r -> r.getMovieId() == 4L).findFirst().orElseThrow();
+        assertEquals("Movie 4", row.getTitle());
+        assertEquals(7.0, row.getVoteAverage());
+    }
+
+    @Test
+    void tokenAuthenticationIsOneStatement() {
+        UserDetails details = userDetailsService.loadByUsernameForToken("dana");
+
+        assertSingleStatement();
+        assertEquals("dana", details.getUsername());
+    }
+
+    private Long persistUserWithFavorites(String username, long... movieIds) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("{noop}secret");
+        for (long movieId : movieIds) {
+            user.getFavoriteMovies().add(entityManager.find(Movie.class, movieId));
+        }
+        entityManager.persist(user);
+        entityManager.flush();
+        entityManager.clear();
+        return user.getId();
+    }
+
+    private void assertSingleStatement() {
+        assertEquals(1, statistics.getPrepareStatementCount(), "SQL statements");
+        assertEquals(0, statistics.getEntityLoadCount(), "entities loaded");
+        assertEquals(0, statistics.getCollectionFetchCount(), "collections fetched");
+    }
+}
@@ -0,0 +1,193 @@
+package movieMentor.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EmbeddingService מול שרת HTTP מקומי שמחקה את ה-embeddings endpoint של OpenAI.
+ * The stub answers every input with a vector whose first value is the text's length.
+ */
+class EmbeddingServiceTest {
+
+    private static final int DIMENSION = 1536;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private EmbeddingCache cache;
+    private EmbeddingService service;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/embeddings", exchange -> {
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            List<String> inputs = new ArrayList<>();
+            body.path("input").forEach(node -> inputs.add(node.asText()));
+            requests.add(inputs);
+
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode data = response.putArray("data");
+            for (int i = 0; i < inputs.size(); i++) {
+                ObjectNode item = data.addObject();
+                item.put("index", i);
+                ArrayNode embedding = item.putArray("embedding");
+                embedding.add(inputs.get(i).length());
+                for (int d = 1; d < DIMENSION; d++) {
+                    embedding.add(0.0);
+                }
+            }
+            byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (service != null) {
+            service.shutdown();
+        }
+        if (cache != null) {
+            cache.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void sendsOneRequestForSeveralTexts() {
+        service = service(64, 10);
+
+        List<float[]> vectors = service.getEmbeddings(Arrays.asList("a", "bb", "ccc"));
+
+        assertEquals(1, requests.size());
+        assertEquals(Arrays.asList("a", "bb", "ccc"), requests.get(0));
+        assertEquals(3, vectors.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, vectors.get(i)[0]);
+        }
+    }
+
+    @Test
+    void splitsLargeListsIntoChunksOfMaxBatchSize() {
+        service = service(2, 10);
+
+        List<float[]> vectors = service.getEmbeddings(Arrays.asList("a", "bb", "ccc", "dddd", "eeeee"));
+
+        assertEquals(3, requests.size());
+        assertEquals(Arrays.asList(2, 2, 1), Arrays.asList(requests.get(0).size(), requests.get(1).size(), requests.get(2).size()));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, vectors.get(i)[0]);
+        }
+    }
+
+    @Test
+    void emptyInputAndBlankTextsAreNotSent() {
+        service = service(64, 10);
+
+        assertTrue(service.getEmbeddings(Collections.emptyList()).isEmpty());
+        assertTrue(service.getEmbeddingsCoalesced(Collections.emptyList()).isEmpty());
+        assertEquals(0, requests.size());
+
+        List<float[]> vectors = service.getEmbeddings(Arrays.asList("", "   ", null, "plot"));
+
+        assertEquals(1, requests.size());
+        assertEquals(Collections.singletonList("plot"), requests.get(0));
+        assertEquals(0, vectors.get(0).length);
+        assertEquals(0, vectors.get(1).length);
+        assertEquals(0, vectors.get(2).length);
+        assertEquals(4, vectors.get(3)[0]);
+    }
+
+    @Test
+    void repeatedAndCachedTextsAreNotResent() {
+        service = service(64, 10);
+
+        service.getEmbeddings(Arrays.asList("same plot", "same  plot", "other"));
+        service.getEmbeddings(Collections.singletonList("other"));
+
+        assertEquals(1, requests.size());
+        assertEquals(Arrays.asList("same plot", "other"), requests.get(0));
+    }
+
+    @Test
+    void coalescesConcurrentCallsIntoOneRequest() throws Exception {
+        service = service(64, 300);
+        int callers = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<float[]>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String text = "movie " + "x".repeat(i);
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return service.getEmbeddingsCoalesced(Collections.singletonList(text));
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < callers; i++) {
+                assertEquals(6 + i, results.get(i).get().get(0)[0]);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, requests.size());
+        assertEquals(callers, requests.get(0).size());
+    }
+
+    private EmbeddingService service(int maxBatchSize, long lingerMs) {
+        cache = new EmbeddingCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "cachePath", dir.resolve("text-embeddings.bin").toString());
+        ReflectionTestUtils.setField(cache, "l1MaxEntries", 100);
+        cache.init();
+
+        EmbeddingService embeddingService = new EmbeddingService(WebClient.create(), cache);
+        ReflectionTestUtils.setField(embeddingService, "openAiApiKey", "test-key");
+        ReflectionTestUtils.setField(embeddingService, "embeddingsUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/embeddings");
+        ReflectionTestUtils.setField(embeddingService, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(embeddingService, "lingerMs", lingerMs);
+        ReflectionTestUtils.setField(embeddingService, "maxInFlight", 2);
+        ReflectionTestUtils.setField(embeddingService, "timeoutMs", 10000L);
+        embeddingService.init();
+        return embeddingService;
+    }
+}
@@ -0,0 +1,94 @@
+package movieMentor.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import movieMentor.dto.UserVectorPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ה-snapshot של אינדקס המשתמשים: נטען אחרי restart, ו-snapshot פגום לא מפיל את השירות.
+ */
+class HnswUserVectorIndexTest {
+
+    private static final int DIMENSION = 1536;
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void snapshotSurvivesARestart() {
+        HnswUserVectorIndex before = index();
+        float[] dana = vector();
+        before.upsert(new UserVectorPoint("1", dana, Map.of("username", "dana", "favorite_count", 3)));
+        before.upsert(new UserVectorPoint("2", vector(), Map.of("username", "noa")));
+        before.upsert(new UserVectorPoint("3", vector(), null));
+        before.close();
+
+        HnswUserVectorIndex after = index();
+        List<Map<String, Object>> hits = after.findSimilar(dana, 3);
+
+        assertEquals(3, hits.size());
+        assertEquals("1", hits.get(0).get("user_id"));
+        assertEquals("dana", hits.get(0).get("username"));
+        assertEquals(3, hits.get(0).get("favorite_count"));
+        assertEquals(1.0, (Double) hits.get(0).get("score"), 1e-4);
+    }
+
+    @Test
+    void corruptSnapshotStartsEmptyAndIsReplaced() throws Exception {
+        HnswUserVectorIndex before = index();
+        for (int id = 1; id <= 20; id++) {
+            before.upsert(new UserVectorPoint(String.valueOf(id), vector(), Map.of("username", "user" + id)));
+        }
+        before.close();
+
+        // הקישור הראשון של צומת 0 מצביע אל מחוץ לגרף
+        Path snapshot = dir.resolve("users.hnsw");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        int firstLink = 9 * Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + DIMENSION * Float.BYTES + Integer.BYTES;
+        ByteBuffer.wrap(bytes).putInt(firstLink, 1_000);
+        Files.write(snapshot, bytes);
+
+        HnswUserVectorIndex corrupt = index();
+        assertTrue(corrupt.findSimilar(vector(), 5).isEmpty());
+        float[] noa = vector();
+        corrupt.upsert(new UserVectorPoint("7", noa, Map.of("username", "noa")));
+        corrupt.close();
+
+        List<Map<String, Object>> hits = index().findSimilar(noa, 5);
+        assertEquals(1, hits.size());
+        assertEquals("7", hits.get(0).get("user_id"));
+        assertEquals("noa", hits.get(0).get("username"));
+    }
+
+    private HnswUserVectorIndex index() {
+        HnswUserVectorIndex index = new HnswUserVectorIndex(new ObjectMapper());
+        ReflectionTestUtils.setField(index, "m", 16);
+        ReflectionTestUtils.setField(index, "efConstruction", 200);
+        ReflectionTestUtils.setField(index, "efSearch", 64);
+        ReflectionTestUtils.setField(index, "snapshotPath", dir.resolve("users.hnsw").toString());
+        index.init();
+        return index;
+    }
+
+    private float[] vector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
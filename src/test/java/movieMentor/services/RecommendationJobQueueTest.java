@@ -0,0 +1,118 @@
+package movieMentor.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import movieMentor.dto.RecommendationJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecommendationJobQueueTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RecommendationJobQueue queue;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<UserService> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(userService);
+
+        queue = new RecommendationJobQueue(provider, new SimpleMeterRegistry());
+        // worker אחד ומקום אחד בתור – המשתמש השלישי נדחה
+        ReflectionTestUtils.setField(queue, "workers", 1);
+        ReflectionTestUtils.setField(queue, "queueCapacity", 1);
+        ReflectionTestUtils.setField(queue, "statusTtlMinutes", 60L);
+        queue.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        queue.shutdown();
+    }
+
+    @Test
+    void rejectedJobStaysDirtyAndTheSweepSubmitsIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(userService).recomputeRecommendations("busy");
+
+        queue.markDirty("busy");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queue.markDirty("queued");
+        queue.markDirty("deferred");
+
+        assertEquals("QUEUED", queue.getStatus("deferred").getState());
+        // התור עדיין מלא – ה-sweep לא מאבד את המשתמש
+        queue.submitDeferred();
+        assertEquals("QUEUED", queue.getStatus("deferred").getState());
+        verify(userService, never()).recomputeRecommendations("deferred");
+
+        release.countDown();
+        verify(userService, timeout(5000)).recomputeRecommendations("queued");
+        awaitCompleted("queued");
+        queue.submitDeferred();
+
+        verify(userService, timeout(5000)).recomputeRecommendations("deferred");
+        assertTrue(awaitCompleted("deferred").isLastSucceeded());
+    }
+
+    @Test
+    void failureReportsAFixedErrorCodeWithoutTheExceptionMessage() throws Exception {
+        doThrow(new IllegalStateException("jdbc:postgresql://db.internal:5432 refused"))
+                .when(userService).recomputeRecommendations("dana");
+
+        queue.markDirty("dana");
+        RecommendationJobStatus status = awaitCompleted("dana");
+
+        assertFalse(status.isLastSucceeded());
+        assertEquals(RecommendationJobQueue.RECOMPUTE_FAILED, status.getLastError());
+        assertEquals("IDLE", status.getState());
+    }
+
+    @Test
+    void lastResultsExpireAfterTheirTtl() throws Exception {
+        ReflectionTestUtils.setField(queue, "statusTtlMinutes", 0L);
+        queue.shutdown();
+        queue.init();
+
+        queue.markDirty("dana");
+        verify(userService, timeout(5000)).recomputeRecommendations("dana");
+        Thread.sleep(50);
+
+        RecommendationJobStatus status = queue.getStatus("dana");
+        assertEquals("IDLE", status.getState());
+        assertEquals(null, status.getLastCompletedAt());
+    }
+
+    private RecommendationJobStatus awaitCompleted(String username) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        RecommendationJobStatus status = queue.getStatus(username);
+        while (status.getLastCompletedAt() == null || !"IDLE".equals(status.getState())) {
+            assertTrue(System.currentTimeMillis() < deadline, "job of '" + username + "' did not complete");
+            Thread.sleep(10);
+            status = queue.getStatus(username);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,143 @@
+package movieMentor.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import movieMentor.beans.MovieDTO;
+import movieMentor.utils.RecommendationRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationStoreTest {
+
+    private static final String USER = "dana";
+    private static final String KEY = "userRecs:" + USER;
+
+    // ה-Redis המדומה: key -> bytes; eval מבצע את אותה השוואה שה-Lua עושה על הכותרת
+    private final Map<String, byte[]> redis = new HashMap<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RecommendationStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+        RedisStringCommands strings = mock(RedisStringCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scripting);
+        when(connection.stringCommands()).thenReturn(strings);
+        when(scripting.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(1), any())).thenAnswer(this::writeIfNewer);
+        when(strings.get(any(byte[].class))).thenAnswer(invocation -> redis.get(key(invocation.getArgument(0))));
+        when(strings.set(any(byte[].class), any(byte[].class), any(), any())).thenAnswer(invocation ->
+                redis.putIfAbsent(key(invocation.getArgument(0)), invocation.getArgument(1)) == null);
+
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation ->
+                ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+
+        MovieDtoDictionary dictionary = mock(MovieDtoDictionary.class);
+        when(dictionary.getAll(any(long[].class))).thenAnswer(invocation -> {
+            Map<Long, MovieDTO> found = new HashMap<>();
+            for (long id : (long[]) invocation.getArgument(0)) {
+                found.put(id, movie(id));
+            }
+            return found;
+        });
+
+        store = new RecommendationStore(redisTemplate, dictionary, meterRegistry);
+        ReflectionTestUtils.setField(store, "ttlDays", 30L);
+    }
+
+    @Test
+    void writeReplacesAnOlderRecord() {
+        redis.put(KEY, new RecommendationRecord(new long[]{1L}, new float[]{0.1f}, 1_000L).encode());
+
+        store.write(USER, List.of(movie(2L), movie(3L)), new float[]{0.9f, 0.8f});
+
+        RecommendationRecord stored = RecommendationRecord.decode(redis.get(KEY));
+        assertArrayEquals(new long[]{2L, 3L}, stored.movieIds());
+        assertEquals(0.9f, stored.scores()[0], 0f);
+        assertEquals(1.0, writes("full"), 0.0);
+        assertEquals(List.of(movie(2L), movie(3L)), store.read(USER).orElseThrow());
+    }
+
+    @Test
+    void lateWriterDoesNotReplaceANewerRecord() {
+        long newer = System.currentTimeMillis() + 60_000L;
+        byte[] newerRecord = new RecommendationRecord(new long[]{7L, 8L}, new float[]{0.7f, 0.6f}, newer).encode();
+        redis.put(KEY, newerRecord);
+
+        store.write(USER, List.of(movie(2L)), new float[]{0.9f});
+
+        assertArrayEquals(newerRecord, redis.get(KEY));
+        assertEquals(1.0, writes("stale"), 0.0);
+        assertEquals(0.0, writes("full"), 0.0);
+    }
+
+    @Test
+    void fallbackOnlyFillsAMissingRecord() {
+        store.writeIfAbsent(USER, List.of(movie(4L)));
+        assertArrayEquals(new long[]{4L}, RecommendationRecord.decode(redis.get(KEY)).movieIds());
+        assertTrue(Float.isNaN(RecommendationRecord.decode(redis.get(KEY)).scores()[0]));
+
+        store.writeIfAbsent(USER, List.of(movie(5L)));
+
+        assertArrayEquals(new long[]{4L}, RecommendationRecord.decode(redis.get(KEY)).movieIds());
+        assertEquals(1.0, writes("fallback"), 0.0);
+        assertEquals(1.0, writes("fallback-skipped"), 0.0);
+    }
+
+    // ARGV = ערך, generatedAt, גרסה, TTL – כמו WRITE_IF_NEWER
+    private Long writeIfNewer(InvocationOnMock invocation) {
+        String key = key(invocation.getArgument(3));
+        byte[] value = invocation.getArgument(4);
+        long generatedAt = Long.parseLong(ascii(invocation.getArgument(5)));
+        int version = Integer.parseInt(ascii(invocation.getArgument(6)));
+        assertEquals(generatedAt, ByteBuffer.wrap(value).getLong(8));
+
+        byte[] stored = redis.get(key);
+        if (stored != null && stored.length >= RecommendationRecord.HEADER_BYTES
+                && ByteBuffer.wrap(stored).getInt(0) == version
+                && ByteBuffer.wrap(stored).getLong(8) > generatedAt) {
+            return 0L;
+        }
+        redis.put(key, value);
+        return 1L;
+    }
+
+    private double writes(String mode) {
+        return meterRegistry.counter("recommendation.store.writes", "mode", mode).count();
+    }
+
+    private static MovieDTO movie(long id) {
+        return new MovieDTO(id, "Movie " + id, "https://image.tmdb.org/t/p/w500/" + id + ".jpg", 7.0, "Overview " + id);
+    }
+
+    private static String key(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static String ascii(byte[] value) {
+        return new String(value, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,149 @@
+package movieMentor.services;
+
+import movieMentor.beans.Movie;
+import movieMentor.beans.MovieDTO;
+import movieMentor.beans.User;
+import movieMentor.beans.UserProfileAggregate;
+import movieMentor.beans.WatchEvent;
+import movieMentor.repository.UserProfileAggregateRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * אילו פקודות SQL כותב עדכון בודד של ה-aggregate – נאסף דרך StatementInspector של Hibernate.
+ * A full history window and a favourite removed from the middle must each change one or two
+ * collection rows, never shift the rest of the ordered list.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "movieMentor.services.UserProfileServiceStatementTest$SqlRecorder"
+})
+@Import(UserProfileService.class)
+class UserProfileServiceStatementTest {
+
+    private static final int DIMENSION = 1536;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    @Autowired
+    private UserProfileAggregateRepository aggregateRepository;
+
+    @MockBean
+    private EmbeddingStorageService embeddingStorageService;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        when(embeddingStorageService.getEmbedding(anyLong())).thenAnswer(invocation -> {
+            float[] vector = new float[DIMENSION];
+            vector[0] = invocation.<Long>getArgument(0);
+            return vector;
+        });
+
+        User user = new User();
+        user.setUsername("noa");
+        for (long id = 1; id <= 5; id++) {
+            Movie movie = new Movie();
+            movie.setId(id);
+            movie.setTitle("Favorite " + id);
+            entityManager.persist(movie);
+            user.getFavoriteMovies().add(movie);
+        }
+        entityManager.persist(user);
+        userId = user.getId();
+        for (long ordinal = 1; ordinal <= UserProfileService.HISTORY_WINDOW; ordinal++) {
+            MovieDTO watched = new MovieDTO(100 + ordinal, "Watched " + ordinal, null, 7.0, null);
+            entityManager.persist(WatchEvent.of(userId, watched, ordinal, Instant.now()));
+        }
+        entityManager.flush();
+        userProfileService.rebuild(user);
+        entityManager.flush();
+        entityManager.clear();
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    @Test
+    void appendToFullWindowOverwritesOneSlot() {
+        User user = entityManager.find(User.class, userId);
+
+        userProfileService.historyAppended(user, 500L);
+        entityManager.flush();
+
+        assertEquals(1, count("update user_profile_history_window"));
+        assertEquals(0, count("delete from user_profile_history_window"));
+        assertEquals(0, count("insert into user_profile_history_window"));
+
+        userProfileService.historyAppended(user, 501L);
+        entityManager.flush();
+        entityManager.clear();
+
+        UserProfileAggregate aggregate = aggregateRepository.findById(userId).orElseThrow(IllegalStateException::new);
+        List<Long> window = aggregate.getHistoryWindow().stream()
+                .map(contribution -> contribution.getMovieId()).collect(Collectors.toList());
+        assertEquals(UserProfileService.HISTORY_WINDOW, window.size());
+        assertEquals(500L, window.get(0));
+        assertEquals(501L, window.get(1));
+        assertEquals(2, aggregate.getHistoryHead());
+        // 28 הצפיות הנותרות + 2 החדשות, כל אחת במשקל 1, ועוד 5 מועדפים במשקל 2
+        assertEquals(UserProfileService.HISTORY_WINDOW + 5 * UserProfileService.FAVORITE_WEIGHT,
+                aggregate.getTotalWeight(), 1e-6);
+    }
+
+    @Test
+    void removingAMiddleFavoriteMovesTheLastIntoItsSlot() {
+        User user = entityManager.find(User.class, userId);
+        user.getFavoriteMovies().removeIf(movie -> movie.getId() == 2L);
+
+        userProfileService.favoriteRemoved(user, 2L);
+        entityManager.flush();
+
+        assertEquals(1, count("update user_profile_favorite_list"));
+        assertEquals(1, count("delete from user_profile_favorite_list"));
+        assertEquals(0, count("insert into user_profile_favorite_list"));
+
+        entityManager.clear();
+        UserProfileAggregate aggregate = aggregateRepository.findById(userId).orElseThrow(IllegalStateException::new);
+        assertEquals(List.of(1L, 5L, 3L, 4L), aggregate.getFavorites().stream()
+                .map(contribution -> contribution.getMovieId()).collect(Collectors.toList()));
+    }
+
+    private static long count(String prefix) {
+        return SqlRecorder.STATEMENTS.stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith(prefix))
+                .count();
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package movieMentor.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import movieMentor.dto.UserVectorPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UserVectorClientService מול שרת HTTP מקומי שמחקה את ה-REST API של Qdrant.
+ * A search vector's first value is its marker: the stub answers it with a single hit whose
+ * id is that marker, and fails the whole request when a marker is negative.
+ */
+class UserVectorClientServiceTest {
+
+    private static final int DIMENSION = 1536;
+    private static final String COLLECTION = "users";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> upsertQueries = new CopyOnWriteArrayList<>();
+    private final List<List<String>> upsertIds = new CopyOnWriteArrayList<>();
+    private final List<Integer> searchBatchSizes = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private UserVectorClientService service;
+    private volatile boolean failUpserts;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/collections/" + COLLECTION + "/points", this::handle);
+        server.start();
+
+        service = new UserVectorClientService(WebClient.create());
+        ReflectionTestUtils.setField(service, "qdrantApiUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(service, "qdrantApiKey", "");
+        ReflectionTestUtils.setField(service, "qdrantCollectionName", COLLECTION);
+        ReflectionTestUtils.setField(service, "upsertBatchSize", 2);
+        ReflectionTestUtils.setField(service, "searchBatchSize", 2);
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void bulkUpsertSendsOneRequestPerChunk() {
+        List<UserVectorPoint> points = Arrays.asList(point("1"), point("2"), point("3"), point("4"), point("legacy-5"));
+
+        int stored = service.storeUserVectors(points, false);
+
+        assertEquals(5, stored);
+        assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3", "4"), Collections.singletonList("\"legacy-5\"")),
+                upsertIds);
+        upsertQueries.forEach(query -> assertEquals("wait=false", query));
+    }
+
+    @Test
+    void bulkUpsertFailsWhenAChunkIsRejected() {
+        failUpserts = true;
+
+        assertThrows(RuntimeException.class, () -> service.storeUserVectors(Arrays.asList(point("1"), point("2")), true));
+        assertEquals("wait=true", upsertQueries.get(0));
+    }
+
+    @Test
+    void batchSearchKeepsInputOrderAcrossChunks() {
+        List<float[]> vectors = Arrays.asList(vector(10), vector(11), vector(12), vector(13), vector(14));
+
+        List<List<Map<String, Object>>> results = service.findSimilarUsersBatch(vectors, 3);
+
+        assertEquals(Arrays.asList(2, 2, 1), searchBatchSizes);
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(1, results.get(i).size());
+            assertEquals(String.valueOf(10 + i), results.get(i).get(0).get("user_id"));
+            assertEquals(10.0 + i, (Double) results.get(i).get("score"), 1e-9);
+        }
+    }
+
+    @Test
+    void failedSearchChunkYieldsEmptyListsInItsPositions() {
+        List<float[]> vectors = Arrays.asList(vector(10), vector(11), vector(-1), vector(13), vector(14));
+
+        List<List<Map<String, Object>>> results = service.findSimilarUsersBatch(vectors, 3);
+
+        assertEquals(5, results.size());
+        assertEquals("10", results.get(0).get(0).get("user_id"));
+        assertEquals("11", results.get(1).get(0).get("user_id"));
+        assertTrue(results.get(2).isEmpty());
+        assertTrue(results.get(3).isEmpty());
+        assertEquals("14", results.get(4).get(0).get("user_id"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+        String path = exchange.getRequestURI().getPath();
+        ObjectNode response = objectMapper.createObjectNode();
+        int status = 200;
+
+        if ("PUT".equals(exchange.getRequestMethod()) && path.endsWith("/points")) {
+            upsertQueries.add(exchange.getRequestURI().getQuery());
+            List<String> ids = new ArrayList<>();
+            body.path("points").forEach(point -> ids.add(point.get("id").toString()));
+            upsertIds.add(ids);
+            response.putObject("result").put("status", "acknowledged");
+            if (failUpserts) {
+                status = 500;
+            }
+        } else if (path.endsWith("/points/search/batch")) {
+            JsonNode searches = body.path("searches");
+            searchBatchSizes.add(searches.size());
+            ArrayNode result = response.putArray("result");
+            for (JsonNode search : searches) {
+                int marker = search.path("vector").get(0).asInt();
+                if (marker < 0) {
+                    status = 500;
+                }
+                ObjectNode hit = result.addArray().addObject();
+                hit.put("id", marker);
+                hit.put("score", (double) marker);
+                hit.putObject("payload").put("username", "user" + marker);
+            }
+        } else {
+            status = 404;
+        }
+
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static UserVectorPoint point(String userId) {
+        return new UserVectorPoint(userId, vector(1), Collections.singletonMap("username", "user" + userId));
+    }
+
+    private static float[] vector(int marker) {
+        float[] vector = new float[DIMENSION];
+        vector[0] = marker;
+        return vector;
+    }
+}
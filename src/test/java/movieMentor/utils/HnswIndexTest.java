@@ -0,0 +1,233 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * recall@K של גרף ה-HNSW מול חיפוש מדויק, tombstones, ו-snapshot הלוך-חזור.
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int K = 10;
+    private static final int EF = 64;
+
+    @Test
+    void recallAgainstExactSearch() {
+        Random random = new Random(42);
+        Map<Long, float[]> vectors = clustered(random, 3_000);
+        HnswIndex index = build(vectors);
+
+        double recall = recall(index, vectors, random, 100);
+
+        assertTrue(recall >= 0.95, "recall@10: " + recall);
+    }
+
+    @Test
+    void removedAndReplacedIdsAreNeverReturned() {
+        Random random = new Random(7);
+        Map<Long, float[]> vectors = clustered(random, 1_000);
+        HnswIndex index = build(vectors);
+
+        Map<Long, float[]> removed = new HashMap<>();
+        for (long id = 0; id < 100; id++) {
+            assertTrue(index.remove(id));
+            removed.put(id, vectors.remove(id));
+        }
+        assertFalse(index.remove(0L));
+        // החלפה משאירה את הצומת הישן כ-tombstone
+        for (long id = 100; id < 150; id++) {
+            float[] replacement = gaussian(random, DIMENSION);
+            assertTrue(index.upsert(id, replacement));
+            vectors.put(id, replacement);
+        }
+        assertEquals(900, index.size());
+        assertEquals(150, index.deletedCount());
+
+        long[] ids = new long[K];
+        float[] scores = new float[K];
+        for (Map.Entry<Long, float[]> entry : removed.entrySet()) {
+            int found = index.search(entry.getValue(), K, EF, ids, scores);
+            assertEquals(K, found);
+            for (int i = 0; i < found; i++) {
+                assertFalse(removed.containsKey(ids[i]), "removed id " + ids[i] + " was returned");
+            }
+        }
+        for (long id = 100; id < 150; id++) {
+            int found = index.search(vectors.get(id), K, EF, ids, scores);
+            assertEquals(id, ids[0]);
+            assertEquals(1f, scores[0], 1e-4f);
+            assertEquals(1, Arrays.stream(ids, 0, found).filter(hit -> hit == ids[0]).count());
+        }
+        assertTrue(recall(index, vectors, random, 50) >= 0.9);
+
+        HnswIndex compacted = index.compacted();
+        assertEquals(900, compacted.size());
+        assertEquals(0, compacted.deletedCount());
+        assertFalse(compacted.contains(0L));
+        assertTrue(recall(compacted, vectors, random, 50) >= 0.95);
+    }
+
+    @Test
+    void snapshotRoundTripAnswersLikeTheOriginal() throws IOException {
+        Random random = new Random(11);
+        Map<Long, float[]> vectors = clustered(random, 1_000);
+        HnswIndex index = build(vectors);
+        for (long id = 0; id < 20; id++) {
+            index.remove(id);
+            vectors.remove(id);
+        }
+
+        HnswIndex loaded = HnswIndex.readFrom(input(snapshot(index)));
+
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.deletedCount(), loaded.deletedCount());
+        assertEquals(index.dimension(), loaded.dimension());
+        long[] expectedIds = new long[K];
+        float[] expectedScores = new float[K];
+        long[] ids = new long[K];
+        float[] scores = new float[K];
+        for (int q = 0; q < 50; q++) {
+            float[] query = gaussian(random, DIMENSION);
+            int expected = index.search(query, K, EF, expectedIds, expectedScores);
+            assertEquals(expected, loaded.search(query, K, EF, ids, scores));
+            assertArrayEquals(expectedIds, ids);
+            assertArrayEquals(expectedScores, scores, 0f);
+        }
+
+        // האינדקס שנטען ממשיך לקבל עדכונים
+        float[] fresh = gaussian(random, DIMENSION);
+        assertTrue(loaded.upsert(5_000L, fresh));
+        loaded.search(fresh, K, EF, ids, scores);
+        assertEquals(5_000L, ids[0]);
+    }
+
+    @Test
+    void neighbourOutsideTheGraphFailsTheLoad() throws IOException {
+        HnswIndex index = build(clustered(new Random(3), 50));
+        byte[] bytes = snapshot(index);
+        // header של 9 ints, ואז צומת 0: id, deleted, level, וקטור, מספר הקישורים ברמה 0, הקישור הראשון
+        int firstLink = 9 * Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + DIMENSION * Float.BYTES + Integer.BYTES;
+        assertTrue(ByteBuffer.wrap(bytes).getInt(firstLink - Integer.BYTES) > 0);
+
+        ByteBuffer.wrap(bytes).putInt(firstLink, 50);
+        assertThrows(IOException.class, () -> HnswIndex.readFrom(input(bytes)));
+
+        ByteBuffer.wrap(bytes).putInt(firstLink, -1);
+        assertThrows(IOException.class, () -> HnswIndex.readFrom(input(bytes)));
+    }
+
+    @Test
+    void truncatedOrInconsistentSnapshotFailsTheLoad() throws IOException {
+        HnswIndex index = build(clustered(new Random(5), 50));
+        byte[] bytes = snapshot(index);
+
+        assertThrows(IOException.class, () -> HnswIndex.readFrom(input(Arrays.copyOf(bytes, bytes.length - 3))));
+
+        byte[] entryPoint = bytes.clone();
+        ByteBuffer.wrap(entryPoint).putInt(6 * Integer.BYTES, 50);
+        assertThrows(IOException.class, () -> HnswIndex.readFrom(input(entryPoint)));
+
+        byte[] deletedCount = bytes.clone();
+        ByteBuffer.wrap(deletedCount).putInt(8 * Integer.BYTES, 1);
+        assertThrows(IOException.class, () -> HnswIndex.readFrom(input(deletedCount)));
+
+        byte[] dimension = bytes.clone();
+        ByteBuffer.wrap(dimension).putInt(2 * Integer.BYTES, 0);
+        assertThrows(IOException.class, () -> HnswIndex.readFrom(input(dimension)));
+    }
+
+    private static HnswIndex build(Map<Long, float[]> vectors) {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 200);
+        vectors.forEach(index::upsert);
+        return index;
+    }
+
+    private static double recall(HnswIndex index, Map<Long, float[]> vectors, Random random, int queries) {
+        long[] ids = new long[K];
+        float[] scores = new float[K];
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = gaussian(random, DIMENSION);
+            Set<Long> truth = exactTopK(vectors, query);
+            int found = index.search(query, K, EF, ids, scores);
+            for (int i = 0; i < found; i++) {
+                if (truth.contains(ids[i])) hits++;
+            }
+        }
+        return hits / (double) (queries * K);
+    }
+
+    private static Set<Long> exactTopK(Map<Long, float[]> vectors, float[] query) {
+        long[] ids = new long[K];
+        float[] scores = new float[K];
+        float[] q = new float[DIMENSION];
+        float[] v = new float[DIMENSION];
+        EmbeddingUtils.normalizeInto(query, q, 0);
+        int size = 0;
+        for (Map.Entry<Long, float[]> entry : vectors.entrySet()) {
+            EmbeddingUtils.normalizeInto(entry.getValue(), v, 0);
+            size = TopKSelector.offer(ids, scores, size, K, entry.getKey(), EmbeddingUtils.dot(q, v, 0, DIMENSION));
+        }
+        Set<Long> truth = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            truth.add(ids[i]);
+        }
+        return truth;
+    }
+
+    private static byte[] snapshot(HnswIndex index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static Map<Long, float[]> clustered(Random random, int rows) {
+        float[][] centroids = new float[Math.max(1, rows / 50)][];
+        for (int c = 0; c < centroids.length; c++) {
+            centroids[c] = gaussian(random, DIMENSION);
+        }
+        Map<Long, float[]> vectors = new HashMap<>(rows * 2);
+        for (long id = 0; id < rows; id++) {
+            float[] centroid = centroids[random.nextInt(centroids.length)];
+            float[] vector = new float[DIMENSION];
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = centroid[i] + 0.6f * (float) random.nextGaussian();
+            }
+            vectors.put(id, vector);
+        }
+        return vectors;
+    }
+
+    private static float[] gaussian(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
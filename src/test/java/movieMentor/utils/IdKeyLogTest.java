@@ -0,0 +1,71 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdKeyLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysLastKeyPerIdAndDropsATornRecord() throws Exception {
+        Path file = dir.resolve("keys.bin");
+        try (IdKeyLog log = IdKeyLog.open(file)) {
+            for (long id = 0; id < 10_000; id++) {
+                log.put(id, id * 7);
+            }
+            log.put(5, 55);
+            log.put(5, 55);
+            assertEquals(1, log.deadRecords());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        try (IdKeyLog log = IdKeyLog.open(file)) {
+            assertEquals(10_000, log.size());
+            assertEquals(55L, log.get(5));
+            assertEquals(7L * 9_999, log.get(9_999));
+            assertNull(log.get(10_000));
+            log.put(10_000, 1);
+        }
+        try (IdKeyLog log = IdKeyLog.open(file)) {
+            assertEquals(1L, log.get(10_000));
+        }
+    }
+
+    @Test
+    void compactKeepsLiveRecordsOnly() throws Exception {
+        Path file = dir.resolve("keys.bin");
+        try (IdKeyLog log = IdKeyLog.open(file)) {
+            for (long id = 0; id < 100; id++) {
+                log.put(id, 1);
+                log.put(id, 2);
+            }
+            assertEquals(100, log.deadRecords());
+            long before = Files.size(file);
+
+            log.compact();
+
+            assertEquals(0, log.deadRecords());
+            assertEquals(before - 100 * 16L, Files.size(file));
+            log.put(100, 3);
+        }
+        try (IdKeyLog log = IdKeyLog.open(file)) {
+            assertEquals(101, log.size());
+            for (long id = 0; id < 100; id++) {
+                assertEquals(2L, log.get(id));
+            }
+            assertEquals(3L, log.get(100));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MmapEmbeddingStoreTest {
+
+    private static final int DIMENSION = 4;
+    // 3 שורות לסגמנט – כל כמה שורות עוברים סגמנט
+    private static final long SEGMENT_BYTES = 3L * (Long.BYTES + DIMENSION * Float.BYTES);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsSpanningSegmentsSurviveGrowthAndReopen() throws Exception {
+        Path file = dir.resolve("embeddings.bin");
+        try (MmapEmbeddingStore store = MmapEmbeddingStore.open(file, DIMENSION, SEGMENT_BYTES)) {
+            for (long id = 0; id < 2500; id++) {
+                store.put(id, vector(id));
+            }
+        }
+
+        try (MmapEmbeddingStore store = MmapEmbeddingStore.open(file, DIMENSION, SEGMENT_BYTES)) {
+            assertEquals(2500, store.size());
+            for (long id = 0; id < 2500; id++) {
+                assertArrayEquals(vector(id), store.get(id));
+                float[] viewed = new float[DIMENSION];
+                store.view(id).get(viewed);
+                assertArrayEquals(vector(id), viewed);
+            }
+            assertNull(store.get(2500));
+        }
+    }
+
+    @Test
+    void compactKeepsLatestRowsAcrossSegments() throws Exception {
+        Path file = dir.resolve("embeddings.bin");
+        try (MmapEmbeddingStore store = MmapEmbeddingStore.open(file, DIMENSION, SEGMENT_BYTES)) {
+            for (long id = 0; id < 100; id++) {
+                store.put(id, vector(id));
+            }
+            for (long id = 0; id < 100; id += 2) {
+                store.put(id, vector(id + 1000));
+            }
+            assertEquals(50, store.deadRows());
+
+            store.compact();
+
+            assertEquals(0, store.deadRows());
+            assertEquals(100, store.size());
+            store.put(100, vector(100));
+        }
+
+        try (MmapEmbeddingStore store = MmapEmbeddingStore.open(file, DIMENSION, SEGMENT_BYTES)) {
+            assertEquals(101, store.size());
+            for (long id = 0; id <= 100; id++) {
+                float[] expected = id % 2 == 0 && id < 100 ? vector(id + 1000) : vector(id);
+                assertArrayEquals(expected, store.get(id));
+            }
+            int[] visited = {0};
+            store.forEach((id, data, offset) -> {
+                float[] expected = id % 2 == 0 && id < 100 ? vector(id + 1000) : vector(id);
+                assertEquals(expected[DIMENSION - 1], data.get(offset + DIMENSION - 1));
+                visited[0]++;
+            });
+            assertEquals(101, visited[0]);
+        }
+    }
+
+    @Test
+    void compactWithFilterDropsUnkeptRows() throws Exception {
+        Path file = dir.resolve("embeddings.bin");
+        try (MmapEmbeddingStore store = MmapEmbeddingStore.open(file, DIMENSION, SEGMENT_BYTES)) {
+            for (long id = 0; id < 30; id++) {
+                store.put(id, vector(id));
+            }
+            store.put(0, vector(1000));
+
+            // שורה אחת שנדרסה + 20 מזהים שלא נשמרים
+            assertEquals(21, store.compact(id -> id < 10));
+
+            assertEquals(0, store.deadRows());
+            assertEquals(10, store.size());
+            assertNull(store.get(10));
+            assertEquals(0, store.compact(id -> true));
+        }
+
+        try (MmapEmbeddingStore store = MmapEmbeddingStore.open(file, DIMENSION, SEGMENT_BYTES)) {
+            assertEquals(10, store.size());
+            assertArrayEquals(vector(1000), store.get(0));
+            for (long id = 1; id < 10; id++) {
+                assertArrayEquals(vector(id), store.get(id));
+            }
+            assertNull(store.get(29));
+        }
+    }
+
+    private static float[] vector(long seed) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = seed * 10f + i;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,150 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * MMR המצטבר מול המימוש הנאיבי ({@code O(k²·n)}) – אותה בחירה בדיוק.
+ * The benchmark variant runs the production shape (N=5k, K=30, 1536 dims):
+ * {@code mvn test -Dbenchmarks=true -Dtest=MmrSelectorTest}.
+ */
+class MmrSelectorTest {
+
+    @Test
+    void selectsTheSameRowsAsTheNaiveImplementation() {
+        Random random = new Random(42);
+        int n = 2_000;
+        int dimension = 64;
+        float[] vectors = clustered(random, n, dimension);
+        float[] relevance = relevance(random, n);
+
+        for (float lambda : new float[]{0f, 0.3f, 0.7f, 1f}) {
+            int[] incremental = new int[30];
+            int[] naive = new int[30];
+            assertEquals(30, MmrSelector.select(vectors, n, dimension, relevance, lambda, 30, incremental));
+            assertEquals(30, naiveSelect(vectors, n, dimension, relevance, lambda, 30, naive));
+            assertArrayEquals(naive, incremental, "lambda " + lambda);
+        }
+    }
+
+    @Test
+    void lambdaOneIsPlainRelevanceOrder() {
+        float[] vectors = new float[4 * 2];
+        float[] relevance = {0.1f, 0.9f, 0.5f, 0.7f};
+        int[] selected = new int[4];
+
+        assertEquals(3, MmrSelector.select(vectors, 4, 2, relevance, 1f, 3, selected));
+        assertArrayEquals(new int[]{1, 3, 2}, Arrays.copyOf(selected, 3));
+    }
+
+    @Test
+    void kLargerThanNSelectsEveryRowOnce() {
+        Random random = new Random(1);
+        float[] vectors = clustered(random, 5, 8);
+        int[] selected = new int[10];
+
+        int picked = MmrSelector.select(vectors, 5, 8, relevance(random, 5), 0.5f, 10, selected);
+
+        assertEquals(5, picked);
+        int[] sorted = Arrays.copyOf(selected, picked);
+        Arrays.sort(sorted);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, sorted);
+        assertEquals(0, MmrSelector.select(vectors, 5, 8, relevance(random, 5), 0.5f, 0, selected));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void incrementalVersusNaiveAtProductionSize() {
+        Random random = new Random(42);
+        int n = 5_000;
+        int dimension = 1536;
+        int k = 30;
+        float[] vectors = clustered(random, n, dimension);
+        float[] relevance = relevance(random, n);
+        int[] incremental = new int[k];
+        int[] naive = new int[k];
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            MmrSelector.select(vectors, n, dimension, relevance, 0.7f, k, incremental);
+            naiveSelect(vectors, n, dimension, relevance, 0.7f, k, naive);
+        }
+        int runs = 10;
+        long start = System.nanoTime();
+        for (int run = 0; run < runs; run++) {
+            MmrSelector.select(vectors, n, dimension, relevance, 0.7f, k, incremental);
+        }
+        double incrementalMillis = (System.nanoTime() - start) / 1e6 / runs;
+        start = System.nanoTime();
+        for (int run = 0; run < runs; run++) {
+            naiveSelect(vectors, n, dimension, relevance, 0.7f, k, naive);
+        }
+        double naiveMillis = (System.nanoTime() - start) / 1e6 / runs;
+
+        assertArrayEquals(naive, incremental);
+        System.out.printf("MMR N=%d K=%d dim=%d: incremental %.2fms, naive %.2fms (x%.1f)%n",
+                n, k, dimension, incrementalMillis, naiveMillis, naiveMillis / incrementalMillis);
+    }
+
+    // כל צעד מחשב מחדש את הדמיון המקסימלי של כל מועמד לכל הנבחרים עד כה
+    private static int naiveSelect(float[] vectors, int n, int dimension, float[] relevance, float lambda, int k,
+                                   int[] selectedOut) {
+        int picks = Math.min(k, n);
+        boolean[] selected = new boolean[n];
+        float[] row = new float[dimension];
+        for (int step = 0; step < picks; step++) {
+            int best = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) continue;
+                float maxSimilarity = 0f;
+                for (int s = 0; s < step; s++) {
+                    System.arraycopy(vectors, selectedOut[s] * dimension, row, 0, dimension);
+                    float similarity = EmbeddingUtils.dot(row, vectors, i * dimension, dimension);
+                    maxSimilarity = s == 0 ? similarity : Math.max(maxSimilarity, similarity);
+                }
+                float score = lambda * relevance[i] - (step == 0 ? 0f : (1f - lambda) * maxSimilarity);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            selected[best] = true;
+            selectedOut[step] = best;
+        }
+        return picks;
+    }
+
+    // שורות מנורמלות סביב מעט מרכזים, כמו embeddings של סרטים דומים
+    private static float[] clustered(Random random, int n, int dimension) {
+        float[][] centroids = new float[Math.max(1, n / 100)][dimension];
+        for (float[] centroid : centroids) {
+            for (int d = 0; d < dimension; d++) {
+                centroid[d] = (float) random.nextGaussian();
+            }
+        }
+        float[] vectors = new float[n * dimension];
+        float[] row = new float[dimension];
+        for (int i = 0; i < n; i++) {
+            float[] centroid = centroids[random.nextInt(centroids.length)];
+            for (int d = 0; d < dimension; d++) {
+                row[d] = centroid[d] + 0.5f * (float) random.nextGaussian();
+            }
+            EmbeddingUtils.normalizeInto(row, vectors, i * dimension);
+        }
+        return vectors;
+    }
+
+    private static float[] relevance(Random random, int n) {
+        float[] relevance = new float[n];
+        for (int i = 0; i < n; i++) {
+            relevance[i] = random.nextFloat();
+        }
+        return relevance;
+    }
+}
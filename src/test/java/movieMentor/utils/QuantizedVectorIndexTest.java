@@ -0,0 +1,143 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * recall@K של האינדקס המקוונטט מול החיפוש המדויק של {@link MovieVectorIndex}.
+ *
+ * The data set is clustered like real embeddings (many near neighbours), which is where
+ * int8 quantisation reorders near-ties. The benchmark variant runs at production dimension
+ * and size: {@code mvn test -Dbenchmarks=true -Dtest=QuantizedVectorIndexTest}.
+ */
+class QuantizedVectorIndexTest {
+
+    private static final int K = 10;
+
+    @Test
+    void rerankKeepsRecallOfExactSearch() {
+        Recall recall = measure(256, 5_000, 100, 100, 42L);
+
+        assertTrue(recall.reranked >= 0.95, "recall@10 with re-rank: " + recall.reranked);
+        assertTrue(recall.reranked >= recall.approximate, "re-rank must not lose recall");
+    }
+
+    @Test
+    void searchWithoutExactVectorsKeepsApproximateScores() {
+        Random random = new Random(7);
+        QuantizedVectorIndex index = new QuantizedVectorIndex(64, 50, null);
+        for (long id = 0; id < 500; id++) {
+            index.upsert(id, gaussian(random, 64));
+        }
+        float[] query = gaussian(random, 64);
+        long[] ids = new long[K];
+        float[] scores = new float[K];
+        long[] approximateIds = new long[K];
+        float[] approximateScores = new float[K];
+
+        int found = index.search(query, K, null, ids, scores);
+        int approximate = index.searchApproximate(query, K, null, approximateIds, approximateScores);
+
+        assertEquals(approximate, found);
+        for (int i = 0; i < found; i++) {
+            assertEquals(approximateIds[i], ids[i]);
+            assertEquals(approximateScores[i], scores[i], 0f);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void recallAndLatencyAtProductionSize() {
+        for (int rerankDepth : new int[]{0, 50, 100, 200}) {
+            Recall recall = measure(1536, 20_000, 200, rerankDepth, 42L);
+            System.out.printf("rerank-depth=%d recall@%d=%.4f (scan only %.4f) exact=%.2fms quantized=%.2fms per query%n",
+                    rerankDepth, K, recall.reranked, recall.approximate, recall.exactMillis, recall.quantizedMillis);
+        }
+    }
+
+    private static Recall measure(int dimension, int rows, int queries, int rerankDepth, long seed) {
+        Random random = new Random(seed);
+        float[][] centroids = new float[Math.max(1, rows / 50)][];
+        for (int c = 0; c < centroids.length; c++) {
+            centroids[c] = gaussian(random, dimension);
+        }
+        Map<Long, float[]> vectors = new HashMap<>(rows * 2);
+        MovieVectorIndex exact = new MovieVectorIndex(dimension, rows);
+        QuantizedVectorIndex quantized = new QuantizedVectorIndex(dimension, rerankDepth, vectors::get);
+        for (long id = 0; id < rows; id++) {
+            float[] vector = near(random, centroids[random.nextInt(centroids.length)], 0.6f);
+            vectors.put(id, vector);
+            exact.upsert(id, vector);
+            quantized.upsert(id, vector);
+        }
+
+        long[] exactIds = new long[K];
+        long[] ids = new long[K];
+        float[] scores = new float[K];
+        int hits = 0;
+        int approximateHits = 0;
+        long exactNanos = 0;
+        long quantizedNanos = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = near(random, centroids[random.nextInt(centroids.length)], 0.6f);
+
+            long start = System.nanoTime();
+            int expected = exact.search(query, K, null, exactIds, scores);
+            exactNanos += System.nanoTime() - start;
+            Set<Long> truth = new HashSet<>();
+            for (int i = 0; i < expected; i++) {
+                truth.add(exactIds[i]);
+            }
+
+            start = System.nanoTime();
+            int found = quantized.search(query, K, null, ids, scores);
+            quantizedNanos += System.nanoTime() - start;
+            for (int i = 0; i < found; i++) {
+                if (truth.contains(ids[i])) hits++;
+            }
+
+            found = quantized.searchApproximate(query, K, null, ids, scores);
+            for (int i = 0; i < found; i++) {
+                if (truth.contains(ids[i])) approximateHits++;
+            }
+        }
+        Recall recall = new Recall();
+        recall.reranked = hits / (double) (queries * K);
+        recall.approximate = approximateHits / (double) (queries * K);
+        recall.exactMillis = exactNanos / 1e6 / queries;
+        recall.quantizedMillis = quantizedNanos / 1e6 / queries;
+        return recall;
+    }
+
+    private static float[] gaussian(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static float[] near(Random random, float[] centroid, float noise) {
+        float[] vector = new float[centroid.length];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = centroid[i] + noise * (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static final class Recall {
+        double reranked;
+        double approximate;
+        double exactMillis;
+        double quantizedMillis;
+    }
+}
@@ -0,0 +1,91 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecommendationRecordTest {
+
+    private static final long GENERATED_AT = 1_760_000_000_123L;
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        long[] ids = {550L, 13L, Long.MAX_VALUE, 0L};
+        float[] scores = {0.91f, Float.NaN, -0.25f, 0f};
+        RecommendationRecord record = new RecommendationRecord(ids, scores, GENERATED_AT);
+
+        byte[] bytes = record.encode();
+        assertEquals(RecommendationRecord.HEADER_BYTES + ids.length * RecommendationRecord.ENTRY_BYTES, bytes.length);
+
+        RecommendationRecord decoded = RecommendationRecord.decode(bytes);
+        assertArrayEquals(ids, decoded.movieIds());
+        assertEquals(4, decoded.size());
+        assertEquals(0.91f, decoded.scores()[0], 0f);
+        assertTrue(Float.isNaN(decoded.scores()[1]));
+        assertEquals(-0.25f, decoded.scores()[2], 0f);
+        assertEquals(GENERATED_AT, decoded.generatedAt());
+    }
+
+    @Test
+    void emptyRecordRoundTrips() {
+        RecommendationRecord decoded = RecommendationRecord.decode(
+                new RecommendationRecord(new long[0], new float[0], GENERATED_AT).encode());
+
+        assertEquals(0, decoded.size());
+        assertEquals(GENERATED_AT, decoded.generatedAt());
+    }
+
+    // ה-Lua של RecommendationStore קורא גרסה ב-offset 0 ו-generatedAt ב-offset 8, big-endian
+    @Test
+    void headerLayoutMatchesTheCompareAndSetScript() {
+        byte[] bytes = new RecommendationRecord(new long[]{7L}, new float[]{1f}, GENERATED_AT).encode();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        assertEquals(RecommendationRecord.VERSION, buffer.getInt(0));
+        assertEquals(1, buffer.getInt(4));
+        assertEquals(GENERATED_AT, buffer.getLong(8));
+        assertEquals(7L, buffer.getLong(RecommendationRecord.HEADER_BYTES));
+        assertArrayEquals(Arrays.copyOf(bytes, RecommendationRecord.HEADER_BYTES),
+                new RecommendationRecord(new long[]{7L}, new float[]{1f}, GENERATED_AT).header());
+    }
+
+    @Test
+    void trailingBytesAreIgnored() {
+        byte[] bytes = new RecommendationRecord(new long[]{1L, 2L}, new float[]{0.5f, 0.4f}, GENERATED_AT).encode();
+
+        RecommendationRecord decoded = RecommendationRecord.decode(Arrays.copyOf(bytes, bytes.length + 12));
+
+        assertArrayEquals(new long[]{1L, 2L}, decoded.movieIds());
+    }
+
+    @Test
+    void missingTruncatedOrForeignBytesDecodeToNull() {
+        byte[] bytes = new RecommendationRecord(new long[]{1L, 2L}, new float[]{0.5f, 0.4f}, GENERATED_AT).encode();
+
+        assertNull(RecommendationRecord.decode(null));
+        assertNull(RecommendationRecord.decode(new byte[0]));
+        assertNull(RecommendationRecord.decode(Arrays.copyOf(bytes, RecommendationRecord.HEADER_BYTES - 1)));
+        assertNull(RecommendationRecord.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+
+        byte[] otherVersion = bytes.clone();
+        ByteBuffer.wrap(otherVersion).putInt(0, RecommendationRecord.VERSION + 1);
+        assertNull(RecommendationRecord.decode(otherVersion));
+
+        byte[] negativeCount = bytes.clone();
+        ByteBuffer.wrap(negativeCount).putInt(4, -1);
+        assertNull(RecommendationRecord.decode(negativeCount));
+    }
+
+    @Test
+    void idsAndScoresMustLineUp() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecommendationRecord(new long[]{1L, 2L}, new float[]{0.5f}, GENERATED_AT));
+    }
+}
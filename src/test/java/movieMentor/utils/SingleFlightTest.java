@@ -0,0 +1,181 @@
+package movieMentor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(callers.submit(() -> flights.execute("heat", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "Heat (1995)";
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(callers.submit(() -> flights.execute("heat", () -> {
+                    loads.incrementAndGet();
+                    return "second load";
+                })));
+            }
+            // כל המצטרפים כבר מחכים ל-future של הטעינה הראשונה
+            awaitWaiting(CALLERS);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("Heat (1995)", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertFalse(flights.isInFlight("heat"));
+
+            // כלום לא נשמר – הקריאה הבאה טוענת מחדש
+            assertEquals("reloaded", flights.execute("heat", () -> "reloaded"));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersGetTheLoadersException() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> owner = callers.submit(() -> flights.execute("missing", () -> {
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("Movie not found: missing");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = callers.submit(() -> flights.execute("missing", () -> "second load"));
+            awaitWaiting(2);
+            release.countDown();
+
+            Exception ownerError = assertThrows(Exception.class, () -> owner.get(5, TimeUnit.SECONDS));
+            Exception waiterError = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertSame(ownerError.getCause(), waiterError.getCause());
+            assertFalse(flights.isInFlight("missing"));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void staleHitsTriggerOneRefresh() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger refreshes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            // כל קריאה "מעופשת" מבקשת רענון; רק הראשונה מריצה אותו
+            List<CompletableFuture<String>> requested = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                requested.add(flights.executeAsync("heat", () -> {
+                    refreshes.incrementAndGet();
+                    await(release);
+                    return "Heat (refreshed)";
+                }, refreshExecutor));
+            }
+            assertTrue(flights.isInFlight("heat"));
+            for (CompletableFuture<String> future : requested) {
+                assertSame(requested.get(0), future);
+            }
+
+            // קורא חוסם לאותו כותר מצטרף לרענון במקום לטעון בעצמו
+            Future<String> blocking = caller.submit(() -> flights.execute("heat", () -> "blocking load"));
+            awaitWaiting(2);
+            release.countDown();
+
+            assertEquals("Heat (refreshed)", requested.get(0).get(5, TimeUnit.SECONDS));
+            assertEquals("Heat (refreshed)", blocking.get(5, TimeUnit.SECONDS));
+            assertEquals(1, refreshes.get());
+            assertFalse(flights.isInFlight("heat"));
+        } finally {
+            release.countDown();
+            refreshExecutor.shutdownNow();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedRefreshReleasesTheKey() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        ExecutorService full = Executors.newSingleThreadExecutor();
+        full.shutdown();
+
+        CompletableFuture<String> refresh = flights.executeAsync("heat", () -> "never runs", full);
+
+        assertTrue(refresh.isCompletedExceptionally());
+        Exception error = assertThrows(Exception.class, () -> refresh.get(1, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+        assertFalse(flights.isInFlight("heat"));
+        assertEquals("loaded", flights.execute("heat", () -> "loaded"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // מחכה שכל threads ה-pool יחסמו (מי שמחזיק את הטעינה על ה-latch, השאר על ה-future)
+    private static void awaitWaiting(int threads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            long waiting = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("pool-"))
+                    .filter(thread -> thread.getState() == Thread.State.WAITING
+                            || thread.getState() == Thread.State.TIMED_WAITING)
+                    .filter(thread -> isInsideSingleFlight(thread.getStackTrace()))
+                    .count();
+            if (waiting >= threads) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("callers did not reach the in-flight call");
+    }
+
+    private static boolean isInsideSingleFlight(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().equals(SingleFlight.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}